@@ -0,0 +1,26 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * JVM上使用的替代实现, 只包含jesonmvp用到的方法
+ */
+
+public class Activity extends Context {
+
+    public final Application getApplication() {
+        return null;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+    public boolean isFinishing() {
+        return false;
+    }
+
+    public int getTaskId() {
+        return 0;
+    }
+}
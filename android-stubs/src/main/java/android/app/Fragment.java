@@ -0,0 +1,12 @@
+package android.app;
+
+/**
+ * JVM上使用的替代实现, 只包含jesonmvp用到的方法
+ */
+
+public class Fragment {
+
+    public final Activity getActivity() {
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM上使用的替代实现
+ */
+
+public abstract class Context {
+
+    public File getCacheDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public File getFilesDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+}
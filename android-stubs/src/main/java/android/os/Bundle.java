@@ -0,0 +1,135 @@
+package android.os;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * JVM上使用的替代实现, 只包含用到的方法
+ */
+
+public final class Bundle {
+
+    private final HashMap<String, Object> mMap = new HashMap<>();
+
+    public Bundle() {
+    }
+
+    public Bundle(Bundle bundle) {
+        if (bundle != null) {
+            mMap.putAll(bundle.mMap);
+        }
+    }
+
+    public Set<String> keySet() {
+        return mMap.keySet();
+    }
+
+    public Object get(String key) {
+        return mMap.get(key);
+    }
+
+    public boolean containsKey(String key) {
+        return mMap.containsKey(key);
+    }
+
+    public int size() {
+        return mMap.size();
+    }
+
+    public boolean isEmpty() {
+        return mMap.isEmpty();
+    }
+
+    public void remove(String key) {
+        mMap.remove(key);
+    }
+
+    public void clear() {
+        mMap.clear();
+    }
+
+    public void putAll(Bundle bundle) {
+        mMap.putAll(bundle.mMap);
+    }
+
+    public void putInt(String key, int value) {
+        mMap.put(key, value);
+    }
+
+    public int getInt(String key) {
+        return getInt(key, 0);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Object value = mMap.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public void putLong(String key, long value) {
+        mMap.put(key, value);
+    }
+
+    public long getLong(String key) {
+        return getLong(key, 0L);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object value = mMap.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    public void putDouble(String key, double value) {
+        mMap.put(key, value);
+    }
+
+    public double getDouble(String key) {
+        Object value = mMap.get(key);
+        return value instanceof Double ? (Double) value : 0.0;
+    }
+
+    public void putBoolean(String key, boolean value) {
+        mMap.put(key, value);
+    }
+
+    public boolean getBoolean(String key) {
+        Object value = mMap.get(key);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    public void putString(String key, String value) {
+        mMap.put(key, value);
+    }
+
+    public String getString(String key) {
+        Object value = mMap.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public void putByteArray(String key, byte[] value) {
+        mMap.put(key, value);
+    }
+
+    public byte[] getByteArray(String key) {
+        Object value = mMap.get(key);
+        return value instanceof byte[] ? (byte[]) value : null;
+    }
+
+    public void putBundle(String key, Bundle value) {
+        mMap.put(key, value);
+    }
+
+    public Bundle getBundle(String key) {
+        Object value = mMap.get(key);
+        return value instanceof Bundle ? (Bundle) value : null;
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        mMap.put(key, value);
+    }
+
+    public Serializable getSerializable(String key) {
+        Object value = mMap.get(key);
+        return value instanceof Serializable ? (Serializable) value : null;
+    }
+}
@@ -0,0 +1,155 @@
+package android.os;
+
+import java.util.ArrayList;
+
+/**
+ * JVM上使用的替代实现, 按时间排序的单链表消息队列
+ */
+
+public final class MessageQueue {
+
+    public interface IdleHandler {
+        boolean queueIdle();
+    }
+
+    private final ArrayList<IdleHandler> mIdleHandlers = new ArrayList<>();
+    private Message mMessages;
+    private boolean mQuitting = false;
+
+    public void addIdleHandler(IdleHandler handler) {
+        synchronized (this) {
+            mIdleHandlers.add(handler);
+        }
+    }
+
+    public void removeIdleHandler(IdleHandler handler) {
+        synchronized (this) {
+            mIdleHandlers.remove(handler);
+        }
+    }
+
+    synchronized boolean enqueueMessage(Message msg, long when) {
+        if (mQuitting) {
+            msg.recycle();
+            return false;
+        }
+        msg.when = when;
+        Message p = mMessages;
+        if (p == null || when < p.when) {
+            msg.next = p;
+            mMessages = msg;
+        } else {
+            Message prev;
+            for (; ; ) {
+                prev = p;
+                p = p.next;
+                if (p == null || when < p.when) {
+                    break;
+                }
+            }
+            msg.next = p;
+            prev.next = msg;
+        }
+        notifyAll();
+        return true;
+    }
+
+    Message next() {
+        for (; ; ) {
+            IdleHandler[] idleHandlers = null;
+            synchronized (this) {
+                if (mQuitting) {
+                    return null;
+                }
+                long now = SystemClock.uptimeMillis();
+                Message m = mMessages;
+                if (m != null && m.when <= now) {
+                    mMessages = m.next;
+                    m.next = null;
+                    return m;
+                }
+                if (m == null && !mIdleHandlers.isEmpty()) {
+                    idleHandlers = mIdleHandlers.toArray(new IdleHandler[mIdleHandlers.size()]);
+                } else {
+                    try {
+                        if (m == null) {
+                            wait();
+                        } else {
+                            wait(Math.max(1, m.when - now));
+                        }
+                    } catch (InterruptedException e) {
+                        return null;
+                    }
+                }
+            }
+            if (idleHandlers != null) {
+                for (IdleHandler idleHandler : idleHandlers) {
+                    if (!idleHandler.queueIdle()) {
+                        removeIdleHandler(idleHandler);
+                    }
+                }
+                synchronized (this) {
+                    if (mMessages == null && !mQuitting) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return null;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    synchronized boolean hasMessages(Handler h, int what) {
+        for (Message p = mMessages; p != null; p = p.next) {
+            if (p.target == h && p.what == what && p.callback == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void removeMessages(Handler h, int what, Object obj) {
+        Message prev = null;
+        Message p = mMessages;
+        while (p != null) {
+            Message n = p.next;
+            if (p.target == h && p.what == what && p.callback == null && (obj == null || p.obj == obj)) {
+                if (prev == null) {
+                    mMessages = n;
+                } else {
+                    prev.next = n;
+                }
+                p.recycle();
+            } else {
+                prev = p;
+            }
+            p = n;
+        }
+    }
+
+    synchronized void removeCallbacks(Handler h, Runnable r) {
+        Message prev = null;
+        Message p = mMessages;
+        while (p != null) {
+            Message n = p.next;
+            if (p.target == h && p.callback == r) {
+                if (prev == null) {
+                    mMessages = n;
+                } else {
+                    prev.next = n;
+                }
+                p.recycle();
+            } else {
+                prev = p;
+            }
+            p = n;
+        }
+    }
+
+    synchronized void quit() {
+        mQuitting = true;
+        notifyAll();
+    }
+}
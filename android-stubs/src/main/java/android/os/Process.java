@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * JVM上使用的替代实现, JVM上不调整线程优先级
+ */
+
+public class Process {
+
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static void setThreadPriority(int priority) {
+    }
+
+    public static void setThreadPriority(int tid, int priority) {
+    }
+
+    public static int myTid() {
+        return (int) Thread.currentThread().getId();
+    }
+}
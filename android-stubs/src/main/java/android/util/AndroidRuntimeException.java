@@ -0,0 +1,23 @@
+package android.util;
+
+/**
+ * JVM上使用的替代实现
+ */
+
+public class AndroidRuntimeException extends RuntimeException {
+
+    public AndroidRuntimeException() {
+    }
+
+    public AndroidRuntimeException(String name) {
+        super(name);
+    }
+
+    public AndroidRuntimeException(String name, Throwable cause) {
+        super(name, cause);
+    }
+
+    public AndroidRuntimeException(Exception cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,53 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * JVM上使用的替代实现, 在当前Looper上以固定的16ms间隔模拟垂直同步信号
+ */
+
+public final class Choreographer {
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    private static final long FRAME_INTERVAL_MILLIS = 16;
+
+    private static final ThreadLocal<Choreographer> sThreadInstance = new ThreadLocal<Choreographer>() {
+        @Override
+        protected Choreographer initialValue() {
+            Looper looper = Looper.myLooper();
+            if (looper == null) {
+                throw new IllegalStateException("The current thread must have a looper!");
+            }
+            return new Choreographer(looper);
+        }
+    };
+
+    private final Handler mHandler;
+
+    private Choreographer(Looper looper) {
+        mHandler = new Handler(looper);
+    }
+
+    public static Choreographer getInstance() {
+        return sThreadInstance.get();
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        postFrameCallbackDelayed(callback, 0);
+    }
+
+    public void postFrameCallbackDelayed(final FrameCallback callback, long delayMillis) {
+        long now = System.nanoTime() / 1000000L;
+        long nextFrame = (now / FRAME_INTERVAL_MILLIS + 1) * FRAME_INTERVAL_MILLIS;
+        mHandler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                callback.doFrame(System.nanoTime());
+            }
+        }, nextFrame + delayMillis);
+    }
+}
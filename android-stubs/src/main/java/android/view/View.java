@@ -0,0 +1,14 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * JVM上使用的替代实现, 只包含jesonmvp用到的方法
+ */
+
+public class View {
+
+    public final Context getContext() {
+        return null;
+    }
+}
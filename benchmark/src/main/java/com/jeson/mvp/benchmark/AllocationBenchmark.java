@@ -0,0 +1,115 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Handler;
+import android.os.Message;
+
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.model.impl.RingBufferExecutor;
+import com.jeson.mvp.utils.TaskMetrics;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个消息的内存分配, 需要配合gc profiler(-prof gc)运行, 看gc.alloc.rate.norm(每个消息分配的字节数)<br/>
+ * dispatchAllocations为测量期间BasicModel.getDispatchAllocationCount()的增量, RING_DIRECT模式下应该为0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationBenchmark {
+
+    private static final int BURST = 64;
+
+    /**
+     * DEFAULT: 单线程, 经过主线程派发; DIRECT: 单线程, 直接派发; RING_DIRECT: RingBufferExecutor, 直接派发
+     */
+    @Param({"DEFAULT", "DIRECT", "RING_DIRECT"})
+    public String config;
+
+    /**
+     * 是否开启TaskMetrics统计, 开启后每个消息的分配不应该增加
+     */
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private final Counter mHandled = new Counter();
+    private BenchModel mModel;
+    private Handler mWorkHandler;
+    private long mSent;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Allocations {
+        public long dispatchAllocations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            dispatchAllocations = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MainLooper.start();
+        if ("RING_DIRECT".equals(config)) {
+            mModel = new RingBenchModel();
+        } else {
+            mModel = new BenchModel(BasicModel.SINGLE_THREAD);
+        }
+        mModel.setDirectDispatch(!"DEFAULT".equals(config));
+        if (metrics) {
+            mModel.setTaskMetrics(new TaskMetrics());
+        }
+        mWorkHandler = mModel.getWorkHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mModel.onDestroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void dispatch(Allocations allocations) {
+        long before = mModel.getDispatchAllocationCount();
+        for (int i = 0; i < BURST; i++) {
+            mWorkHandler.sendMessage(Message.obtain(mWorkHandler, BenchModel.MSG_COUNT, mHandled));
+        }
+        mSent += BURST;
+        mHandled.await(mSent);
+        allocations.dispatchAllocations += mModel.getDispatchAllocationCount() - before;
+    }
+
+    private static class RingBenchModel extends BenchModel {
+
+        RingBenchModel() {
+            super(BasicModel.SINGLE_THREAD);
+        }
+
+        @Override
+        protected ExecutorService createExecutorService(int nThreads) {
+            return new RingBufferExecutor(nThreads, 1024);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Message;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.model.impl.PriorityExecutor;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.scheduler.impl.LooperScheduler;
+
+/**
+ * 基准测试使用的model, 处理消息时只做计数或者回调presenter, 测量的是框架本身的派发开销
+ */
+
+public class BenchModel extends BasicModel {
+
+    /**
+     * obj为Counter, 在子线程中计数
+     */
+    static final int MSG_COUNT = 1;
+    /**
+     * 在子线程中通过工作回调回调presenter的onSuccess()
+     */
+    static final int MSG_CALLBACK = 2;
+
+    /**
+     * 不经过Handler时使用的回调任务, 基准测试同一时间只有一个回调在处理中
+     */
+    private final Runnable mCallbackTask = new Runnable() {
+        @Override
+        public void run() {
+            IBasicHandler.Callback callback = getWorkingCallback();
+            if (callback != null) {
+                callback.onSuccess(mCallbackDataType, null);
+            }
+        }
+    };
+    private volatile int mCallbackDataType;
+
+    public BenchModel(int nThreads) {
+        super(nThreads);
+    }
+
+    public BenchModel(int nThreads, IScheduler scheduler) {
+        super(nThreads, scheduler);
+    }
+
+    /**
+     * 在子线程回调presenter的onSuccess(), Looper调度器通过getWorkHandler()发送消息, 其他调度器直接提交到线程池
+     */
+    void requestCallback(int dataType) {
+        if (getScheduler() instanceof LooperScheduler) {
+            android.os.Handler handler = getWorkHandler();
+            handler.sendMessage(Message.obtain(handler, MSG_CALLBACK, dataType, 0));
+        } else {
+            mCallbackDataType = dataType;
+            executeWithPriority(mCallbackTask, PriorityExecutor.PRIORITY_DEFAULT);
+        }
+    }
+
+    @Override
+    public android.os.Handler getWorkHandler() {
+        return super.getWorkHandler();
+    }
+
+    @Override
+    public void setDirectDispatch(boolean directDispatch) {
+        super.setDirectDispatch(directDispatch);
+    }
+
+    @Override
+    protected void handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_COUNT:
+                ((Counter) msg.obj).incrementAndGet();
+                break;
+            case MSG_CALLBACK:
+                IBasicHandler.Callback callback = getWorkingCallback();
+                if (callback != null) {
+                    callback.onSuccess(msg.arg1, null);
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.presenter.impl.BasicPresenter;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.view.IBasicView;
+
+/**
+ * 基准测试使用的presenter, onSuccess()回调到达主线程时更新view并计数
+ */
+
+public class BenchPresenter extends BasicPresenter<IBasicView, BenchModel> {
+
+    private final Counter mDelivered;
+
+    BenchPresenter(IBasicView view, BenchModel model, IScheduler scheduler, Counter delivered) {
+        super(view, model, scheduler);
+        mDelivered = delivered;
+    }
+
+    IBasicHandler.Callback getWorkCallback() {
+        return mWorkCallback;
+    }
+
+    @Override
+    public void setBatchDelivery(boolean batchDelivery) {
+        super.setBatchDelivery(batchDelivery);
+    }
+
+    @Override
+    protected void onSuccessCalledOnUIThread(int dataType, Bundle data) {
+        getBasicView().onDataUpdate(data);
+        mDelivered.incrementAndGet();
+    }
+}
@@ -0,0 +1,23 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.view.IBasicView;
+
+/**
+ * 基准测试使用的view, 只记录最后一次更新的数据
+ */
+
+public class BenchView implements IBasicView {
+
+    private volatile Bundle mData;
+
+    @Override
+    public void onDataUpdate(Bundle data) {
+        mData = data;
+    }
+
+    Bundle getData() {
+        return mData;
+    }
+}
@@ -0,0 +1,99 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Bundle;
+import android.os.Looper;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.scheduler.impl.LooperScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 子线程到主线程的回调延迟<br/>
+ * workCallback: 基准测试线程作为model的子线程调用mWorkCallback.onSuccess(), 到presenter的onSuccessCalledOnUIThread()运行的时间<br/>
+ * roundTrip: model提交任务, 在子线程回调, 到view收到数据的完整时间<br/>
+ * LOOPER使用主Looper作为主线程, EVENT_LOOP使用JVM的{@link EventLoopScheduler}
+ */
+
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallbackHopBenchmark {
+
+    private static final int DATA_TYPE = 1;
+
+    /**
+     * 是否按帧批量派发, 开启后延迟受帧间隔(16ms)影响
+     */
+    @Param({"false", "true"})
+    public boolean batchDelivery;
+
+    @Param({"LOOPER", "EVENT_LOOP"})
+    public String scheduler;
+
+    private final Counter mDelivered = new Counter();
+    private final Bundle mData = new Bundle();
+    private BenchModel mModel;
+    private BenchPresenter mPresenter;
+    private IBasicHandler.Callback mWorkCallback;
+    private EventLoopScheduler mEventLoop;
+    private long mSent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        IScheduler mainScheduler;
+        if ("EVENT_LOOP".equals(scheduler)) {
+            mainScheduler = mEventLoop = new EventLoopScheduler("event-loop");
+        } else {
+            MainLooper.start();
+            mainScheduler = new LooperScheduler(Looper.getMainLooper());
+        }
+        mModel = new BenchModel(BasicModel.SINGLE_THREAD, mainScheduler);
+        mModel.setDirectDispatch(true);
+        mPresenter = new BenchPresenter(new BenchView(), mModel, mainScheduler, mDelivered);
+        mPresenter.setBatchDelivery(batchDelivery);
+        mWorkCallback = mPresenter.getWorkCallback();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mModel.onDestroy();
+        if (mEventLoop != null) {
+            mEventLoop.quit();
+        }
+    }
+
+    @Benchmark
+    public void workCallback() {
+        long target = ++mSent;
+        mWorkCallback.onSuccess(DATA_TYPE, mData);
+        mDelivered.await(target);
+    }
+
+    @Benchmark
+    public void roundTrip() {
+        long target = ++mSent;
+        mModel.requestCallback(DATA_TYPE);
+        mDelivered.await(target);
+    }
+}
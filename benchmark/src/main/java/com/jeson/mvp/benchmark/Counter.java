@@ -0,0 +1,24 @@
+package com.jeson.mvp.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 完成计数, 子线程或主线程完成一次处理时加1, 基准测试线程自旋等待计数达到目标值
+ */
+
+final class Counter extends AtomicLong {
+
+    /**
+     * 自旋多少次之后让出CPU, 避免基准测试线程比处理线程多时互相抢占
+     */
+    private static final int SPIN_TRIES = 1000;
+
+    void await(long target) {
+        int spins = 0;
+        while (get() < target) {
+            if (++spins > SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+    }
+}
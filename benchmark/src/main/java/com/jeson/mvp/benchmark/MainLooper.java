@@ -0,0 +1,67 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 在JVM中代替Android的主线程, 启动一个线程运行主Looper, 每个JVM只启动一次
+ */
+
+public final class MainLooper {
+
+    private static Thread sThread;
+
+    private MainLooper() {
+    }
+
+    /**
+     * 启动主线程, 返回时主Looper已经可以使用
+     */
+    public static synchronized void start() {
+        if (sThread != null) {
+            return;
+        }
+        final CountDownLatch prepared = new CountDownLatch(1);
+        sThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Looper.prepareMainLooper();
+                prepared.countDown();
+                Looper.loop();
+            }
+        }, "main");
+        sThread.setDaemon(true);
+        sThread.start();
+        await(prepared);
+    }
+
+    /**
+     * 在主线程运行一段代码并等待运行结束, 用于只能在主线程调用的方法
+     */
+    public static void runAndWait(final Runnable runnable) {
+        start();
+        final CountDownLatch done = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        await(done);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
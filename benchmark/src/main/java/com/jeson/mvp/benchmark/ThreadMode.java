@@ -0,0 +1,39 @@
+package com.jeson.mvp.benchmark;
+
+import com.jeson.mvp.model.impl.BasicModel;
+
+/**
+ * 基准测试参数中的线程模式名称, 对应BasicModel构造方法的参数
+ */
+
+final class ThreadMode {
+
+    private ThreadMode() {
+    }
+
+    /**
+     * @param mode MAIN_THREAD, SINGLE_THREAD, CACHED_THREAD, SHARED_THREAD, SHARED_SINGLE_THREAD, ADAPTIVE_THREAD或者FIXED_n
+     * @return BasicModel构造方法的参数
+     */
+    static int parse(String mode) {
+        switch (mode) {
+            case "MAIN_THREAD":
+                return BasicModel.MAIN_THREAD;
+            case "SINGLE_THREAD":
+                return BasicModel.SINGLE_THREAD;
+            case "CACHED_THREAD":
+                return BasicModel.CACHED_THREAD;
+            case "SHARED_THREAD":
+                return BasicModel.SHARED_THREAD;
+            case "SHARED_SINGLE_THREAD":
+                return BasicModel.SHARED_SINGLE_THREAD;
+            case "ADAPTIVE_THREAD":
+                return BasicModel.ADAPTIVE_THREAD;
+            default:
+                if (mode.startsWith("FIXED_")) {
+                    return Integer.parseInt(mode.substring("FIXED_".length()));
+                }
+                throw new IllegalArgumentException("unknown thread mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Handler;
+import android.os.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各线程模式下的消息吞吐量, 分数为每毫秒处理的消息数量<br/>
+ * FIXED_4和FIXED_16为使用4个和16个子线程的model; producersN为N个线程同时发送消息, 每次连续发送BURST个消息后等待全部处理完成
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThroughputBenchmark {
+
+    private static final int BURST = 64;
+
+    @Param({"MAIN_THREAD", "SINGLE_THREAD", "CACHED_THREAD", "FIXED_4", "FIXED_16", "SHARED_THREAD", "SHARED_SINGLE_THREAD", "ADAPTIVE_THREAD"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean directDispatch;
+
+    private BenchModel mModel;
+    private Handler mWorkHandler;
+
+    /**
+     * 每个发送线程自己的计数
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+        private final Counter mHandled = new Counter();
+        private long mSent;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MainLooper.start();
+        mModel = new BenchModel(ThreadMode.parse(mode));
+        mModel.setDirectDispatch(directDispatch);
+        mWorkHandler = mModel.getWorkHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mModel.onDestroy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BURST)
+    public void producers1(Producer producer) {
+        burst(producer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BURST)
+    public void producers4(Producer producer) {
+        burst(producer);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @OperationsPerInvocation(BURST)
+    public void producers16(Producer producer) {
+        burst(producer);
+    }
+
+    private void burst(Producer producer) {
+        for (int i = 0; i < BURST; i++) {
+            mWorkHandler.sendMessage(Message.obtain(mWorkHandler, BenchModel.MSG_COUNT, producer.mHandled));
+        }
+        producer.mSent += BURST;
+        producer.mHandled.await(producer.mSent);
+    }
+}
@@ -0,0 +1,67 @@
+package com.jeson.mvp.benchmark;
+
+import android.os.Handler;
+import android.os.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务提交延迟: 从调用getWorkHandler().sendMessage()到model的handleMessage()开始在子线程运行的时间
+ */
+
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkSubmissionBenchmark {
+
+    @Param({"MAIN_THREAD", "SINGLE_THREAD", "CACHED_THREAD", "SHARED_THREAD"})
+    public String mode;
+
+    /**
+     * 是否跳过主线程直接提交到线程池
+     */
+    @Param({"false", "true"})
+    public boolean directDispatch;
+
+    private final Counter mHandled = new Counter();
+    private BenchModel mModel;
+    private Handler mWorkHandler;
+    private long mSent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MainLooper.start();
+        mModel = new BenchModel(ThreadMode.parse(mode));
+        mModel.setDirectDispatch(directDispatch);
+        mWorkHandler = mModel.getWorkHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mModel.onDestroy();
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        long target = ++mSent;
+        mWorkHandler.sendMessage(Message.obtain(mWorkHandler, BenchModel.MSG_COUNT, mHandled));
+        mHandled.await(target);
+    }
+}
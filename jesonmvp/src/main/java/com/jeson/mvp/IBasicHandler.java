@@ -39,4 +39,54 @@ public interface IBasicHandler {
         void onFailed(int dataType, Bundle data);
 
     }
+
+    /**
+     * 类型化的回调接口, 与Callback作用一致, 数据不再使用Bundle传递, 而是直接传递指定类型的对象<br/>
+     * 数据对象可以是{@link com.jeson.mvp.utils.Payload}, 以便复用对象并在线程之间安全的传递
+     *
+     * @param <D> 数据类型
+     */
+    interface TypedCallback<D> {
+        void call(int dataType, D data);
+
+        void onError(int dataType, D data);
+
+        void onSuccess(int dataType, D data);
+
+        void onFailed(int dataType, D data);
+
+    }
+
+    /**
+     * 流式任务的订阅, 用于流量控制和取消
+     */
+    interface Subscription {
+        /**
+         * 请求n个数据块, 请求会累加, 数据源最多只会发出已请求数量的数据块
+         *
+         * @param n 请求的数量, 必须大于0
+         */
+        void request(int n);
+
+        /**
+         * 取消订阅, 之后不再回调, 数据源会在子线程中被关闭
+         */
+        void cancel();
+    }
+
+    /**
+     * 流式任务的回调, 先回调onSubscribe(), 之后按请求的数量回调onNext(), 最后以onComplete()或者onError()结束
+     *
+     * @param <D> 数据块类型
+     */
+    interface StreamCallback<D> {
+        void onSubscribe(int dataType, Subscription subscription);
+
+        void onNext(int dataType, D chunk);
+
+        void onComplete(int dataType);
+
+        void onError(int dataType, Bundle data);
+
+    }
 }
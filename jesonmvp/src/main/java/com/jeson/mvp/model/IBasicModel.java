@@ -1,7 +1,10 @@
 package com.jeson.mvp.model;
 
+import android.os.Bundle;
+
 import com.jeson.mvp.IBasicHandler;
 import com.jeson.mvp.ILifeRecycle;
+import com.jeson.mvp.utils.StateSnapshot;
 
 /**
  * Created by jeson on 2017/5/5.
@@ -13,4 +16,58 @@ public interface IBasicModel extends IBasicHandler, ILifeRecycle {
      * 设置工作回调
      */
     void setWorkCallback(IBasicHandler.Callback callback);
+
+    /**
+     * 支持类型化回调的model, 可选实现, BasicTypedPresenter要求model实现这个接口
+     */
+    interface Typed {
+        /**
+         * 设置类型化的工作回调
+         */
+        void setTypedWorkCallback(IBasicHandler.TypedCallback<?> callback);
+    }
+
+    /**
+     * 支持流式任务的model, 可选实现, BasicPresenter.requestStream()要求model实现这个接口
+     */
+    interface Streaming {
+        /**
+         * 开始一个流式任务, 数据块按callback请求的数量分批发出
+         *
+         * @param callback 流式任务的回调
+         * @param taskType 任务类型
+         * @param data     任务执行时所需的数据
+         */
+        void handleStream(IBasicHandler.StreamCallback<?> callback, int taskType, Bundle data);
+    }
+
+    /**
+     * 可以预热的model, 可选实现, 没有实现时presenter跳过预热
+     */
+    interface WarmUp {
+        /**
+         * 预热, 提前初始化第一次使用时才会创建的资源(例如线程池), 由presenter在主线程空闲时调用
+         */
+        void warmUp();
+    }
+
+    /**
+     * 可以保存和恢复状态的model, 可选实现, 没有实现时presenter只保存自己的状态
+     */
+    interface Stateful {
+        /**
+         * 保存状态, 由presenter在宿主Activity的onSaveInstanceState()中调用, 在主线程运行<br/>
+         * 状态通过{@link com.jeson.mvp.utils.BundleCodec}编码, 只能放入它支持的值
+         *
+         * @param outState 当前model的状态
+         */
+        void onSaveState(Bundle outState);
+
+        /**
+         * 恢复状态, 由presenter在onCreate()之前调用, 这时还没有读取和解码
+         *
+         * @param snapshot 上一次保存的状态, 没有保存时为null
+         */
+        void onRestoreState(StateSnapshot snapshot);
+    }
 }
@@ -0,0 +1,244 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Debug;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 根据负载自动调整线程数量的线程池, 线程数量在[minThreads, maxThreads]之间变化<br/>
+ * 每隔一个调整周期统计任务的吞吐量, 排队时间, 运行时间和CPU时间:<br/>
+ * 1. 排队时间超过目标延迟且队列中还有任务时, 按吞吐量爬山调整: 上次调整提高了吞吐量则继续同方向调整, 降低了则回退,
+ * 没有明显变化说明瓶颈不在线程数量(例如CPU已经饱和), 减少线程<br/>
+ * 2. 没有积压时, 线程数量逐渐减少到 CPU核数 * 运行时间 / CPU时间, 即任务阻塞的比例越高保留的线程越多, 每个周期最多减少一个线程<br/>
+ * 空闲超过keepAlive的线程会被释放, 没有任务时不占用线程
+ */
+
+public class AdaptiveExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 默认的目标排队延迟
+     */
+    public static final long DEFAULT_TARGET_LATENCY_MILLIS = 10;
+    /**
+     * 调整线程数量的周期
+     */
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    /**
+     * 空闲线程的存活时间
+     */
+    private static final long KEEP_ALIVE_SECONDS = 10;
+    /**
+     * 吞吐量变化超过这个比例才认为调整有效果
+     */
+    private static final double THROUGHPUT_TOLERANCE = 0.05;
+
+    private final int mMinThreads;
+    private final int mMaxThreads;
+    private final int mCpuCount;
+    private final long mTargetLatencyNanos;
+    /**
+     * 当前周期的统计
+     */
+    private final AtomicLong mTaskCount = new AtomicLong();
+    private final AtomicLong mQueueWaitNanos = new AtomicLong();
+    private final AtomicLong mWallNanos = new AtomicLong();
+    private final AtomicLong mCpuNanos = new AtomicLong();
+    /**
+     * 下一次调整的时间, 由提交任务或者完成任务的线程竞争执行调整
+     */
+    private final AtomicLong mNextAdjustNanos;
+    /**
+     * 上一个周期的线程数量和吞吐量, 只在adjust()中读写, adjust()通过mNextAdjustNanos串行执行
+     */
+    private int mLastSize = 0;
+    private double mLastThroughput = 0;
+    private long mLastAdjustNanos;
+
+    /**
+     * @param minThreads 最少线程数量, 负载较低时线程数量逐渐减少到这个值, 空闲的线程仍然会被释放
+     * @param maxThreads 最多线程数量
+     */
+    public AdaptiveExecutor(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, DEFAULT_TARGET_LATENCY_MILLIS);
+    }
+
+    /**
+     * @param minThreads          最少线程数量
+     * @param maxThreads          最多线程数量
+     * @param targetLatencyMillis 目标排队延迟, 平均排队时间超过这个值时增加线程
+     */
+    public AdaptiveExecutor(int minThreads, int maxThreads, long targetLatencyMillis) {
+        super(Math.max(1, minThreads), Math.max(1, minThreads), KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new AdaptiveThreadFactory());
+        if (minThreads < 0 || maxThreads < Math.max(1, minThreads)) {
+            throw new IllegalArgumentException("invalid thread bounds: [" + minThreads + ", " + maxThreads + "]");
+        }
+        if (targetLatencyMillis <= 0) {
+            throw new IllegalArgumentException("targetLatencyMillis must be positive: " + targetLatencyMillis);
+        }
+        mMinThreads = minThreads;
+        mMaxThreads = maxThreads;
+        mCpuCount = Runtime.getRuntime().availableProcessors();
+        mTargetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        mLastAdjustNanos = System.nanoTime();
+        mNextAdjustNanos = new AtomicLong(mLastAdjustNanos + ADJUST_INTERVAL_NANOS);
+        allowCoreThreadTimeOut(true);
+    }
+
+    public int getMinThreads() {
+        return mMinThreads;
+    }
+
+    public int getMaxThreads() {
+        return mMaxThreads;
+    }
+
+    /**
+     * 获取当前的目标线程数量, 实际的线程数量通过getPoolSize()获取
+     */
+    public int getTargetThreads() {
+        return getCorePoolSize();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        // 所有线程都阻塞时不会有任务完成, 提交任务时也需要检查是否需要调整
+        maybeAdjust();
+        super.execute(command instanceof MeasuredTask ? command : new MeasuredTask(command));
+    }
+
+    /**
+     * 任务在队列中被包装为MeasuredTask, 按原始任务查找, 使TaskHandle.cancel()可以把任务从队列中移除
+     */
+    @Override
+    public boolean remove(Runnable task) {
+        for (Runnable queued : getQueue()) {
+            if (queued == task || (queued instanceof MeasuredTask && ((MeasuredTask) queued).mCommand == task)) {
+                return super.remove(queued);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 返回的是原始任务, 而不是统计用的包装
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        for (int i = 0; i < pending.size(); i++) {
+            Runnable task = pending.get(i);
+            if (task instanceof MeasuredTask) {
+                pending.set(i, ((MeasuredTask) task).mCommand);
+            }
+        }
+        return pending;
+    }
+
+    private void maybeAdjust() {
+        long next = mNextAdjustNanos.get();
+        long now = System.nanoTime();
+        if (now - next >= 0 && mNextAdjustNanos.compareAndSet(next, now + ADJUST_INTERVAL_NANOS)) {
+            adjust(now);
+        }
+    }
+
+    private void adjust(long now) {
+        long tasks = mTaskCount.getAndSet(0);
+        long queueWait = mQueueWaitNanos.getAndSet(0);
+        long wall = mWallNanos.getAndSet(0);
+        long cpu = mCpuNanos.getAndSet(0);
+        int current = getCorePoolSize();
+        boolean backlog = !getQueue().isEmpty();
+        double throughput = (double) tasks / Math.max(1, now - mLastAdjustNanos);
+        int target;
+        if (tasks == 0) {
+            // 整个周期没有任务完成: 有积压说明所有线程都阻塞了, 否则说明已经空闲
+            target = backlog ? current + 1 : mMinThreads;
+        } else if (backlog && queueWait / tasks > mTargetLatencyNanos) {
+            // 上个周期没有调整时先尝试增加线程, 已经达到最大数量时尝试减少
+            int direction = current >= mMaxThreads ? -1 : 1;
+            if (mLastSize != 0 && mLastSize != current) {
+                boolean grew = current > mLastSize;
+                if (throughput > mLastThroughput * (1 + THROUGHPUT_TOLERANCE)) {
+                    direction = grew ? 1 : -1;
+                } else if (throughput < mLastThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+                    direction = grew ? -1 : 1;
+                } else {
+                    direction = -1;
+                }
+            }
+            target = current + direction * Math.max(1, direction > 0 ? current / 2 : current / 4);
+        } else {
+            // CPU时间不可用时不按阻塞比例减少, 只依靠空闲超时释放线程
+            int ideal = cpu > 0 ? (int) Math.min(mMaxThreads, mCpuCount * wall / cpu) : current;
+            target = Math.min(current, Math.max(ideal, current - 1));
+        }
+        target = Math.max(Math.max(1, mMinThreads), Math.min(mMaxThreads, target));
+        mLastSize = current;
+        mLastThroughput = throughput;
+        mLastAdjustNanos = now;
+        // 同时调整最大线程数量, 积压时多余的线程不会空闲, 需要超出最大数量才会在完成当前任务后退出
+        if (target > current) {
+            setMaximumPoolSize(target);
+            setCorePoolSize(target);
+        } else if (target < current) {
+            setCorePoolSize(target);
+            setMaximumPoolSize(target);
+        }
+    }
+
+    /**
+     * 统计排队时间, 运行时间和CPU时间的任务
+     */
+    private class MeasuredTask implements Runnable {
+
+        private final Runnable mCommand;
+        private final long mEnqueueNanos;
+
+        MeasuredTask(Runnable command) {
+            mCommand = command;
+            mEnqueueNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long cpuStart = Debug.threadCpuTimeNanos();
+            try {
+                mCommand.run();
+            } finally {
+                long cpuEnd = Debug.threadCpuTimeNanos();
+                long end = System.nanoTime();
+                mQueueWaitNanos.addAndGet(start - mEnqueueNanos);
+                mWallNanos.addAndGet(end - start);
+                if (cpuStart >= 0 && cpuEnd >= cpuStart) {
+                    mCpuNanos.addAndGet(cpuEnd - cpuStart);
+                }
+                mTaskCount.incrementAndGet();
+                maybeAdjust();
+            }
+        }
+    }
+
+    private static class AdaptiveThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jeson-mvp-adaptive-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
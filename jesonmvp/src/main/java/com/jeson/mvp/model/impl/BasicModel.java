@@ -3,19 +3,37 @@ package com.jeson.mvp.model.impl;
 import android.os.Bundle;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
+import android.util.SparseIntArray;
 
 import com.jeson.mvp.IBasicHandler;
 import com.jeson.mvp.model.IBasicModel;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.scheduler.Schedulers;
+import com.jeson.mvp.scheduler.impl.LooperScheduler;
+import com.jeson.mvp.utils.Payload;
+import com.jeson.mvp.utils.PayloadPool;
+import com.jeson.mvp.utils.StartupMetrics;
+import com.jeson.mvp.utils.StateSnapshot;
+import com.jeson.mvp.utils.TaskMetrics;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * Created by jeson on 2017/5/10.
  */
 
-public abstract class BasicModel implements IBasicModel {
+public abstract class BasicModel implements IBasicModel, IBasicModel.Typed, IBasicModel.Streaming,
+        IBasicModel.WarmUp, IBasicModel.Stateful {
 
     private static final String TAG = "BasicModel";
     /**
@@ -30,26 +48,199 @@ public abstract class BasicModel implements IBasicModel {
      * 单线程
      */
     public static final int SINGLE_THREAD = 1;
+    /**
+     * 使用进程内共享的线程池, 不限制当前model同时运行的任务数量
+     */
+    public static final int SHARED_THREAD = -2;
+    /**
+     * 使用进程内共享的线程池, 当前model的任务按提交顺序串行执行, 与SINGLE_THREAD的执行顺序一致
+     */
+    public static final int SHARED_SINGLE_THREAD = -3;
+    /**
+     * 根据负载自动调整线程数量, 使用{@link AdaptiveExecutor}, 线程数量在1到CPU核数的4倍之间(至少为4), 空闲的线程会被释放
+     */
+    public static final int ADAPTIVE_THREAD = -4;
+    /**
+     * 按键串行, 使用{@link KeyedExecutor}, 键相同的消息按发送顺序依次执行, 键不同的消息在CPU核数个线程中并行执行, 消息的键由getTaskKey()决定;
+     * 通过getWorkHandler().post()提交的Runnable同样经过getTaskKey(), 默认键为0, 与没有设置arg1的消息一起按提交顺序依次执行
+     */
+    public static final int KEYED_THREAD = -5;
+    /**
+     * 任务因为线程池队列已满被丢弃时, onError()回调的data中这个键的值为true
+     */
+    public static final String KEY_REJECTED = "jeson_mvp_rejected";
+    /**
+     * 流式任务出错时, onError()回调的data中这个键的值为出错的异常
+     */
+    public static final String KEY_STREAM_ERROR = "jeson_mvp_stream_error";
     /**
      * 标记当前Model是否被销毁
      */
-    private boolean isDestroyed = false;
+    private volatile boolean isDestroyed = false;
     /**
-     * 线程池
+     * 构造方法传入的线程数量, 第一次使用线程池时按这个值创建
      */
-    private ExecutorService mExecutorService;
+    private final int mThreadCount;
     /**
-     * 用于子类传送消息, 运行在主线程, handleMessage()会推送至线程池中运行
+     * 线程池是否已经创建, MAIN_THREAD模式下创建之后线程池仍然为null
      */
-    private android.os.Handler mWorkHandler;
+    private volatile boolean isExecutorCreated = false;
     /**
-     * 用于子类传送消息, 运行在主线程, handleMessage()会在主线程中运行
+     * 线程池, 第一次使用或者预热时创建
      */
-    private android.os.Handler mUIHandler;
+    private volatile ExecutorService mExecutorService;
+    /**
+     * 是否直接派发, 为true时通过WorkHandler发送的不需要延迟的消息会直接提交到线程池
+     */
+    private volatile boolean isDirectDispatch = false;
+    /**
+     * 默认的消息载体对象池容量
+     */
+    private static final int DEFAULT_CARRIER_POOL_SIZE = 64;
+    /**
+     * 消息载体对象池, 容量取决于线程池, 与线程池一起创建
+     */
+    private volatile PayloadPool<Runnable> mCarrierPool;
+    /**
+     * 主线程调度器
+     */
+    private final IScheduler mScheduler;
+    /**
+     * 用于子类传送消息, 运行在主线程, handleMessage()会推送至线程池中运行, 第一次使用时创建
+     */
+    private volatile android.os.Handler mWorkHandler;
+    /**
+     * 用于子类传送消息, 运行在主线程, handleMessage()会在主线程中运行, 第一次使用时创建
+     */
+    private volatile android.os.Handler mUIHandler;
     /**
      * 工作回调
      */
     private IBasicHandler.Callback mWorkingCallback;
+    /**
+     * 类型化的工作回调
+     */
+    private IBasicHandler.TypedCallback<Object> mTypedWorkingCallback;
+    /**
+     * 根据消息的what设置的任务优先级, 只在线程池为PriorityExecutor时生效, 第一次设置时创建
+     */
+    private SparseIntArray mTaskPriorities;
+    /**
+     * 同一个model类的所有实例默认共用一个SingleFlight, 以便合并不同presenter发起的相同任务
+     */
+    private static final ConcurrentMap<Class<?>, SingleFlight> sSingleFlights = new ConcurrentHashMap<>();
+    /**
+     * 合并相同任务
+     */
+    private volatile SingleFlight mSingleFlight;
+    /**
+     * getData()结果的缓存, 为null时不缓存
+     */
+    private volatile ResultCache mResultCache;
+    /**
+     * 上一次保存的状态, 第一次读取时才解码
+     */
+    private volatile StateSnapshot mSavedState;
+    /**
+     * 持久化的结果存储, 为null时不保存
+     */
+    private volatile ResultStore mResultStore;
+    /**
+     * 任务的耗时统计, 为null时不统计
+     */
+    private volatile TaskMetrics mTaskMetrics;
+    /**
+     * 包装类型化的工作回调, 当前任务被取消后不再回调
+     */
+    private final IBasicHandler.TypedCallback<Object> mCancellableTypedCallback = new IBasicHandler.TypedCallback<Object>() {
+        @Override
+        public void call(int dataType, Object data) {
+            IBasicHandler.TypedCallback<Object> callback = mTypedWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.call(dataType, data);
+            }
+        }
+
+        @Override
+        public void onError(int dataType, Object data) {
+            IBasicHandler.TypedCallback<Object> callback = mTypedWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.onError(dataType, data);
+            }
+        }
+
+        @Override
+        public void onSuccess(int dataType, Object data) {
+            IBasicHandler.TypedCallback<Object> callback = mTypedWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.onSuccess(dataType, data);
+            }
+        }
+
+        @Override
+        public void onFailed(int dataType, Object data) {
+            IBasicHandler.TypedCallback<Object> callback = mTypedWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.onFailed(dataType, data);
+            }
+        }
+    };
+    /**
+     * 在onPause()时取消的任务
+     */
+    private final Set<TaskHandle> mCancelOnPause = Collections.newSetFromMap(new ConcurrentHashMap<TaskHandle, Boolean>());
+    /**
+     * 在onStop()时取消的任务
+     */
+    private final Set<TaskHandle> mCancelOnStop = Collections.newSetFromMap(new ConcurrentHashMap<TaskHandle, Boolean>());
+    /**
+     * 在onDestroy()时取消的任务
+     */
+    private final Set<TaskHandle> mCancelOnDestroy = Collections.newSetFromMap(new ConcurrentHashMap<TaskHandle, Boolean>());
+    /**
+     * 通过WorkHandler发送的任务在哪个生命周期取消, 为null时不可取消
+     */
+    private volatile LifeStatus mWorkCancelOn;
+    /**
+     * 还没有结束的流式任务, model销毁时取消
+     */
+    private final Set<StreamSubscription<?>> mStreams = Collections.newSetFromMap(new ConcurrentHashMap<StreamSubscription<?>, Boolean>());
+    /**
+     * 包装工作回调, 当前任务被取消后不再回调
+     */
+    private final IBasicHandler.Callback mCancellableCallback = new IBasicHandler.Callback() {
+        @Override
+        public void call(int dataType, Bundle data) {
+            IBasicHandler.Callback callback = mWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.call(dataType, data);
+            }
+        }
+
+        @Override
+        public void onError(int dataType, Bundle data) {
+            IBasicHandler.Callback callback = mWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.onError(dataType, data);
+            }
+        }
+
+        @Override
+        public void onSuccess(int dataType, Bundle data) {
+            IBasicHandler.Callback callback = mWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.onSuccess(dataType, data);
+            }
+        }
+
+        @Override
+        public void onFailed(int dataType, Bundle data) {
+            IBasicHandler.Callback callback = mWorkingCallback;
+            if (callback != null && !TaskHandle.isCurrentCancelled()) {
+                callback.onFailed(dataType, data);
+            }
+        }
+    };
 
     /**
      * 默认model层开启1个子线程
@@ -59,39 +250,516 @@ public abstract class BasicModel implements IBasicModel {
     }
 
     /**
-     * 可以根据给的线程数量设置model层子线程数量, 如果参数值为CACHED_THREAD, 则使用自动调整线程数量, 如果参数值为SINGLE_THREAD, 则为单线程, 如果是其他值则使用指定的线程数量
+     * 可以根据给的线程数量设置model层子线程数量, 如果参数值为CACHED_THREAD, 则使用自动调整线程数量, 如果参数值为SINGLE_THREAD, 则为单线程, 如果是其他值则使用指定的线程数量<br/>
+     * 如果参数值为SHARED_THREAD或SHARED_SINGLE_THREAD, 则不再创建新的线程, 而是使用进程内共享的线程池{@link SharedScheduler}<br/>
+     * 如果参数值为ADAPTIVE_THREAD, 则根据任务的排队时间和阻塞比例自动调整线程数量<br/>
+     * 如果参数值为KEYED_THREAD, 则键相同的任务串行执行, 键不同的任务并行执行, 例如同一个会话的写操作需要按顺序执行, 不同会话之间互不影响
      *
      * @param nThreads
      */
     public BasicModel(int nThreads) {
+        this(nThreads, Schedulers.getMainScheduler());
+    }
+
+    /**
+     * 指定主线程调度器, 例如在JVM中运行时使用{@link com.jeson.mvp.scheduler.impl.EventLoopScheduler}<br/>
+     * 注意: getWorkHandler()和getUIHandler()只能在调度器为{@link LooperScheduler}时使用, 其他调度器需要通过submit()或者executeWithPriority()提交任务
+     *
+     * @param nThreads  线程数量, 参考BasicModel(int nThreads)
+     * @param scheduler 主线程调度器
+     */
+    public BasicModel(int nThreads, IScheduler scheduler) {
+        long start = System.nanoTime();
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler must not be null");
+        }
+        mScheduler = scheduler;
+        mThreadCount = nThreads;
+        StartupMetrics metrics = StartupMetrics.getDefault();
+        if (metrics != null) {
+            metrics.record(StartupMetrics.PHASE_MODEL_INIT, getClass(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 获取线程池, 第一次调用时创建
+     *
+     * @return 线程池, MAIN_THREAD模式下或者model销毁后返回null
+     */
+    private ExecutorService getExecutor() {
+        if (!isExecutorCreated) {
+            createExecutor(false);
+        }
+        return mExecutorService;
+    }
+
+    /**
+     * 创建线程池和消息载体对象池, model销毁后只创建对象池
+     *
+     * @param onIdle 是否在预热时创建
+     */
+    private synchronized void createExecutor(boolean onIdle) {
+        if (isExecutorCreated) {
+            return;
+        }
+        long start = System.nanoTime();
+        ExecutorService executor = isDestroyed ? null : createExecutorService(mThreadCount);
+        int carrierPoolSize = DEFAULT_CARRIER_POOL_SIZE;
+        if (executor instanceof RingBufferExecutor) {
+            // 正在排队和运行的消息都需要一个载体, 预先创建好, 稳定状态下不再创建对象
+            carrierPoolSize = ((RingBufferExecutor) executor).getCapacity() + Runtime.getRuntime().availableProcessors();
+        }
+        PayloadPool<Runnable> carrierPool = new PayloadPool<Runnable>(carrierPoolSize) {
+            @Override
+            protected Runnable create() {
+                return new Runnable();
+            }
+        };
+        if (executor instanceof RingBufferExecutor) {
+            carrierPool.prefill();
+        } else if (executor instanceof BoundedExecutor) {
+            ((BoundedExecutor) executor).setRejectionListener(mRejectionListener);
+            ((BoundedExecutor) executor).setScheduler(mScheduler); // BLOCK策略不会阻塞派发回调的线程
+        }
+        mCarrierPool = carrierPool;
+        mExecutorService = executor;
+        isExecutorCreated = true;
+        StartupMetrics metrics = StartupMetrics.getDefault();
+        if (metrics != null) {
+            metrics.record(onIdle ? StartupMetrics.PHASE_EXECUTOR_ON_IDLE : StartupMetrics.PHASE_EXECUTOR_ON_DEMAND,
+                    getClass(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 预热, 提前创建线程池并启动一个线程, 使第一个任务不需要等待线程池的创建; presenter开启setWarmUpOnIdle()后在主线程空闲时调用<br/>
+     * 子类可以重写这个方法预热自己的资源, 需要调用super.warmUp()
+     */
+    @Override
+    public void warmUp() {
+        if (!isExecutorCreated) {
+            createExecutor(true);
+        }
+        ExecutorService executor = mExecutorService;
+        if (executor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) executor).prestartCoreThread();
+        }
+    }
+
+    /**
+     * 获取派发消息时创建的对象数量, 包括消息载体和线程池队列节点<br/>
+     * 使用RingBufferExecutor并开启直接派发(setDirectDispatch(true))时, 稳定状态下这个数值应该保持不变
+     *
+     * @return 创建的对象数量
+     */
+    public long getDispatchAllocationCount() {
+        PayloadPool<Runnable> carrierPool = mCarrierPool;
+        long count = carrierPool == null ? 0 : carrierPool.getCreatedCount();
+        ExecutorService executor = mExecutorService;
+        if (executor instanceof RingBufferExecutor) {
+            count += ((RingBufferExecutor) executor).getAllocationCount();
+        }
+        return count;
+    }
+
+    /**
+     * 根据构造方法传入的线程数量创建线程池, 子类可以重写这个方法返回自定义的线程池, 例如{@link PriorityExecutor}, {@link RingBufferExecutor},
+     * 需要限制队列长度和线程数量时返回{@link BoundedExecutor}<br/>
+     * 这个方法在第一次提交任务或者预热时调用, 可能运行在任何线程, 此时子类的成员变量已经初始化
+     *
+     * @param nThreads 构造方法传入的线程数量
+     * @return 线程池, 返回null时任务运行在主线程
+     */
+    protected ExecutorService createExecutorService(int nThreads) {
         if (nThreads == MAIN_THREAD) {
-            // do nothing
+            return null;
+        } else if (nThreads == SHARED_THREAD) {
+            return SharedScheduler.getInstance().newLane(Integer.MAX_VALUE);
+        } else if (nThreads == SHARED_SINGLE_THREAD) {
+            return SharedScheduler.getInstance().newLane(1);
+        } else if (nThreads == ADAPTIVE_THREAD) {
+            return new AdaptiveExecutor(1, Math.max(4, Runtime.getRuntime().availableProcessors() * 4));
+        } else if (nThreads == KEYED_THREAD) {
+            return new KeyedExecutor(Math.max(2, Runtime.getRuntime().availableProcessors()));
         } else if (nThreads == CACHED_THREAD) {
-            mExecutorService = Executors.newCachedThreadPool();
+            return Executors.newCachedThreadPool();
         } else if (nThreads == SINGLE_THREAD) {
-            mExecutorService = Executors.newSingleThreadExecutor();
+            return Executors.newSingleThreadExecutor();
         } else {
-            mExecutorService = Executors.newFixedThreadPool(nThreads);
+            return Executors.newFixedThreadPool(nThreads);
         }
-        mWorkHandler = new Handler();
-        mUIHandler = new UIHandler();
     }
 
+    /**
+     * 获取主线程调度器
+     */
+    protected IScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * 获取发送任务的Handler, 需要调度器为{@link LooperScheduler}
+     *
+     * @return Handler, model被销毁后返回null
+     */
     protected android.os.Handler getWorkHandler() {
+        if (mWorkHandler == null) {
+            synchronized (this) {
+                if (mWorkHandler == null && !isDestroyed) {
+                    mWorkHandler = new Handler(getLooper());
+                }
+            }
+        }
         return mWorkHandler;
     }
 
+    /**
+     * 设置是否直接派发<br/>
+     * 默认情况下WorkHandler发送的消息会先进入主线程的消息队列, 再由主线程提交到线程池, 主线程繁忙时任务会被延迟;
+     * 开启后不需要延迟的消息(sendMessage(), post()等)可以在任何线程直接提交到线程池, 延迟的消息仍然经过主线程的消息队列<br/>
+     * 注意: 直接派发的消息不会进入消息队列, 因此removeMessages()和removeCallbacks()对它们无效; MAIN_THREAD模式下这个设置无效
+     *
+     * @param directDispatch 是否直接派发
+     */
+    protected void setDirectDispatch(boolean directDispatch) {
+        isDirectDispatch = directDispatch;
+    }
+
+    /**
+     * 获取在主线程处理消息的Handler, 需要调度器为{@link LooperScheduler}
+     *
+     * @return Handler, model被销毁后返回null
+     */
     protected android.os.Handler getUIHandler() {
+        if (mUIHandler == null) {
+            synchronized (this) {
+                if (mUIHandler == null && !isDestroyed) {
+                    mUIHandler = new UIHandler(getLooper());
+                }
+            }
+        }
         return mUIHandler;
     }
 
+    private Looper getLooper() {
+        if (!(mScheduler instanceof LooperScheduler)) {
+            throw new IllegalStateException("Handler is only available with a LooperScheduler, "
+                    + "use submit() or executeWithPriority() with " + mScheduler);
+        }
+        return ((LooperScheduler) mScheduler).getLooper();
+    }
+
     @Override
     public void setWorkCallback(Callback callback) {
         mWorkingCallback = callback;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setTypedWorkCallback(TypedCallback<?> callback) {
+        mTypedWorkingCallback = (TypedCallback<Object>) callback;
+    }
+
+    /**
+     * 获取类型化的工作回调, 在可取消的任务中使用时, 任务被取消后回调会被丢弃
+     *
+     * @param <D> 数据类型, 需要与presenter的数据类型一致
+     * @return 类型化的工作回调
+     */
+    @SuppressWarnings("unchecked")
+    protected <D> IBasicHandler.TypedCallback<D> getTypedWorkingCallback() {
+        return mTypedWorkingCallback == null ? null : (TypedCallback<D>) mCancellableTypedCallback;
+    }
+
+    /**
+     * 获取工作回调, 在可取消的任务中使用时, 任务被取消后回调会被丢弃
+     *
+     * @return 工作回调
+     */
     protected IBasicHandler.Callback getWorkingCallback() {
-        return mWorkingCallback;
+        return mWorkingCallback == null ? null : mCancellableCallback;
+    }
+
+    /**
+     * 提交一个可以取消的任务
+     *
+     * @param task     任务
+     * @param cancelOn 在哪个生命周期自动取消, 可以为ON_PAUSE, ON_STOP或者ON_DESTROY
+     * @return 任务句柄, 可以通过它手动取消任务
+     */
+    protected TaskHandle submit(java.lang.Runnable task, LifeStatus cancelOn) {
+        return submit(task, cancelOn, BoundedExecutor.TASK_TYPE_NONE);
+    }
+
+    private TaskHandle submit(java.lang.Runnable task, LifeStatus cancelOn, int taskType) {
+        TaskHandle handle = new TaskHandle(task, getCancelGroup(cancelOn));
+        if (isDestroyed) {
+            handle.cancel();
+            return handle;
+        }
+        ExecutorService executor = getExecutor();
+        handle.register(executor);
+        try {
+            execute(executor, handle, PriorityExecutor.PRIORITY_DEFAULT, taskType);
+        } catch (RejectedExecutionException e) {
+            handle.cancel(); // model正在销毁, 线程池已经关闭
+        }
+        return handle;
+    }
+
+    /**
+     * 提交一个可以取消的消息, 消息会在子线程中交给handleMessage()处理
+     *
+     * @param msg      消息, 不要再使用这个消息对象
+     * @param cancelOn 在哪个生命周期自动取消, 可以为ON_PAUSE, ON_STOP或者ON_DESTROY
+     * @return 任务句柄, 可以通过它手动取消任务
+     */
+    protected TaskHandle submitMessage(Message msg, LifeStatus cancelOn) {
+        int what = msg.what;
+        int key = getTaskKey(msg);
+        TaskHandle handle = new TaskHandle(obtainCarrier(msg, mTaskMetrics == null ? 0 : System.nanoTime()), getCancelGroup(cancelOn));
+        if (isDestroyed) {
+            handle.cancel();
+            return handle;
+        }
+        ExecutorService executor = getExecutor();
+        handle.register(executor);
+        try {
+            execute(executor, handle, PriorityExecutor.PRIORITY_DEFAULT, what, key);
+        } catch (RejectedExecutionException e) {
+            handle.cancel(); // model正在销毁, 线程池已经关闭, 同时回收消息载体
+        }
+        return handle;
+    }
+
+    /**
+     * 设置通过getWorkHandler()发送的任务在哪个生命周期自动取消
+     *
+     * @param cancelOn 可以为ON_PAUSE, ON_STOP或者ON_DESTROY, null表示不取消
+     */
+    protected void setWorkCancelOn(LifeStatus cancelOn) {
+        if (cancelOn != null) {
+            getCancelGroup(cancelOn);
+        }
+        mWorkCancelOn = cancelOn;
+    }
+
+    /**
+     * 在子线程中调用, 检查当前运行的任务是否已经被取消, 长时间运行的任务应该经常检查并尽快结束
+     *
+     * @return 当前任务是否已经被取消
+     */
+    protected boolean isTaskCancelled() {
+        return isDestroyed || TaskHandle.isCurrentCancelled();
+    }
+
+    private Set<TaskHandle> getCancelGroup(LifeStatus cancelOn) {
+        switch (cancelOn) {
+            case ON_PAUSE:
+                return mCancelOnPause;
+            case ON_STOP:
+                return mCancelOnStop;
+            case ON_DESTROY:
+                return mCancelOnDestroy;
+            default:
+                throw new IllegalArgumentException("Tasks can only be cancelled on ON_PAUSE, ON_STOP or ON_DESTROY: " + cancelOn);
+        }
+    }
+
+    private static void cancelAll(Set<TaskHandle> group) {
+        for (TaskHandle handle : group.toArray(new TaskHandle[group.size()])) {
+            handle.cancel();
+        }
+    }
+
+    /**
+     * 在线程池中运行任务, MAIN_THREAD模式下运行在主线程
+     *
+     * @param taskType 任务类型, 只在线程池为BoundedExecutor时使用
+     * @throws RejectedExecutionException model已经销毁或者线程池已经关闭
+     */
+    private void execute(java.lang.Runnable task, int priority, int taskType) {
+        execute(getExecutor(), task, priority, taskType);
+    }
+
+    private void execute(ExecutorService executor, java.lang.Runnable task, int priority, int taskType) {
+        if (executor == null) {
+            // 只有MAIN_THREAD模式才回到主线程, 其他模式下线程池为null说明model已经销毁, 任务不能再跑到主线程上
+            if (mThreadCount != MAIN_THREAD || isDestroyed) {
+                throw new RejectedExecutionException(this + " has been destroyed");
+            }
+            mScheduler.post(task);
+        } else if (executor instanceof PriorityExecutor) {
+            ((PriorityExecutor) executor).execute(task, priority);
+        } else if (executor instanceof BoundedExecutor) {
+            ((BoundedExecutor) executor).execute(task, taskType);
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * 按键在线程池中运行任务, 只在线程池为KeyedExecutor时使用键, 其他线程池忽略键
+     */
+    private void execute(java.lang.Runnable task, int priority, int taskType, int key) {
+        execute(getExecutor(), task, priority, taskType, key);
+    }
+
+    private void execute(ExecutorService executor, java.lang.Runnable task, int priority, int taskType, int key) {
+        if (executor instanceof KeyedExecutor) {
+            ((KeyedExecutor) executor).execute(task, key);
+        } else {
+            execute(executor, task, priority, taskType);
+        }
+    }
+
+    /**
+     * 获取消息的键, 只在线程池为{@link KeyedExecutor}时使用, 键相同的消息按发送顺序依次执行<br/>
+     * 默认使用msg.arg1, 例如会话id; 子类可以重写这个方法根据消息的内容决定键, 例如返回字符串id的hashCode()<br/>
+     * 通过post()提交的Runnable也会调用这个方法, 此时msg.getCallback()不为null, arg1为0
+     *
+     * @param msg 将要执行的消息
+     * @return 键
+     */
+    protected int getTaskKey(Message msg) {
+        return msg.arg1;
+    }
+
+    /**
+     * 按键在线程池中执行任务, 键相同的任务按提交顺序依次执行; 如果线程池不是KeyedExecutor则忽略键, 如果为MAIN_THREAD模式则运行在主线程
+     *
+     * @param task 任务
+     * @param key  键
+     */
+    protected void executeWithKey(java.lang.Runnable task, int key) {
+        if (isDestroyed) {
+            return;
+        }
+        try {
+            execute(task, PriorityExecutor.PRIORITY_DEFAULT, BoundedExecutor.TASK_TYPE_NONE, key);
+        } catch (RejectedExecutionException e) {
+            // model正在销毁, 和销毁之后提交一样丢弃任务
+        }
+    }
+
+    /**
+     * 线程池为BoundedExecutor时, 被丢弃的任务在这里回收并通知onTaskRejected()
+     */
+    private final BoundedExecutor.RejectionListener mRejectionListener = new BoundedExecutor.RejectionListener() {
+        @Override
+        public void onRejected(java.lang.Runnable task, int taskType) {
+            if (task instanceof TaskHandle) {
+                ((TaskHandle) task).cancel();
+            } else if (task instanceof StreamSubscription) {
+                ((StreamSubscription<?>) task).reject(new RejectedExecutionException("stream rejected by " + mExecutorService));
+                return;
+            } else if (task instanceof Pipeline.StageTask) {
+                ((Pipeline.StageTask) task).reject(new RejectedExecutionException("stage rejected by " + mExecutorService));
+                return;
+            } else if (task instanceof Runnable) {
+                ((Runnable) task).discard();
+            }
+            if (taskType != BoundedExecutor.TASK_TYPE_NONE && !isDestroyed) {
+                onTaskRejected(taskType);
+            }
+        }
+    };
+
+    /**
+     * 任务因为线程池队列已满被丢弃时调用, 只有带任务类型(消息的what)的任务才会回调, 运行在提交任务的线程<br/>
+     * 默认通过工作回调的onError()通知presenter, data中{@link #KEY_REJECTED}为true, 子类可以重写这个方法自行处理
+     *
+     * @param taskType 被丢弃的任务类型
+     */
+    protected void onTaskRejected(int taskType) {
+        IBasicHandler.Callback callback = mWorkingCallback;
+        if (callback != null) {
+            Bundle data = new Bundle();
+            data.putBoolean(KEY_REJECTED, true);
+            callback.onError(taskType, data);
+        }
+    }
+
+    /**
+     * 设置某一类任务的优先级, 只在线程池为{@link PriorityExecutor}时生效, 一般在onCreate()中设置
+     *
+     * @param what     消息的what, 即任务类型
+     * @param priority 优先级, 例如{@link PriorityExecutor#PRIORITY_INTERACTIVE}
+     */
+    protected void setTaskPriority(int what, int priority) {
+        if (mTaskPriorities == null) {
+            mTaskPriorities = new SparseIntArray();
+        }
+        mTaskPriorities.put(what, priority);
+    }
+
+    /**
+     * 获取消息对应的任务优先级, 默认根据setTaskPriority()设置的值决定, 子类可以重写这个方法根据消息的内容决定优先级
+     *
+     * @param msg 将要执行的消息
+     * @return 优先级
+     */
+    protected int getTaskPriority(Message msg) {
+        return mTaskPriorities == null ? PriorityExecutor.PRIORITY_DEFAULT : mTaskPriorities.get(msg.what, PriorityExecutor.PRIORITY_DEFAULT);
+    }
+
+    /**
+     * 以指定的优先级在线程池中执行任务, 如果线程池不是PriorityExecutor则忽略优先级, 如果为MAIN_THREAD模式则运行在主线程
+     *
+     * @param task     任务
+     * @param priority 优先级
+     */
+    protected void executeWithPriority(java.lang.Runnable task, int priority) {
+        if (isDestroyed) {
+            return;
+        }
+        try {
+            execute(task, priority, BoundedExecutor.TASK_TYPE_NONE);
+        } catch (RejectedExecutionException e) {
+            // model正在销毁, 和销毁之后提交一样丢弃任务
+        }
+    }
+
+    /**
+     * 获取合并相同任务的SingleFlight, 默认同一个model类的所有实例共用一个, 可以通过它设置计算任务键的方法
+     *
+     * @return SingleFlight
+     */
+    protected SingleFlight getSingleFlight() {
+        if (mSingleFlight == null) {
+            SingleFlight singleFlight = sSingleFlights.get(getClass());
+            if (singleFlight == null) {
+                singleFlight = new SingleFlight();
+                SingleFlight previous = sSingleFlights.putIfAbsent(getClass(), singleFlight);
+                if (previous != null) {
+                    singleFlight = previous;
+                }
+            }
+            mSingleFlight = singleFlight;
+        }
+        return mSingleFlight;
+    }
+
+    /**
+     * 设置合并相同任务的SingleFlight, 可以使不同类型的model合并相同的任务
+     *
+     * @param singleFlight SingleFlight
+     */
+    protected void setSingleFlight(SingleFlight singleFlight) {
+        mSingleFlight = singleFlight;
+    }
+
+    /**
+     * 在handleTask()中调用, 合并相同的任务, 使用方法参考{@link SingleFlight}<br/>
+     * 任务的超时检查运行在主线程调度器中, 超时时间可以通过getSingleFlight().setTimeout()修改
+     *
+     * @param callback 任务的回调
+     * @param taskType 任务类型
+     * @param data     任务参数
+     * @return 需要执行任务时返回一个回调, 任务结果需要回调给它; 已经有相同任务正在执行时返回null, 不需要再执行任务
+     */
+    protected IBasicHandler.Callback joinSingleFlight(Callback callback, int taskType, Bundle data) {
+        return getSingleFlight().join(this, callback, taskType, data, mScheduler);
     }
 
     protected abstract void handleMessage(Message msg);
@@ -103,6 +771,29 @@ public abstract class BasicModel implements IBasicModel {
     public void onCreate(Bundle bundle) {
     }
 
+    /**
+     * 保存状态, 子类重写时放入需要在页面重建或者进程重启后恢复的状态, 例如当前页码和选中项;
+     * 状态较大时会写入本地文件, 不会超出Binder事务的大小限制
+     */
+    @Override
+    public void onSaveState(Bundle outState) {
+    }
+
+    @Override
+    public void onRestoreState(StateSnapshot snapshot) {
+        mSavedState = snapshot;
+    }
+
+    /**
+     * 获取上一次通过onSaveState()保存的状态, 第一次调用时解码, 较大的状态会读取文件, 可以在子线程中调用
+     *
+     * @return 状态, 没有保存或者已经无法读取时返回null
+     */
+    protected Bundle getSavedState() {
+        StateSnapshot snapshot = mSavedState;
+        return snapshot == null ? null : snapshot.get();
+    }
+
     @Override
     public void onStart() {
     }
@@ -111,21 +802,41 @@ public abstract class BasicModel implements IBasicModel {
     public void onResume() {
     }
 
+    /**
+     * 取消在ON_PAUSE时取消的任务, 子类重写时需要调用super.onPause()
+     */
     @Override
     public void onPause() {
+        cancelAll(mCancelOnPause);
     }
 
+    /**
+     * 取消在ON_PAUSE和ON_STOP时取消的任务, 子类重写时需要调用super.onStop()
+     */
     @Override
     public void onStop() {
+        cancelAll(mCancelOnPause);
+        cancelAll(mCancelOnStop);
     }
 
     @Override
     public void onDestroy() {
         if (!isDestroyed) {
             isDestroyed = true; //标记当前状态为destroyed
-            if (mExecutorService != null) {
-                mExecutorService.shutdownNow(); //关闭线程池
-                mExecutorService = null;
+            cancelAll(mCancelOnPause);
+            cancelAll(mCancelOnStop);
+            cancelAll(mCancelOnDestroy);
+            for (StreamSubscription<?> stream : mStreams.toArray(new StreamSubscription<?>[0])) {
+                stream.cancel();
+            }
+            synchronized (this) {
+                if (mExecutorService != null) {
+                    mExecutorService.shutdownNow(); //关闭线程池, 共享模式下只关闭当前model的Lane
+                    mExecutorService = null;
+                }
+            }
+            if (mSingleFlight != null) {
+                mSingleFlight.abandon(this); // 当前model正在执行的任务不会再有结果
             }
             mWorkHandler = null;
             mUIHandler = null;
@@ -140,31 +851,228 @@ public abstract class BasicModel implements IBasicModel {
     public void handleTask(Callback callback, int taskType, Bundle data) {
     }
 
+    /**
+     * 开始一个流式任务, 数据源由createStreamSource()创建, 之后按callback请求的数量在子线程中拉取数据块<br/>
+     * 回调运行在子线程, presenter一般通过BasicPresenter.requestStream()调用, 回调会切换到主线程
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handleStream(StreamCallback<?> callback, int taskType, Bundle data) {
+        StreamSource<Object> source = (StreamSource<Object>) createStreamSource(taskType, data);
+        if (source == null) {
+            throw new IllegalArgumentException("No stream source for taskType " + taskType + " in " + this);
+        }
+        StreamSubscription<Object> subscription = new StreamSubscription<>(this, taskType, source, (StreamCallback<Object>) callback);
+        mStreams.add(subscription);
+        callback.onSubscribe(taskType, subscription);
+        if (isDestroyed) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * 创建流式任务的数据源, 运行在调用handleStream()的线程, 耗时的操作应该放在数据源的next()中
+     *
+     * @param taskType 任务类型
+     * @param data     任务执行时所需的数据
+     * @return 数据源, 返回null表示不支持这个任务类型
+     */
+    protected StreamSource<?> createStreamSource(int taskType, Bundle data) {
+        return null;
+    }
+
+    /**
+     * 在线程池中运行流式任务的拉取任务, model销毁后在当前线程运行, 拉取任务会关闭数据源
+     */
+    void executeStream(StreamSubscription<?> stream, int taskType) {
+        if (isDestroyed) {
+            stream.run();
+            return;
+        }
+        try {
+            execute(stream, PriorityExecutor.PRIORITY_DEFAULT, BoundedExecutor.TASK_TYPE_NONE);
+        } catch (RejectedExecutionException e) {
+            stream.reject(e);
+        }
+    }
+
+    void removeStream(StreamSubscription<?> stream) {
+        mStreams.remove(stream);
+    }
+
+    /**
+     * 在线程池中运行{@link Pipeline}的一个阶段, 不带任务类型, 不会被BoundedExecutor按类型丢弃或合并; model销毁后阶段失败
+     */
+    void executeStage(Pipeline.StageTask task) {
+        if (isDestroyed) {
+            task.reject(new RejectedExecutionException(this + " has been destroyed"));
+            return;
+        }
+        try {
+            execute(task, PriorityExecutor.PRIORITY_DEFAULT, BoundedExecutor.TASK_TYPE_NONE);
+        } catch (RejectedExecutionException e) {
+            task.reject(e);
+        }
+    }
+
+    /**
+     * 获取数据, 如果设置了ResultCache, 则优先从缓存中获取, 缓存中没有时通过loadData()获取并放入缓存<br/>
+     * 需要缓存的子类应该重写loadData()而不是这个方法
+     */
     @Override
     public Object getData(int dataType, Bundle data) {
+        ResultCache cache = mResultCache;
+        if (cache == null) {
+            return loadData(dataType, data);
+        }
+        Object value = cache.get(dataType, data);
+        if (value == null) {
+            long version = cache.getVersion();
+            value = loadData(dataType, data);
+            cache.put(dataType, data, value, version); // 加载期间失效时不放入, 旧数据不会覆盖失效
+        }
+        return value;
+    }
+
+    /**
+     * 真正获取数据的方法, 由getData()调用
+     *
+     * @param dataType 任务类型, 可根据这个类型获取相应的数据
+     * @param data     获取数据时需要传入的参数
+     * @return 要获取的数据
+     */
+    protected Object loadData(int dataType, Bundle data) {
         return null;
     }
 
-    private class Runnable implements java.lang.Runnable {
-        private Message msg;
+    /**
+     * 设置任务的耗时统计, 开启后按消息的what记录排队时间和handleMessage()的运行时间, 通过post()提交的Runnable不统计<br/>
+     * 同一个TaskMetrics可以被多个model和presenter共用
+     *
+     * @param taskMetrics 耗时统计, 为null时关闭统计
+     */
+    public void setTaskMetrics(TaskMetrics taskMetrics) {
+        mTaskMetrics = taskMetrics;
+    }
+
+    public TaskMetrics getTaskMetrics() {
+        return mTaskMetrics;
+    }
+
+    /**
+     * 设置getData()结果的缓存, 数据发生变化时通过{@link ResultCache#invalidate(int)}等方法使缓存失效
+     *
+     * @param resultCache 缓存, null表示不缓存
+     */
+    protected void setResultCache(ResultCache resultCache) {
+        mResultCache = resultCache;
+    }
+
+    protected ResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    /**
+     * 设置持久化的结果存储, 同一个ResultStore可以被多个model共用, 不同model的数据类型不要重复
+     *
+     * @param resultStore 存储, null表示不保存
+     */
+    protected void setResultStore(ResultStore resultStore) {
+        mResultStore = resultStore;
+    }
+
+    protected ResultStore getResultStore() {
+        return mResultStore;
+    }
 
-        Runnable(Message msg) {
-            this.msg = msg;
+    /**
+     * 获取上一次保存的结果, 冷启动时可以先回调这个结果, 同时在后台刷新, 使用方法参考{@link ResultStore}<br/>
+     * 读取映射的内存并解码, 一般在子线程中调用
+     *
+     * @return 结果, 没有设置ResultStore或者没有保存时返回null
+     */
+    protected Bundle getStoredResult(int dataType, Bundle data) {
+        ResultStore store = mResultStore;
+        return store == null ? null : store.get(dataType, data);
+    }
+
+    /**
+     * 保存结果, 覆盖上一次的结果, 没有设置ResultStore时忽略
+     *
+     * @param result 结果, 为null时删除上一次的结果
+     */
+    protected void storeResult(int dataType, Bundle data, Bundle result) {
+        ResultStore store = mResultStore;
+        if (store != null) {
+            store.put(dataType, data, result);
         }
+    }
+
+    /**
+     * 在线程池中处理消息的载体, 通过对象池复用, 派发消息时不再创建新的对象
+     */
+    private class Runnable extends Payload implements java.lang.Runnable, TaskHandle.Discardable {
+        private Message msg;
+        /**
+         * 开始排队的时间, 为0时不统计
+         */
+        private long enqueueNanos;
 
         @Override
         public void run() {
-            if (!isDestroyed) {
-                handleMessage(msg);
+            TaskMetrics metrics = enqueueNanos == 0 ? null : mTaskMetrics;
+            long start = metrics == null ? 0 : System.nanoTime();
+            int what = msg.what;
+            try {
+                if (!isDestroyed) {
+                    handleMessage(msg);
+                    if (metrics != null) {
+                        metrics.recordTask(what, start - enqueueNanos, System.nanoTime() - start);
+                    }
+                }
+            } finally {
+                msg.recycle();// Message对象没有经过Looper循环, 需要手动回收
+                recycle();
             }
-            msg.recycle();// Message对象没有经过Looper循环, 需要手动回收
         }
+
+        /**
+         * 任务被丢弃, 不再运行
+         */
+        @Override
+        public void discard() {
+            msg.recycle();
+            recycle();
+        }
+
+        @Override
+        protected void onRecycle() {
+            msg = null;
+            enqueueNanos = 0;
+        }
+    }
+
+    private Runnable obtainCarrier(Message msg, long enqueueNanos) {
+        if (!isExecutorCreated) {
+            createExecutor(false);
+        }
+        Runnable carrier = mCarrierPool.obtain();
+        carrier.msg = msg;
+        carrier.enqueueNanos = enqueueNanos;
+        return carrier;
+    }
+
+    /**
+     * 消息在主线程消息队列中等待的时间, 精度为毫秒
+     */
+    private static long looperWaitNanos(Message msg) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, SystemClock.uptimeMillis() - msg.getWhen()));
     }
 
     private class UIHandler extends android.os.Handler {
 
-        public UIHandler() {
-            super(Looper.getMainLooper());
+        public UIHandler(Looper looper) {
+            super(looper);
         }
 
         @Override
@@ -175,22 +1083,91 @@ public abstract class BasicModel implements IBasicModel {
 
     private class Handler extends android.os.Handler {
 
-        public Handler() {
-            super(Looper.getMainLooper());
+        public Handler(Looper looper) {
+            super(looper);
         }
 
         public void dispatchMessage(Message msg) {
             if (!isDestroyed) {
-                if (mExecutorService == null) {
-                    super.dispatchMessage(msg);
-                } else {
-                    if (msg.getCallback() != null) {
-                        // Looper会自动回收Message对象
-                        mExecutorService.execute(msg.getCallback());
+                ExecutorService executor = getExecutor();
+                if (executor == null) {
+                    if (mThreadCount != MAIN_THREAD) {
+                        return; // model已经销毁, Looper会回收msg
+                    }
+                    TaskMetrics metrics = mTaskMetrics;
+                    if (metrics == null || msg.getCallback() != null) {
+                        super.dispatchMessage(msg);
                     } else {
-                        // Looper会自动回收msg对象, 所以需要一个新的Message对象供我们的子线程使用
-                        mExecutorService.execute(new Runnable(Message.obtain(msg)));
+                        long start = System.nanoTime();
+                        long queueWait = looperWaitNanos(msg);
+                        int what = msg.what;
+                        super.dispatchMessage(msg);
+                        metrics.recordTask(what, queueWait, System.nanoTime() - start);
                     }
+                } else {
+                    dispatchToExecutor(msg, executor, true);
+                }
+            }
+        }
+
+        /**
+         * 直接派发模式下, 不需要延迟的消息不再进入主线程的消息队列, 而是直接提交到线程池
+         */
+        @Override
+        public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+            if (isDirectDispatch && mThreadCount != MAIN_THREAD && uptimeMillis <= SystemClock.uptimeMillis()) {
+                ExecutorService executor = getExecutor();
+                if (executor == null || isDestroyed) {
+                    msg.recycle(); // model已经销毁
+                    return false;
+                }
+                msg.setTarget(this);
+                dispatchToExecutor(msg, executor, false);
+                return true;
+            }
+            return super.sendMessageAtTime(msg, uptimeMillis);
+        }
+
+        /**
+         * 将消息提交到线程池
+         *
+         * @param msg        消息
+         * @param executor   派发前读取的线程池, 整个派发过程只使用这一个, model同时销毁时由它拒绝任务
+         * @param fromLooper 消息是否来自Looper, 来自Looper的消息会被Looper自动回收
+         */
+        private void dispatchToExecutor(Message msg, ExecutorService executor, boolean fromLooper) {
+            int priority = getTaskPriority(msg);
+            int taskType = msg.what;
+            int key = getTaskKey(msg); // post()的任务同样按键执行, 默认键为0, 因此它们按提交顺序依次执行
+            java.lang.Runnable task;
+            if (msg.getCallback() != null) {
+                taskType = BoundedExecutor.TASK_TYPE_NONE;
+                task = msg.getCallback();
+                if (!fromLooper) {
+                    msg.recycle(); // 没有经过Looper的Message对象需要手动回收
+                }
+            } else {
+                long enqueueNanos = 0;
+                if (mTaskMetrics != null) {
+                    enqueueNanos = System.nanoTime() - (fromLooper ? looperWaitNanos(msg) : 0);
+                }
+                // Looper会自动回收msg对象, 所以需要一个新的Message对象供我们的子线程使用
+                task = obtainCarrier(fromLooper ? Message.obtain(msg) : msg, enqueueNanos);
+            }
+            LifeStatus cancelOn = mWorkCancelOn;
+            if (cancelOn != null) {
+                TaskHandle handle = new TaskHandle(task, getCancelGroup(cancelOn));
+                handle.register(executor);
+                task = handle;
+            }
+            try {
+                execute(executor, task, priority, taskType, key);
+            } catch (RejectedExecutionException e) {
+                // model正在销毁, 线程池已经关闭, 回收消息载体
+                if (task instanceof TaskHandle) {
+                    ((TaskHandle) task).cancel();
+                } else if (task instanceof Runnable) {
+                    ((Runnable) task).discard();
                 }
             }
         }
@@ -0,0 +1,328 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Looper;
+
+import com.jeson.mvp.scheduler.IScheduler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 队列长度和线程数量都有上限的线程池, 队列已满时按{@link OverflowPolicy}处理新任务, 突发的大量任务不会耗尽内存或者创建大量线程<br/>
+ * 被丢弃的任务通过{@link RejectionListener}通知, BasicModel会将其作为onError()回调给presenter<br/>
+ * 在BasicModel的子类中重写createExecutorService()返回这个线程池即可使用
+ */
+
+public class BoundedExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 没有任务类型, 例如通过executeWithPriority()提交的任务, 这类任务不参与按类型的丢弃和合并
+     */
+    public static final int TASK_TYPE_NONE = Integer.MIN_VALUE;
+    /**
+     * 空闲线程的存活时间
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    /**
+     * BLOCK策略下每次等待的时间, 超时后检查线程池是否已经关闭
+     */
+    private static final long BLOCK_CHECK_MILLIS = 100;
+
+    /**
+     * 队列已满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 阻塞提交任务的线程直到队列有空位; 在主线程, 调度器线程(见{@link #setScheduler(IScheduler)})或者线程池自己的线程中提交时
+         * 按DROP_NEWEST处理, 分别避免ANR和死锁
+         */
+        BLOCK,
+        /**
+         * 丢弃新提交的任务
+         */
+        DROP_NEWEST,
+        /**
+         * 丢弃队列中最早的同类型任务, 新任务加入队尾; 队列中没有同类型任务时丢弃新任务
+         */
+        DROP_OLDEST_SAME_TYPE,
+        /**
+         * 提交时如果队列中已有同类型的任务, 用新任务替换它并保持原来的排队位置, 每种类型最多只有一个任务在排队;
+         * 队列已满且没有同类型任务时丢弃新任务
+         */
+        COALESCE_LATEST
+    }
+
+    /**
+     * 任务被丢弃时的回调, 运行在提交任务的线程
+     */
+    public interface RejectionListener {
+        void onRejected(Runnable task, int taskType);
+    }
+
+    private final OverflowPolicy mPolicy;
+    private final int mCapacity;
+    private final AtomicLong mRejectedCount = new AtomicLong();
+    private volatile RejectionListener mRejectionListener;
+    /**
+     * BLOCK策略下不能阻塞的调度器线程
+     */
+    private volatile IScheduler mScheduler;
+    /**
+     * 当前线程是否为这个线程池的工作线程
+     */
+    private final ThreadLocal<Boolean> isWorkerThread = new ThreadLocal<>();
+
+    /**
+     * @param maxThreads    最大线程数量, 空闲的线程会在30秒后释放
+     * @param queueCapacity 队列长度
+     * @param policy        队列已满时的处理策略
+     */
+    public BoundedExecutor(int maxThreads, int queueCapacity, OverflowPolicy policy) {
+        super(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity));
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        mPolicy = policy;
+        mCapacity = queueCapacity;
+        allowCoreThreadTimeOut(true);
+        setThreadFactory(new WorkerThreadFactory());
+        setRejectedExecutionHandler(new OverflowHandler());
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return mPolicy;
+    }
+
+    public int getQueueCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * 获取被丢弃的任务数量, 包括被替换的任务
+     */
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    public void setRejectionListener(RejectionListener listener) {
+        mRejectionListener = listener;
+    }
+
+    /**
+     * 设置派发回调的调度器, BLOCK策略下在它的线程中提交任务时不会阻塞, 队列已满时按DROP_NEWEST处理; BasicModel会自动设置
+     *
+     * @param scheduler 调度器, 为null时只有主线程不会阻塞
+     */
+    public void setScheduler(IScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof TypedTask) {
+            super.execute(command);
+        } else {
+            execute(command, TASK_TYPE_NONE);
+        }
+    }
+
+    /**
+     * 执行指定类型的任务
+     *
+     * @param command  任务
+     * @param taskType 任务类型, 一般为消息的what, 用于按类型丢弃或合并
+     */
+    public void execute(Runnable command, int taskType) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        TypedTask task = new TypedTask(command, taskType);
+        if (mPolicy == OverflowPolicy.COALESCE_LATEST && !isShutdown() && coalesce(task)) {
+            return;
+        }
+        super.execute(task);
+    }
+
+    /**
+     * 从队列中移除任务, 参数可以是提交时的原始任务
+     */
+    @Override
+    public boolean remove(Runnable task) {
+        if (super.remove(task)) {
+            return true;
+        }
+        for (Runnable queued : getQueue()) {
+            if (queued instanceof TypedTask && ((TypedTask) queued).mCommand.get() == task) {
+                return super.remove(queued);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 用新任务替换队列中同类型的任务
+     *
+     * @return 是否替换成功
+     */
+    private boolean coalesce(TypedTask task) {
+        if (task.mTaskType == TASK_TYPE_NONE) {
+            return false;
+        }
+        Runnable command = task.mCommand.get();
+        for (Runnable r : getQueue()) {
+            TypedTask queued = (TypedTask) r;
+            if (queued.mTaskType != task.mTaskType) {
+                continue;
+            }
+            Runnable replaced = queued.mCommand.get();
+            // 替换失败说明任务已经开始运行
+            if (replaced != null && queued.mCommand.compareAndSet(replaced, command)) {
+                reject(replaced, queued.mTaskType);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reject(Runnable command, int taskType) {
+        mRejectedCount.incrementAndGet();
+        RejectionListener listener = mRejectionListener;
+        if (listener != null) {
+            listener.onRejected(command, taskType);
+        }
+    }
+
+    /**
+     * 队列中的任务, 任务对象可以被同类型的新任务替换
+     */
+    private class TypedTask implements Runnable {
+
+        private final AtomicReference<Runnable> mCommand;
+        private final int mTaskType;
+
+        TypedTask(Runnable command, int taskType) {
+            mCommand = new AtomicReference<>(command);
+            mTaskType = taskType;
+        }
+
+        @Override
+        public void run() {
+            Runnable command = mCommand.getAndSet(null); // 取出后不能再被替换
+            if (command != null) {
+                command.run();
+            }
+        }
+    }
+
+    private class OverflowHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            TypedTask task = (TypedTask) r;
+            if (isShutdown()) {
+                reject(task.mCommand.get(), task.mTaskType);
+                return;
+            }
+            switch (mPolicy) {
+                case BLOCK:
+                    if (canBlock()) {
+                        block(task);
+                        return;
+                    }
+                    break;
+                case DROP_OLDEST_SAME_TYPE:
+                    if (dropOldest(task)) {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            reject(task.mCommand.get(), task.mTaskType);
+        }
+
+        /**
+         * 当前线程是否可以阻塞: 线程池自己的线程阻塞会死锁, 主线程和调度器线程阻塞会导致ANR
+         */
+        private boolean canBlock() {
+            if (isWorkerThread.get() != null) {
+                return false;
+            }
+            Looper looper = Looper.myLooper();
+            if (looper != null && looper == Looper.getMainLooper()) {
+                return false;
+            }
+            IScheduler scheduler = mScheduler;
+            return scheduler == null || !scheduler.isCurrentThread();
+        }
+
+        private void block(TypedTask task) {
+            BlockingQueue<Runnable> queue = getQueue();
+            try {
+                while (!queue.offer(task, BLOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (isShutdown()) {
+                        reject(task.mCommand.get(), task.mTaskType);
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reject(task.mCommand.get(), task.mTaskType);
+                return;
+            }
+            if (isShutdown() && queue.remove(task)) {
+                reject(task.mCommand.get(), task.mTaskType);
+            } else {
+                prestartCoreThread(); // 线程可能已经因为空闲而释放
+            }
+        }
+
+        private boolean dropOldest(TypedTask task) {
+            if (task.mTaskType == TASK_TYPE_NONE) {
+                return false;
+            }
+            BlockingQueue<Runnable> queue = getQueue();
+            for (Runnable r : queue) {
+                TypedTask queued = (TypedTask) r;
+                if (queued.mTaskType == task.mTaskType && queue.remove(queued)) {
+                    Runnable dropped = queued.mCommand.getAndSet(null);
+                    if (dropped != null) {
+                        reject(dropped, queued.mTaskType);
+                    }
+                    // 其他线程可能同时占用了空出的位置, 这时按队列已满继续处理
+                    if (queue.offer(task)) {
+                        return true;
+                    }
+                    return dropOldest(task);
+                }
+            }
+            return false;
+        }
+    }
+
+    private class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    isWorkerThread.set(Boolean.TRUE);
+                    r.run();
+                }
+            }, "jeson-mvp-bounded-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
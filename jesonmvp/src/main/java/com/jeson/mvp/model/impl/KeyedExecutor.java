@@ -0,0 +1,262 @@
+package com.jeson.mvp.model.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按键串行的线程池, 相同键的任务按提交顺序依次执行, 不同键的任务在所有线程中并行执行<br/>
+ * 任务按键的哈希值分配到固定数量的分片(stripe), 每个分片是一个无锁队列, 同一时间最多有一个线程在运行它的任务;
+ * 分片数量是线程数量的若干倍, 不同键落在同一个分片时也会串行, 但不会乱序<br/>
+ * 提交任务时只写入分片自己的队列, 分片由空闲变为忙碌时才会提交到内部线程池, 每次最多连续运行BATCH_SIZE个任务后再让出线程,
+ * 因此没有全局锁, 也不会有一个繁忙的键长期占用线程
+ */
+
+public class KeyedExecutor extends AbstractExecutorService {
+
+    /**
+     * 默认每个线程对应的分片数量
+     */
+    public static final int DEFAULT_STRIPES_PER_THREAD = 4;
+    /**
+     * 分片每次占用线程时最多连续运行的任务数量
+     */
+    private static final int BATCH_SIZE = 16;
+    /**
+     * 空闲线程的存活时间
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor mPool;
+    private final Stripe[] mStripes;
+    private final int mMask;
+    /**
+     * 没有键的任务轮流分配到各个分片
+     */
+    private final AtomicInteger mNextStripe = new AtomicInteger();
+    private volatile boolean isShutdown = false;
+
+    public KeyedExecutor(int nThreads) {
+        this(nThreads, nThreads * DEFAULT_STRIPES_PER_THREAD);
+    }
+
+    /**
+     * @param nThreads 线程数量
+     * @param stripes  分片数量, 会向上取整为2的幂
+     */
+    public KeyedExecutor(int nThreads, int stripes) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        mStripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            mStripes[i] = new Stripe();
+        }
+        mMask = size - 1;
+        mPool = new ThreadPoolExecutor(nThreads, nThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new KeyedThreadFactory());
+        mPool.allowCoreThreadTimeOut(true); // 空闲时释放线程
+    }
+
+    /**
+     * 执行没有键的任务, 任务轮流分配到各个分片, 不保证与其他任务的顺序, 也可能与之前提交的任务同时运行;
+     * 需要按提交顺序执行时使用execute(Runnable, int)并传入相同的键
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, mNextStripe.getAndIncrement());
+    }
+
+    /**
+     * 按键执行任务, 相同键的任务按提交顺序依次执行
+     *
+     * @param command 任务
+     * @param key     键, 例如会话id, 其他类型的键可以使用hashCode()
+     */
+    public void execute(Runnable command, int key) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (isShutdown) {
+            throw new RejectedExecutionException("KeyedExecutor has been shut down");
+        }
+        mStripes[stripeOf(key)].execute(command);
+    }
+
+    /**
+     * 获取分片数量
+     */
+    public int getStripeCount() {
+        return mStripes.length;
+    }
+
+    private int stripeOf(int key) {
+        int h = key * 0x9E3779B9; // 打散连续的键, 例如自增的id
+        return (h ^ (h >>> 16)) & mMask;
+    }
+
+    /**
+     * 不再接收新的任务, 已经提交的任务会继续执行
+     */
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+        terminateIfIdle();
+    }
+
+    /**
+     * 不再接收新的任务, 并中断正在运行的任务
+     *
+     * @return 还没有开始的任务
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        isShutdown = true;
+        List<Runnable> pending = new ArrayList<>();
+        for (Stripe stripe : mStripes) {
+            Runnable task;
+            while ((task = stripe.mTasks.poll()) != null) {
+                pending.add(task);
+            }
+        }
+        mPool.shutdownNow();
+        synchronized (this) {
+            notifyAll();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        if (!isShutdown) {
+            return false;
+        }
+        if (mPool.isShutdown()) {
+            return mPool.isTerminated();
+        }
+        for (Stripe stripe : mStripes) {
+            if (stripe.isScheduled.get() || !stripe.mTasks.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (mPool.isShutdown()) {
+                // 分片已经全部空闲, 只需要等待内部线程退出, 不能持有锁, 否则退出的线程会阻塞在terminateIfIdle()
+                return mPool.awaitTermination(remaining, TimeUnit.NANOSECONDS);
+            }
+            synchronized (this) {
+                if (!mPool.isShutdown()) { // 内部线程池关闭之后才会唤醒, 在锁内检查以免错过唤醒
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 关闭后所有分片都空闲时关闭内部线程池并唤醒等待的线程, 只在关闭后调用, 不影响正常运行时的性能
+     */
+    private void terminateIfIdle() {
+        if (isTerminated()) {
+            mPool.shutdown();
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 一个分片, 同一时间最多有一个线程在运行它的任务
+     */
+    private final class Stripe implements Runnable {
+
+        private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+        /**
+         * 是否已经提交到内部线程池或者正在运行
+         */
+        private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+
+        void execute(Runnable task) {
+            mTasks.offer(task);
+            schedule();
+        }
+
+        /**
+         * 队列不为空且没有在运行时提交到内部线程池
+         */
+        private void schedule() {
+            if (!mTasks.isEmpty() && isScheduled.compareAndSet(false, true)) {
+                try {
+                    mPool.execute(this);
+                } catch (RejectedExecutionException e) {
+                    isScheduled.set(false); // 只会在shutdownNow()之后发生, 剩余的任务已经被取出
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Runnable task = mTasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    task.run();
+                }
+            } finally {
+                isScheduled.set(false);
+                schedule(); // 让出线程, 使其他分片有机会运行
+                if (isShutdown) {
+                    terminateIfIdle();
+                }
+            }
+        }
+    }
+
+    private static class KeyedThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger sPoolCount = new AtomicInteger();
+
+        private final int mPoolId = sPoolCount.incrementAndGet();
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jeson-mvp-keyed-" + mPoolId + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
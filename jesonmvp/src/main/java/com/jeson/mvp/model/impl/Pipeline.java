@@ -0,0 +1,355 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.util.SparseIntArray;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.model.IBasicModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 跨model的多阶段任务, 阶段之间的依赖构成一个有向无环图<br/>
+ * 每个阶段是某个model的一个taskType, 通过handleTask()执行, 以onSuccess()结束; 没有依赖关系的阶段同时运行在各自model的线程池中,
+ * 一个阶段的所有依赖都结束后才会开始, 依赖的结果通过{@link #keyOf(int)}放入它的参数中. 所有阶段结束后, 最终结果只回调一次onSuccess(),
+ * 任何一个阶段失败时回调一次onFailed()或者onError(), 其余还没有开始的阶段不再运行<br/>
+ * 使用方法:
+ * <pre>
+ * Pipeline pipeline = new Pipeline()
+ *         .addStage(STAGE_USER, userModel, TASK_USER)
+ *         .addStage(STAGE_FEED, feedModel, TASK_FEED)
+ *         .addStage(STAGE_PAGE, pageModel, TASK_MERGE, STAGE_USER, STAGE_FEED);
+ * // 在presenter中, 结果回调给onSuccessCalledOnUIThread(DATA_PAGE, data)
+ * executePipeline(pipeline, DATA_PAGE, args);
+ * </pre>
+ * 注意: 同一个单线程model的多个阶段仍然会依次运行; 阶段的call()回调会被忽略
+ */
+
+public class Pipeline {
+
+    /**
+     * 阶段失败时, onFailed()或者onError()回调的data中这个键的值为失败的阶段
+     */
+    public static final String KEY_FAILED_STAGE = "jeson_mvp_failed_stage";
+    /**
+     * 阶段抛出异常或者被线程池拒绝时, onError()回调的data中这个键的值为对应的异常
+     */
+    public static final String KEY_PIPELINE_ERROR = "jeson_mvp_pipeline_error";
+
+    private static final String KEY_STAGE_PREFIX = "jeson_mvp_stage_";
+    private static final int[] NO_STAGES = new int[0];
+
+    private final List<Stage> mStages = new ArrayList<>();
+    /**
+     * 阶段id到mStages下标的映射
+     */
+    private final SparseIntArray mIndexes = new SparseIntArray();
+    /**
+     * 每个阶段的下游阶段, 第一次执行时生成, 之后不能再添加阶段
+     */
+    private volatile int[][] mDependents;
+    /**
+     * 没有下游的阶段, 它们的结果组成最终结果
+     */
+    private int[] mSinks;
+
+    /**
+     * 获取依赖的阶段的结果在参数中的键
+     *
+     * @param stageId 依赖的阶段
+     */
+    public static String keyOf(int stageId) {
+        return KEY_STAGE_PREFIX + stageId;
+    }
+
+    /**
+     * 添加一个阶段, 依赖的阶段需要先添加, 因此阶段之间不会出现循环依赖
+     *
+     * @param stageId   阶段id, 不能重复
+     * @param model     执行阶段的model, 为BasicModel时运行在它的线程池中, 否则直接调用handleTask()
+     * @param taskType  传给handleTask()的任务类型
+     * @param dependsOn 依赖的阶段, 为空时参数为执行时传入的data, 否则在data的基础上加入每个依赖的结果
+     * @return 当前Pipeline, 可以继续添加阶段
+     */
+    public Pipeline addStage(int stageId, IBasicModel model, int taskType, int... dependsOn) {
+        if (mDependents != null) {
+            throw new IllegalStateException("Cannot add stage " + stageId + " after the pipeline has been executed");
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("model must not be null");
+        }
+        if (mIndexes.indexOfKey(stageId) >= 0) {
+            throw new IllegalArgumentException("Duplicate stage " + stageId);
+        }
+        int[] dependencies = dependsOn == null || dependsOn.length == 0 ? NO_STAGES : new int[dependsOn.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            int index = mIndexes.get(dependsOn[i], -1);
+            if (index < 0) {
+                throw new IllegalArgumentException("Stage " + stageId + " depends on unknown stage " + dependsOn[i]
+                        + ", dependencies must be added first");
+            }
+            dependencies[i] = index;
+        }
+        mIndexes.put(stageId, mStages.size());
+        mStages.add(new Stage(stageId, model, taskType, dependencies));
+        return this;
+    }
+
+    /**
+     * 执行一次, 可以多次执行, 每次执行互不影响
+     *
+     * @param callback 最终结果的回调, 运行在最后结束的阶段所在的线程; 在presenter中传入它的工作回调即可切换至主线程
+     * @param dataType 回调时使用的dataType
+     * @param data     执行参数, 会复制给每个没有依赖的阶段, 可以为null
+     * @return 本次执行, 可以通过它取消
+     */
+    public Execution execute(IBasicHandler.Callback callback, int dataType, Bundle data) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        compile();
+        Execution execution = new Execution(callback, dataType, data);
+        for (int i = 0; i < mStages.size(); i++) {
+            if (mStages.get(i).mDependencies.length == 0) {
+                execution.start(i);
+            }
+        }
+        return execution;
+    }
+
+    private synchronized void compile() {
+        if (mDependents != null) {
+            return;
+        }
+        if (mStages.isEmpty()) {
+            throw new IllegalStateException("Pipeline has no stage");
+        }
+        int size = mStages.size();
+        int[] counts = new int[size];
+        for (Stage stage : mStages) {
+            for (int dependency : stage.mDependencies) {
+                counts[dependency]++;
+            }
+        }
+        int[][] dependents = new int[size][];
+        int sinkCount = 0;
+        for (int i = 0; i < size; i++) {
+            dependents[i] = counts[i] == 0 ? NO_STAGES : new int[counts[i]];
+            if (counts[i] == 0) {
+                sinkCount++;
+            }
+            counts[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int dependency : mStages.get(i).mDependencies) {
+                dependents[dependency][counts[dependency]++] = i;
+            }
+        }
+        int[] sinks = new int[sinkCount];
+        for (int i = 0, j = 0; i < size; i++) {
+            if (dependents[i].length == 0) {
+                sinks[j++] = i;
+            }
+        }
+        mSinks = sinks;
+        mDependents = dependents;
+    }
+
+    private static final class Stage {
+
+        private final int mId;
+        private final IBasicModel mModel;
+        private final int mTaskType;
+        /**
+         * 依赖的阶段在mStages中的下标
+         */
+        private final int[] mDependencies;
+
+        Stage(int id, IBasicModel model, int taskType, int[] dependencies) {
+            mId = id;
+            mModel = model;
+            mTaskType = taskType;
+            mDependencies = dependencies;
+        }
+    }
+
+    /**
+     * 一次执行
+     */
+    public final class Execution {
+
+        private final IBasicHandler.Callback mCallback;
+        private final int mDataType;
+        private final Bundle mData;
+        /**
+         * 每个阶段还没有结束的依赖数量, 减为0时开始这个阶段
+         */
+        private final AtomicIntegerArray mPending;
+        private final AtomicReferenceArray<Bundle> mResults;
+        /**
+         * 还没有结束的阶段数量
+         */
+        private final AtomicInteger mRemaining;
+        /**
+         * 是否已经回调了最终结果或者被取消, 保证最终结果只回调一次
+         */
+        private final AtomicBoolean isFinished = new AtomicBoolean(false);
+
+        Execution(IBasicHandler.Callback callback, int dataType, Bundle data) {
+            int size = mStages.size();
+            mCallback = callback;
+            mDataType = dataType;
+            mData = data;
+            mPending = new AtomicIntegerArray(size);
+            for (int i = 0; i < size; i++) {
+                mPending.set(i, mStages.get(i).mDependencies.length);
+            }
+            mResults = new AtomicReferenceArray<>(size);
+            mRemaining = new AtomicInteger(size);
+        }
+
+        /**
+         * 取消, 还没有开始的阶段不再运行, 也不再回调最终结果; 正在运行的阶段不会被中断
+         */
+        public void cancel() {
+            isFinished.set(true);
+        }
+
+        /**
+         * 是否已经结束, 包括成功, 失败和取消
+         */
+        public boolean isDone() {
+            return isFinished.get();
+        }
+
+        Stage getStage(int index) {
+            return mStages.get(index);
+        }
+
+        void start(int index) {
+            if (isFinished.get()) {
+                return;
+            }
+            Stage stage = mStages.get(index);
+            Bundle input = new Bundle();
+            if (mData != null) {
+                input.putAll(mData);
+            }
+            for (int dependency : stage.mDependencies) {
+                input.putBundle(keyOf(mStages.get(dependency).mId), mResults.get(dependency));
+            }
+            StageTask task = new StageTask(this, index, input);
+            if (stage.mModel instanceof BasicModel) {
+                ((BasicModel) stage.mModel).executeStage(task);
+            } else {
+                task.run(); // 由model自己决定运行在哪个线程
+            }
+        }
+
+        private void complete(int index, Bundle result) {
+            mResults.set(index, result == null ? new Bundle() : result);
+            for (int dependent : mDependents[index]) {
+                if (mPending.decrementAndGet(dependent) == 0) {
+                    start(dependent);
+                }
+            }
+            if (mRemaining.decrementAndGet() == 0 && isFinished.compareAndSet(false, true)) {
+                Bundle output;
+                if (mSinks.length == 1) {
+                    output = mResults.get(mSinks[0]);
+                } else {
+                    output = new Bundle();
+                    for (int sink : mSinks) {
+                        output.putBundle(keyOf(mStages.get(sink).mId), mResults.get(sink));
+                    }
+                }
+                mCallback.onSuccess(mDataType, output);
+            }
+        }
+
+        /**
+         * 阶段失败, 回调一次onFailed()或者onError()
+         */
+        private void fail(int index, Bundle data, boolean error) {
+            if (!isFinished.compareAndSet(false, true)) {
+                return;
+            }
+            Bundle output = data == null ? new Bundle() : new Bundle(data);
+            output.putInt(KEY_FAILED_STAGE, mStages.get(index).mId);
+            if (error) {
+                mCallback.onError(mDataType, output);
+            } else {
+                mCallback.onFailed(mDataType, output);
+            }
+        }
+    }
+
+    /**
+     * 运行一个阶段的任务, 同时作为这个阶段的回调; 阶段只有第一次结束的回调有效
+     */
+    static final class StageTask implements Runnable, IBasicHandler.Callback {
+
+        private final Execution mExecution;
+        private final int mIndex;
+        private final Bundle mInput;
+        private final AtomicBoolean isDone = new AtomicBoolean(false);
+
+        StageTask(Execution execution, int index, Bundle input) {
+            mExecution = execution;
+            mIndex = index;
+            mInput = input;
+        }
+
+        @Override
+        public void run() {
+            if (mExecution.isFinished.get()) {
+                return;
+            }
+            Stage stage = mExecution.getStage(mIndex);
+            try {
+                stage.mModel.handleTask(this, stage.mTaskType, mInput);
+            } catch (RuntimeException e) {
+                reject(e);
+            }
+        }
+
+        /**
+         * 阶段被线程池拒绝或者抛出了异常
+         */
+        void reject(Exception e) {
+            Bundle data = new Bundle();
+            data.putSerializable(KEY_PIPELINE_ERROR, e);
+            onError(mExecution.getStage(mIndex).mTaskType, data);
+        }
+
+        @Override
+        public void call(int dataType, Bundle data) {
+        }
+
+        @Override
+        public void onSuccess(int dataType, Bundle data) {
+            if (isDone.compareAndSet(false, true)) {
+                mExecution.complete(mIndex, data);
+            }
+        }
+
+        @Override
+        public void onFailed(int dataType, Bundle data) {
+            if (isDone.compareAndSet(false, true)) {
+                mExecution.fail(mIndex, data, false);
+            }
+        }
+
+        @Override
+        public void onError(int dataType, Bundle data) {
+            if (isDone.compareAndSet(false, true)) {
+                mExecution.fail(mIndex, data, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Process;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按优先级执行任务的线程池, 优先级高的任务先执行<br/>
+ * 为了防止低优先级的任务一直得不到执行, 任务在队列中等待的时间会逐渐提高其优先级, 每等待一个agingMillis相当于提高一级<br/>
+ * 工作线程运行在后台优先级, 只有运行PRIORITY_INTERACTIVE及以上的任务时才会临时提升为默认优先级
+ */
+
+public class PriorityExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 后台任务, 例如预加载, 同步
+     */
+    public static final int PRIORITY_BACKGROUND = 0;
+    /**
+     * 默认优先级
+     */
+    public static final int PRIORITY_DEFAULT = 5;
+    /**
+     * 用户可见的任务, 不会排在后台任务之后
+     */
+    public static final int PRIORITY_INTERACTIVE = 10;
+    /**
+     * 默认每等待100ms提高一级优先级
+     */
+    public static final long DEFAULT_AGING_MILLIS = 100;
+
+    /**
+     * 相同排序值的任务按提交顺序执行
+     */
+    private final AtomicLong mSequence = new AtomicLong();
+    private final long mAgingNanos;
+
+    public PriorityExecutor(int nThreads) {
+        this(nThreads, DEFAULT_AGING_MILLIS);
+    }
+
+    /**
+     * @param nThreads    线程数量
+     * @param agingMillis 任务每等待多长时间提高一级优先级
+     */
+    public PriorityExecutor(int nThreads, long agingMillis) {
+        super(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new BackgroundThreadFactory());
+        if (agingMillis <= 0) {
+            throw new IllegalArgumentException("agingMillis must be positive: " + agingMillis);
+        }
+        mAgingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+    }
+
+    /**
+     * 以默认优先级执行任务
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof PriorityTask) {
+            super.execute(command);
+        } else {
+            execute(command, PRIORITY_DEFAULT);
+        }
+    }
+
+    /**
+     * 以指定的优先级执行任务
+     *
+     * @param command  任务
+     * @param priority 优先级, 值越大越先执行
+     */
+    public void execute(Runnable command, int priority) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        // 排序值为一个虚拟的截止时间, 优先级每高一级相当于提前提交了agingMillis, 排序值在入队后不再变化, 保证了堆的正确性
+        long rank = System.nanoTime() - priority * mAgingNanos;
+        super.execute(new PriorityTask(command, priority, rank, mSequence.getAndIncrement()));
+    }
+
+    private static class PriorityTask implements Runnable, Comparable<PriorityTask> {
+
+        private final Runnable mCommand;
+        private final int mPriority;
+        private final long mRank;
+        private final long mSequence;
+
+        PriorityTask(Runnable command, int priority, long rank, long sequence) {
+            mCommand = command;
+            mPriority = priority;
+            mRank = rank;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (mPriority < PRIORITY_INTERACTIVE) {
+                mCommand.run();
+                return;
+            }
+            Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+            try {
+                mCommand.run();
+            } finally {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            }
+        }
+
+        @Override
+        public int compareTo(PriorityTask another) {
+            if (mRank != another.mRank) {
+                return mRank - another.mRank < 0 ? -1 : 1;
+            }
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "jeson-mvp-priority-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
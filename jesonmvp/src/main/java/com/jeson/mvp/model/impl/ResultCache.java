@@ -0,0 +1,250 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import com.jeson.mvp.utils.TaskKey;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * getData()结果的内存缓存, 以数据类型和参数为键<br/>
+ * 按最近最少使用淘汰, 可以限制条目数量或者估算的字节数量, 每种数据类型可以设置不同的有效期<br/>
+ * 加载数据之前通过{@link #getVersion()}取得版本, 加载完成后通过{@link #put(int, Bundle, Object, long)}放入,
+ * 加载期间发生的失效会使这次放入被忽略, 因此失效之前开始加载的旧数据不会覆盖失效
+ */
+
+public class ResultCache {
+
+    /**
+     * 不限制
+     */
+    public static final long UNLIMITED = 0;
+
+    private final int mMaxEntries;
+    private final long mMaxBytes;
+    /**
+     * 按访问顺序排列, 最久没有访问的在最前面
+     */
+    private final LinkedHashMap<TaskKey, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * 每种数据类型的有效期
+     */
+    private final SparseArray<Long> mTtls = new SparseArray<>();
+    /**
+     * 每次失效递增的版本
+     */
+    private long mVersion;
+    /**
+     * 每种数据类型最后一次失效时的版本
+     */
+    private final SparseArray<Long> mInvalidatedVersions = new SparseArray<>();
+    /**
+     * 最后一次invalidateAll()时的版本
+     */
+    private long mAllInvalidatedVersion;
+    private long mBytes;
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    /**
+     * @param maxEntries 最大条目数量, UNLIMITED表示不限制
+     * @param maxBytes   最大字节数量, 根据sizeOf()估算, UNLIMITED表示不限制
+     */
+    public ResultCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("maxEntries and maxBytes must not be negative");
+        }
+        mMaxEntries = maxEntries;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * 设置某种数据类型的有效期, 默认永久有效
+     *
+     * @param dataType  数据类型
+     * @param ttlMillis 有效期, UNLIMITED表示永久有效
+     */
+    public synchronized void setTtl(int dataType, long ttlMillis) {
+        if (ttlMillis <= UNLIMITED) {
+            mTtls.remove(dataType);
+        } else {
+            mTtls.put(dataType, ttlMillis);
+        }
+    }
+
+    /**
+     * 获取缓存的数据
+     *
+     * @return 缓存的数据, 没有缓存或者已经过期时返回null
+     */
+    public Object get(int dataType, Bundle data) {
+        TaskKey key = new TaskKey(dataType, data);
+        synchronized (this) {
+            Entry entry = mEntries.get(key);
+            if (entry != null && entry.mExpireAt != 0 && entry.mExpireAt <= SystemClock.elapsedRealtime()) {
+                mEntries.remove(key);
+                mBytes -= entry.mSize;
+                entry = null;
+            }
+            if (entry == null) {
+                mMissCount++;
+                return null;
+            }
+            mHitCount++;
+            return entry.mValue;
+        }
+    }
+
+    /**
+     * 获取当前的版本, 在加载数据之前调用
+     */
+    public synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * 缓存数据, value为null时不缓存
+     */
+    public void put(int dataType, Bundle data, Object value) {
+        put(dataType, data, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * 缓存加载的数据, 这种数据类型在取得version之后失效过时不缓存
+     *
+     * @param version 开始加载之前通过getVersion()取得的版本
+     */
+    public void put(int dataType, Bundle data, Object value, long version) {
+        if (value == null) {
+            return;
+        }
+        TaskKey key = new TaskKey(dataType, data);
+        int size = sizeOf(value);
+        synchronized (this) {
+            Long invalidated = mInvalidatedVersions.get(dataType);
+            if (mAllInvalidatedVersion > version || (invalidated != null && invalidated > version)) {
+                return; // 加载期间已经失效, 数据可能已经过时
+            }
+            Long ttl = mTtls.get(dataType);
+            long expireAt = ttl == null ? 0 : SystemClock.elapsedRealtime() + ttl;
+            Entry previous = mEntries.put(key, new Entry(value, size, expireAt));
+            if (previous != null) {
+                mBytes -= previous.mSize;
+            }
+            mBytes += size;
+            trim();
+        }
+    }
+
+    /**
+     * 使某种数据类型的所有缓存失效
+     */
+    public synchronized void invalidate(int dataType) {
+        mInvalidatedVersions.put(dataType, ++mVersion);
+        Iterator<Map.Entry<TaskKey, Entry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TaskKey, Entry> entry = iterator.next();
+            if (entry.getKey().getType() == dataType) {
+                mBytes -= entry.getValue().mSize;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 使某种数据类型某个参数的缓存失效; 这种数据类型正在加载的其他参数也不会再放入缓存, 下次获取时重新加载
+     */
+    public void invalidate(int dataType, Bundle data) {
+        TaskKey key = new TaskKey(dataType, data);
+        synchronized (this) {
+            mInvalidatedVersions.put(dataType, ++mVersion);
+            Entry entry = mEntries.remove(key);
+            if (entry != null) {
+                mBytes -= entry.mSize;
+            }
+        }
+    }
+
+    /**
+     * 使所有缓存失效
+     */
+    public synchronized void invalidateAll() {
+        mAllInvalidatedVersion = ++mVersion;
+        mInvalidatedVersions.clear(); // 已经被mAllInvalidatedVersion覆盖
+        mEntries.clear();
+        mBytes = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * 估算数据占用的字节数量, 子类可以重写这个方法提供更准确的估算
+     *
+     * @param value 数据
+     * @return 字节数量
+     */
+    protected int sizeOf(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() * 2;
+        }
+        if (value instanceof Object[]) {
+            return ((Object[]) value).length * 4;
+        }
+        if (value instanceof Bundle) {
+            return ((Bundle) value).size() * 32;
+        }
+        return 16;
+    }
+
+    private void trim() {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext() && ((mMaxEntries != UNLIMITED && mEntries.size() > mMaxEntries)
+                || (mMaxBytes != UNLIMITED && mBytes > mMaxBytes))) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            mBytes -= eldest.mSize;
+            mEvictionCount++;
+        }
+    }
+
+    private static class Entry {
+        private final Object mValue;
+        private final int mSize;
+        /**
+         * 过期时间, 0表示永久有效
+         */
+        private final long mExpireAt;
+
+        Entry(Object value, int size, long expireAt) {
+            mValue = value;
+            mSize = size;
+            mExpireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,640 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.util.SparseIntArray;
+
+import com.jeson.mvp.utils.BundleCodec;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的结果存储, 以数据类型和参数为键, 保存在目录下的内存映射段文件中, 进程重启后仍然可以读取<br/>
+ * 每个段文件是一个只追加的日志, 记录带有CRC校验, 打开时按顺序扫描所有段重建内存中的索引, 写到一半的记录会被忽略;
+ * 读取直接从映射的内存中复制, 不需要系统调用. 所有段文件的总大小不超过maxBytes, 需要新的段而空间不足时进行压缩:
+ * 按写入顺序从新到旧保留有效记录, 最多占用一半的段, 写入新的段后删除旧的段<br/>
+ * 每种数据类型可以设置版本, 数据格式变化时提高版本, 旧版本的记录不再返回, 并在压缩时删除<br/>
+ * 使用方法, 冷启动时先回调上一次的结果, 再在后台刷新:
+ * <pre>
+ * public void handleTask(Callback callback, int taskType, Bundle data) {
+ *     Bundle stored = getStoredResult(taskType, data);
+ *     if (stored != null) {
+ *         callback.call(taskType, stored);
+ *     }
+ *     Bundle fresh = fetch(taskType, data);
+ *     storeResult(taskType, data, fresh);
+ *     callback.onSuccess(taskType, fresh);
+ * }
+ * </pre>
+ * 映射的内存在进程被杀死后仍然会由系统写入文件, 需要防止断电丢失时调用flush()
+ */
+
+public class ResultStore implements Closeable {
+
+    /**
+     * 默认的段文件大小
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int SEGMENT_MAGIC = 0x4A4D5253;
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * 段文件头: magic和格式版本
+     */
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    /**
+     * 记录头: 记录体的长度和CRC
+     */
+    private static final int RECORD_HEADER_BYTES = 8;
+    /**
+     * 记录体的固定部分: 序号, 数据类型, 版本, 键的长度, 值的长度
+     */
+    private static final int RECORD_FIXED_BYTES = 8 + 4 + 4 + 4 + 4;
+    private static final int TOMBSTONE = -1;
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final int mSegmentBytes;
+    private final int mMaxSegments;
+    /**
+     * 每种数据类型的版本, 默认为0
+     */
+    private final SparseIntArray mVersions = new SparseIntArray();
+    /**
+     * 按id排列的段
+     */
+    private final TreeMap<Long, Segment> mSegments = new TreeMap<>();
+    private final HashMap<Key, Location> mIndex = new HashMap<>();
+    private Segment mActive;
+    private long mNextSegmentId = 0;
+    private long mSequence = 0;
+    /**
+     * 索引中的记录占用的字节数量
+     */
+    private long mLiveBytes = 0;
+    private long mHitCount;
+    private long mMissCount;
+    private long mCompactionCount;
+    private boolean isClosed = false;
+
+    /**
+     * @param directory 保存段文件的目录, 不存在时创建, 不要与其他数据共用
+     * @param maxBytes  所有段文件的最大总大小, 至少为两个段
+     * @throws IOException 无法创建或者读取段文件
+     */
+    public ResultStore(File directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param directory    保存段文件的目录
+     * @param maxBytes     所有段文件的最大总大小, 至少为两个段
+     * @param segmentBytes 每个段文件的大小, 同时也限制了单个记录的大小
+     * @throws IOException 无法创建或者读取段文件
+     */
+    public ResultStore(File directory, long maxBytes, int segmentBytes) throws IOException {
+        if (segmentBytes <= SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES + RECORD_FIXED_BYTES) {
+            throw new IllegalArgumentException("segmentBytes is too small: " + segmentBytes);
+        }
+        if (maxBytes < 2L * segmentBytes) {
+            throw new IllegalArgumentException("maxBytes must hold at least two segments: " + maxBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mSegmentBytes = segmentBytes;
+        mMaxSegments = (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes);
+        load();
+    }
+
+    /**
+     * 设置某种数据类型的版本, 需要在读写之前设置; 与记录的版本不一致时记录不再返回
+     */
+    public synchronized void setVersion(int dataType, int version) {
+        mVersions.put(dataType, version);
+    }
+
+    /**
+     * 获取保存的结果
+     *
+     * @return 结果, 没有保存或者版本不一致时返回null
+     */
+    public Bundle get(int dataType, Bundle args) {
+        Key key = new Key(dataType, BundleCodec.encode(args));
+        byte[] value;
+        synchronized (this) {
+            checkOpen();
+            Location location = mIndex.get(key);
+            if (location == null || location.mVersion != mVersions.get(dataType, 0)) {
+                mMissCount++;
+                return null;
+            }
+            mHitCount++;
+            value = location.readValue();
+        }
+        try {
+            return BundleCodec.decode(value);
+        } catch (IllegalArgumentException e) {
+            return null; // CRC已经校验过, 只有编码格式不兼容时才会出错
+        }
+    }
+
+    /**
+     * 保存结果, 覆盖之前的结果
+     *
+     * @param value 结果, 为null时删除之前的结果
+     * @return 是否保存成功, 结果超过段文件的大小或者无法创建段文件时返回false
+     * @throws IllegalArgumentException 参数或者结果中包含不支持的值, 参考{@link BundleCodec}
+     */
+    public boolean put(int dataType, Bundle args, Bundle value) {
+        byte[] keyBytes = BundleCodec.encode(args);
+        byte[] valueBytes = value == null ? null : BundleCodec.encode(value);
+        Key key = new Key(dataType, keyBytes);
+        synchronized (this) {
+            checkOpen();
+            if (valueBytes == null && !mIndex.containsKey(key)) {
+                return true;
+            }
+            return append(key, mVersions.get(dataType, 0), valueBytes);
+        }
+    }
+
+    /**
+     * 删除保存的结果
+     */
+    public void remove(int dataType, Bundle args) {
+        Key key = new Key(dataType, BundleCodec.encode(args));
+        synchronized (this) {
+            checkOpen();
+            if (mIndex.containsKey(key)) {
+                append(key, mVersions.get(dataType, 0), null);
+            }
+        }
+    }
+
+    /**
+     * 删除某种数据类型的所有结果
+     */
+    public synchronized void removeAll(int dataType) {
+        checkOpen();
+        List<Key> keys = new ArrayList<>();
+        for (Key key : mIndex.keySet()) {
+            if (key.mDataType == dataType) {
+                keys.add(key);
+            }
+        }
+        int version = mVersions.get(dataType, 0);
+        for (Key key : keys) {
+            append(key, version, null);
+        }
+    }
+
+    /**
+     * 压缩, 只保留最近写入的有效记录, 最多占用一半的段; 需要新的段而段的数量已经达到上限时会自动压缩
+     */
+    public synchronized void compact() throws IOException {
+        checkOpen();
+        compact(mMaxSegments / 2);
+    }
+
+    /**
+     * 将映射的内存写入文件, 只有需要防止断电丢失时才需要调用
+     */
+    public synchronized void flush() {
+        checkOpen();
+        for (Segment segment : mSegments.values()) {
+            segment.mBuffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        for (Segment segment : mSegments.values()) {
+            segment.mBuffer.force();
+            segment.close();
+        }
+        mSegments.clear();
+        mIndex.clear();
+        mActive = null;
+    }
+
+    public synchronized int size() {
+        return mIndex.size();
+    }
+
+    /**
+     * 获取有效记录占用的字节数量
+     */
+    public synchronized long getLiveBytes() {
+        return mLiveBytes;
+    }
+
+    /**
+     * 获取段文件的总大小
+     */
+    public synchronized long getFileBytes() {
+        long bytes = 0;
+        for (Segment segment : mSegments.values()) {
+            bytes += segment.mBuffer.capacity();
+        }
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized long getCompactionCount() {
+        return mCompactionCount;
+    }
+
+    private void checkOpen() {
+        if (isClosed) {
+            throw new IllegalStateException("ResultStore " + mDirectory + " has been closed");
+        }
+    }
+
+    /**
+     * 追加一条记录并更新索引
+     *
+     * @param value 为null时追加删除记录
+     */
+    private boolean append(Key key, int version, byte[] value) {
+        int bodyBytes = RECORD_FIXED_BYTES + key.mArgs.length + (value == null ? 0 : value.length);
+        int recordBytes = RECORD_HEADER_BYTES + bodyBytes;
+        if (recordBytes > mSegmentBytes - SEGMENT_HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer body = ByteBuffer.allocate(bodyBytes);
+        long sequence = ++mSequence;
+        body.putLong(sequence).putInt(key.mDataType).putInt(version).putInt(key.mArgs.length).put(key.mArgs);
+        if (value == null) {
+            body.putInt(TOMBSTONE);
+        } else {
+            body.putInt(value.length).put(value);
+        }
+        Segment segment;
+        try {
+            segment = reserve(recordBytes);
+        } catch (IOException e) {
+            return false;
+        }
+        int offset = segment.mWritePosition;
+        ByteBuffer buffer = segment.mBuffer;
+        buffer.position(offset + RECORD_HEADER_BYTES);
+        buffer.put(body.array());
+        // 记录体写完之后再写记录头, 进程在写入过程中被杀死时, 下次打开会因为长度或者CRC不匹配而忽略这条记录
+        buffer.putInt(offset + 4, crc(body.array(), 0, bodyBytes));
+        buffer.putInt(offset, bodyBytes);
+        segment.mWritePosition = offset + recordBytes;
+        Location previous;
+        if (value == null) {
+            previous = mIndex.remove(key);
+        } else {
+            previous = mIndex.put(key, new Location(segment, offset, recordBytes, sequence, version,
+                    offset + RECORD_HEADER_BYTES + RECORD_FIXED_BYTES + key.mArgs.length, value.length));
+            mLiveBytes += recordBytes;
+        }
+        if (previous != null) {
+            mLiveBytes -= previous.mRecordBytes;
+        }
+        return true;
+    }
+
+    /**
+     * 获取有足够空间写入记录的段, 当前段已满时创建新的段, 段的数量达到上限时先压缩
+     */
+    private Segment reserve(int recordBytes) throws IOException {
+        if (mActive != null && mActive.mWritePosition + recordBytes <= mActive.mBuffer.capacity()) {
+            return mActive;
+        }
+        if (mSegments.size() >= mMaxSegments) {
+            compact(mMaxSegments / 2);
+            if (mActive != null && mActive.mWritePosition + recordBytes <= mActive.mBuffer.capacity()) {
+                return mActive;
+            }
+        }
+        mActive = createSegment();
+        return mActive;
+    }
+
+    /**
+     * 将最近写入的有效记录复制到新的段, 然后删除所有旧的段
+     *
+     * @param maxSegments 保留的记录最多占用的段数量
+     */
+    private void compact(int maxSegments) throws IOException {
+        List<Map.Entry<Key, Location>> entries = new ArrayList<>(mIndex.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Key, Location>>() {
+            @Override
+            public int compare(Map.Entry<Key, Location> lhs, Map.Entry<Key, Location> rhs) {
+                long l = lhs.getValue().mSequence;
+                long r = rhs.getValue().mSequence;
+                return l > r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        List<Segment> old = new ArrayList<>(mSegments.values());
+        // 从新到旧写入新的段, 段的数量达到预算后丢弃更旧的记录; 打开时按序号决定新旧, 与记录在段中的顺序无关
+        mActive = null;
+        HashMap<Key, Location> index = new HashMap<>();
+        long liveBytes = 0;
+        int created = 0;
+        for (Map.Entry<Key, Location> entry : entries) {
+            Location location = entry.getValue();
+            if (location.mVersion != mVersions.get(entry.getKey().mDataType, 0)) {
+                continue; // 旧版本的记录不再保留
+            }
+            if (mActive == null || mActive.mWritePosition + location.mRecordBytes > mActive.mBuffer.capacity()) {
+                if (created >= Math.max(1, maxSegments)) {
+                    break;
+                }
+                mActive = createSegment();
+                created++;
+            }
+            int offset = mActive.mWritePosition;
+            byte[] record = location.readRecord();
+            ByteBuffer buffer = mActive.mBuffer;
+            buffer.position(offset);
+            buffer.put(record);
+            mActive.mWritePosition = offset + record.length;
+            index.put(entry.getKey(), location.moveTo(mActive, offset));
+            liveBytes += record.length;
+        }
+        // 新的段写入文件之后才删除旧的段, 进程在这之前被杀死时旧的段仍然完整
+        for (Segment segment : mSegments.values()) {
+            if (!old.contains(segment)) {
+                segment.mBuffer.force();
+            }
+        }
+        // 从旧到新删除, 不会出现删除记录已经被删除而更旧的结果还在的情况
+        for (Segment segment : old) {
+            mSegments.remove(segment.mId);
+            segment.close();
+            segment.mFile.delete();
+        }
+        mIndex.clear();
+        mIndex.putAll(index);
+        mLiveBytes = liveBytes;
+        mCompactionCount++;
+    }
+
+    private Segment createSegment() throws IOException {
+        long id = mNextSegmentId++;
+        File file = new File(mDirectory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+        Segment segment = Segment.open(id, file, mSegmentBytes);
+        segment.mBuffer.putInt(0, SEGMENT_MAGIC);
+        segment.mBuffer.putInt(4, FORMAT_VERSION);
+        segment.mWritePosition = SEGMENT_HEADER_BYTES;
+        mSegments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * 打开时扫描所有段重建索引, 格式不正确的段文件会被删除
+     */
+    private void load() throws IOException {
+        File[] files = mDirectory.listFiles();
+        TreeMap<Long, File> found = new TreeMap<>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        found.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                    } catch (NumberFormatException e) {
+                        // 不是这里创建的文件
+                    }
+                }
+            }
+        }
+        // 扫描期间删除记录也需要保留, 压缩后较新的段中可能有序号更小的记录
+        HashMap<Key, Location> scanned = new HashMap<>();
+        for (Map.Entry<Long, File> entry : found.entrySet()) {
+            Segment segment = Segment.open(entry.getKey(), entry.getValue(), 0);
+            ByteBuffer buffer = segment.mBuffer;
+            if (buffer.capacity() < SEGMENT_HEADER_BYTES || buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                segment.close();
+                segment.mFile.delete();
+                continue;
+            }
+            mSegments.put(segment.mId, segment);
+            mNextSegmentId = segment.mId + 1;
+            scan(segment, scanned);
+        }
+        Iterator<Map.Entry<Key, Location>> iterator = scanned.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Location> entry = iterator.next();
+            if (entry.getValue().mValueBytes == TOMBSTONE) {
+                iterator.remove();
+            } else {
+                mLiveBytes += entry.getValue().mRecordBytes;
+            }
+        }
+        mIndex.putAll(scanned);
+        if (!mSegments.isEmpty()) {
+            mActive = mSegments.lastEntry().getValue();
+        }
+    }
+
+    private void scan(Segment segment, HashMap<Key, Location> scanned) {
+        ByteBuffer buffer = segment.mBuffer;
+        int position = SEGMENT_HEADER_BYTES;
+        int capacity = buffer.capacity();
+        while (position + RECORD_HEADER_BYTES + RECORD_FIXED_BYTES <= capacity) {
+            int bodyBytes = buffer.getInt(position);
+            if (bodyBytes < RECORD_FIXED_BYTES || position + RECORD_HEADER_BYTES + bodyBytes > capacity) {
+                break; // 没有写入的空间或者写到一半的记录
+            }
+            byte[] body = new byte[bodyBytes];
+            buffer.position(position + RECORD_HEADER_BYTES);
+            buffer.get(body);
+            if (crc(body, 0, bodyBytes) != buffer.getInt(position + 4)) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(body);
+            long sequence = record.getLong();
+            int dataType = record.getInt();
+            int version = record.getInt();
+            int argsBytes = record.getInt();
+            if (argsBytes < 0 || argsBytes > bodyBytes - RECORD_FIXED_BYTES) {
+                break;
+            }
+            byte[] args = new byte[argsBytes];
+            record.get(args);
+            int valueBytes = record.getInt();
+            if (valueBytes != TOMBSTONE && valueBytes != record.remaining()) {
+                break;
+            }
+            Key key = new Key(dataType, args);
+            Location previous = scanned.get(key);
+            if (previous == null || previous.mSequence < sequence) {
+                scanned.put(key, new Location(segment, position, RECORD_HEADER_BYTES + bodyBytes, sequence, version,
+                        position + RECORD_HEADER_BYTES + RECORD_FIXED_BYTES + argsBytes, valueBytes));
+            }
+            mSequence = Math.max(mSequence, sequence);
+            position += RECORD_HEADER_BYTES + bodyBytes;
+        }
+        segment.mWritePosition = position;
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static final class Key {
+
+        private final int mDataType;
+        /**
+         * 参数的编码, 键的顺序固定, 内容相同的参数编码相同
+         */
+        private final byte[] mArgs;
+        private final int mHashCode;
+
+        Key(int dataType, byte[] args) {
+            mDataType = dataType;
+            mArgs = args;
+            mHashCode = 31 * dataType + Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mDataType == other.mDataType && mHashCode == other.mHashCode && Arrays.equals(mArgs, other.mArgs);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    /**
+     * 记录在段中的位置
+     */
+    private static final class Location {
+
+        private final Segment mSegment;
+        private final int mOffset;
+        private final int mRecordBytes;
+        private final long mSequence;
+        private final int mVersion;
+        private final int mValueOffset;
+        /**
+         * 值的长度, 为TOMBSTONE时表示删除记录, 只在打开时扫描期间出现
+         */
+        private final int mValueBytes;
+
+        Location(Segment segment, int offset, int recordBytes, long sequence, int version, int valueOffset, int valueBytes) {
+            mSegment = segment;
+            mOffset = offset;
+            mRecordBytes = recordBytes;
+            mSequence = sequence;
+            mVersion = version;
+            mValueOffset = valueOffset;
+            mValueBytes = valueBytes;
+        }
+
+        byte[] readValue() {
+            byte[] value = new byte[mValueBytes];
+            ByteBuffer buffer = mSegment.mBuffer.duplicate();
+            buffer.position(mValueOffset);
+            buffer.get(value);
+            return value;
+        }
+
+        byte[] readRecord() {
+            byte[] record = new byte[mRecordBytes];
+            ByteBuffer buffer = mSegment.mBuffer.duplicate();
+            buffer.position(mOffset);
+            buffer.get(record);
+            return record;
+        }
+
+        Location moveTo(Segment segment, int offset) {
+            return new Location(segment, offset, mRecordBytes, mSequence, mVersion, offset + (mValueOffset - mOffset), mValueBytes);
+        }
+    }
+
+    /**
+     * 一个映射到内存的段文件
+     */
+    private static final class Segment {
+
+        private final long mId;
+        private final File mFile;
+        private final RandomAccessFile mRandomAccessFile;
+        private final MappedByteBuffer mBuffer;
+        /**
+         * 下一条记录的写入位置
+         */
+        private int mWritePosition;
+
+        private Segment(long id, File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+            mId = id;
+            mFile = file;
+            mRandomAccessFile = randomAccessFile;
+            mBuffer = buffer;
+        }
+
+        /**
+         * @param size 文件大小, 为0时使用已有文件的大小
+         */
+        static Segment open(long id, File file, int size) throws IOException {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                if (size > 0) {
+                    randomAccessFile.setLength(size);
+                }
+                long length = Math.min(Integer.MAX_VALUE, randomAccessFile.length());
+                MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+                return new Segment(id, file, randomAccessFile, buffer);
+            } catch (IOException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+        }
+
+        void close() throws IOException {
+            mRandomAccessFile.close(); // 映射的内存在没有引用之后释放
+        }
+    }
+}
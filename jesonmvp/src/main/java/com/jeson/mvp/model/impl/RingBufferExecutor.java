@@ -0,0 +1,243 @@
+package com.jeson.mvp.model.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 使用预先分配的环形队列的线程池, 提交和执行任务时不会创建任何对象<br/>
+ * 环形队列已满时任务会进入一个后备队列, 这时会创建队列节点并计入{@link #getAllocationCount()}, 稳定状态下这个数值应该保持为0,
+ * 否则说明队列容量太小
+ */
+
+public class RingBufferExecutor extends AbstractExecutorService {
+
+    /**
+     * 工作线程在休眠之前自旋的次数
+     */
+    private static final int SPIN_TRIES = 64;
+
+    private final int mMask;
+    private final AtomicReferenceArray<Runnable> mBuffer;
+    /**
+     * 每个槽位的序号, 用于判断槽位是否可写或者可读
+     */
+    private final AtomicLongArray mSequences;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+    /**
+     * 环形队列已满时使用的后备队列
+     */
+    private final Queue<Runnable> mOverflow = new ConcurrentLinkedQueue<>();
+    private final AtomicLong mAllocationCount = new AtomicLong();
+    private final Thread[] mWorkers;
+    /**
+     * 每个工作线程是否正在休眠
+     */
+    private final AtomicIntegerArray mParked;
+    private volatile boolean isShutdown = false;
+
+    /**
+     * @param nThreads 线程数量
+     * @param capacity 环形队列的容量, 会向上取整为2的幂
+     */
+    public RingBufferExecutor(int nThreads, int capacity) {
+        if (nThreads <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("nThreads and capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mBuffer = new AtomicReferenceArray<>(size);
+        mSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+        mParked = new AtomicIntegerArray(nThreads);
+        mWorkers = new Thread[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            mWorkers[i] = new Thread(new Worker(i), "jeson-mvp-ring-" + i);
+            mWorkers[i].setDaemon(true);
+        }
+        for (Thread worker : mWorkers) {
+            worker.start();
+        }
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * 获取环形队列已满时创建的对象数量
+     */
+    public long getAllocationCount() {
+        return mAllocationCount.get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (isShutdown) {
+            throw new RejectedExecutionException("RingBufferExecutor has been shut down");
+        }
+        // 后备队列不为空时新任务也进入后备队列, 保证先提交的任务先执行
+        if (!mOverflow.isEmpty() || !offer(command)) {
+            mAllocationCount.incrementAndGet();
+            mOverflow.offer(command);
+        }
+        wakeUpWorker();
+    }
+
+    private boolean offer(Runnable command) {
+        for (; ; ) {
+            long tail = mTail.get();
+            int index = (int) tail & mMask;
+            long diff = mSequences.get(index) - tail;
+            if (diff == 0) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    mBuffer.set(index, command);
+                    mSequences.set(index, tail + 1); // 发布, 之后消费者才可以读取
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false; // 已满
+            }
+        }
+    }
+
+    private Runnable poll() {
+        for (; ; ) {
+            long head = mHead.get();
+            int index = (int) head & mMask;
+            long diff = mSequences.get(index) - (head + 1);
+            if (diff == 0) {
+                if (mHead.compareAndSet(head, head + 1)) {
+                    Runnable command = mBuffer.get(index);
+                    mBuffer.set(index, null);
+                    mSequences.set(index, head + mMask + 1); // 释放槽位, 供下一轮写入
+                    return command;
+                }
+            } else if (diff < 0) {
+                return mOverflow.poll(); // 环形队列为空
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        return mHead.get() == mTail.get() && mOverflow.isEmpty();
+    }
+
+    private void wakeUpWorker() {
+        for (int i = 0; i < mWorkers.length; i++) {
+            if (mParked.get(i) == 1 && mParked.compareAndSet(i, 1, 0)) {
+                LockSupport.unpark(mWorkers[i]);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+        for (Thread worker : mWorkers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        Runnable command;
+        while ((command = poll()) != null) {
+            pending.add(command);
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        if (!isShutdown) {
+            return false;
+        }
+        for (Thread worker : mWorkers) {
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : mWorkers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return isTerminated();
+            }
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+        }
+        return isTerminated();
+    }
+
+    private class Worker implements Runnable {
+
+        private final int mIndex;
+
+        Worker(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public void run() {
+            int spins = 0;
+            for (; ; ) {
+                Runnable command = poll();
+                if (command != null) {
+                    spins = 0;
+                    try {
+                        command.run();
+                    } catch (Throwable t) {
+                        // 包括Error, 只有一个消费者时工作线程退出会使之后的任务全部停滞, 因此只报告异常, 线程继续运行
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                    }
+                } else if (isShutdown) {
+                    return;
+                } else if (spins < SPIN_TRIES) {
+                    spins++;
+                    Thread.yield();
+                } else {
+                    // 先标记为休眠再检查一次队列, 避免错过休眠前提交的任务; 之后提交的任务一定会看到标记并唤醒线程,
+                    // 所以空闲时一直休眠, 不需要定时醒来检查
+                    mParked.set(mIndex, 1);
+                    if (isEmpty() && !isShutdown) {
+                        LockSupport.park(RingBufferExecutor.this);
+                    }
+                    mParked.set(mIndex, 0);
+                    spins = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.jeson.mvp.model.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内共享的任务调度器, 所有选择共享模式的model共用同一个按CPU核数确定大小的线程池<br/>
+ * 每个model拥有一个自己的Lane(通道), Lane限制了该model同时运行的任务数量, 并发数为1时保证任务按提交顺序串行执行<br/>
+ * 无论存在多少个model, 线程数量始终保持不变
+ */
+
+public final class SharedScheduler {
+
+    /**
+     * 空闲线程的存活时间
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile SharedScheduler sInstance;
+
+    /**
+     * 共享的线程池
+     */
+    private final ThreadPoolExecutor mPool;
+
+    private SharedScheduler() {
+        int nThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        mPool = new ThreadPoolExecutor(nThreads, nThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+        mPool.allowCoreThreadTimeOut(true); // 空闲时释放线程
+    }
+
+    public static SharedScheduler getInstance() {
+        if (sInstance == null) {
+            synchronized (SharedScheduler.class) {
+                if (sInstance == null) {
+                    sInstance = new SharedScheduler();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * 获取共享线程池的线程数量
+     *
+     * @return 线程数量
+     */
+    public int getPoolSize() {
+        return mPool.getMaximumPoolSize();
+    }
+
+    /**
+     * 创建一个新的Lane
+     *
+     * @param maxConcurrency 该Lane同时运行的最大任务数量, 为1时任务串行执行
+     * @return Lane, 关闭Lane不会影响共享线程池
+     */
+    public Lane newLane(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        return new Lane(maxConcurrency);
+    }
+
+    /**
+     * 共享线程池中的一个通道, 任务先进入Lane自己的队列, 再按并发限制逐个交给共享线程池运行
+     */
+    public final class Lane extends AbstractExecutorService {
+
+        private final int mMaxConcurrency;
+        /**
+         * 等待运行的任务
+         */
+        private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+        /**
+         * 已交给共享线程池的任务数量
+         */
+        private final AtomicInteger mActive = new AtomicInteger();
+        /**
+         * 正在运行当前Lane任务的共享线程, 读写时需要持有它的锁, 保证shutdownNow()只中断正在运行本Lane任务的线程
+         */
+        private final Set<Thread> mRunning = new HashSet<>();
+        private volatile boolean isShutdown = false;
+        /**
+         * 每次从队列中取出一个任务运行, 运行完成后再调度下一个, 使各个Lane之间公平的使用共享线程池
+         */
+        private final Runnable mDrainer = new Runnable() {
+            @Override
+            public void run() {
+                Thread current = Thread.currentThread();
+                synchronized (mRunning) {
+                    mRunning.add(current);
+                }
+                try {
+                    Runnable task = mTasks.poll();
+                    if (task != null) {
+                        task.run();
+                    }
+                } finally {
+                    synchronized (mRunning) {
+                        mRunning.remove(current);
+                    }
+                    // 线程属于共享线程池, 不能把shutdownNow()的中断状态带给其他Lane的任务
+                    Thread.interrupted();
+                    if (mActive.decrementAndGet() == 0 && isShutdown && mTasks.isEmpty()) {
+                        synchronized (Lane.this) {
+                            Lane.this.notifyAll();
+                        }
+                    }
+                    schedule();
+                }
+            }
+        };
+
+        private Lane(int maxConcurrency) {
+            mMaxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            if (isShutdown) {
+                throw new RejectedExecutionException("Lane has been shut down");
+            }
+            mTasks.offer(command);
+            schedule();
+        }
+
+        /**
+         * 每次提交任务或者完成任务时最多调度一个drainer, 否则在drainer取出任务之前会不断的调度新的drainer
+         */
+        private void schedule() {
+            for (; ; ) {
+                int active = mActive.get();
+                if (active >= mMaxConcurrency || mTasks.isEmpty()) {
+                    return;
+                }
+                if (mActive.compareAndSet(active, active + 1)) {
+                    try {
+                        mPool.execute(mDrainer);
+                    } catch (RejectedExecutionException e) {
+                        mActive.decrementAndGet();
+                        throw e;
+                    }
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            isShutdown = true;
+        }
+
+        /**
+         * 与ThreadPoolExecutor一致, 返回还没有运行的任务并中断正在运行的任务, 只中断正在运行当前Lane任务的线程
+         */
+        @Override
+        public List<Runnable> shutdownNow() {
+            isShutdown = true;
+            synchronized (mRunning) {
+                for (Thread thread : mRunning) {
+                    thread.interrupt();
+                }
+            }
+            List<Runnable> pending = new ArrayList<>();
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                pending.add(task);
+            }
+            return pending.isEmpty() ? Collections.<Runnable>emptyList() : pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return isShutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return isShutdown && mActive.get() == 0 && mTasks.isEmpty();
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jeson-mvp-shared-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.utils.TaskKey;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 相同任务合并执行: 某个键对应的任务正在执行时, 之后相同键的任务不再重新执行, 而是等待正在执行的任务, 并收到相同的回调<br/>
+ * 使用方法:
+ * <pre>
+ * public void handleTask(Callback callback, int taskType, Bundle data) {
+ *     Callback leader = joinSingleFlight(callback, taskType, data);
+ *     if (leader != null) {
+ *         // 没有相同的任务正在执行, 开始执行任务, 结果回调给leader, 出现异常或者任务被取消时也要回调leader.onError()
+ *     }
+ * }
+ * </pre>
+ * leader一直没有回调时(例如任务抛出了异常或者被丢弃), 任务在超时后结束, 所有等待的回调收到onError(), data中{@link #KEY_TIMEOUT}为true
+ */
+
+public class SingleFlight {
+
+    /**
+     * 根据任务类型和参数计算任务的键
+     */
+    public interface KeyFunction {
+        /**
+         * @param taskType 任务类型
+         * @param data     任务参数
+         * @return 任务的键, 需要正确实现equals()和hashCode()
+         */
+        Object getKey(int taskType, Bundle data);
+    }
+
+    /**
+     * 默认任务类型相同且参数内容相等即为相同的任务
+     */
+    public static final KeyFunction DEFAULT_KEY_FUNCTION = new KeyFunction() {
+        @Override
+        public Object getKey(int taskType, Bundle data) {
+            return new TaskKey(taskType, data);
+        }
+    };
+
+    /**
+     * 默认的超时时间
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60 * 1000;
+    /**
+     * 任务超时时, onError()回调的data中这个键的值为true
+     */
+    public static final String KEY_TIMEOUT = "jeson_mvp_single_flight_timeout";
+
+    private final ConcurrentMap<Object, Flight> mFlights = new ConcurrentHashMap<>();
+    private volatile KeyFunction mKeyFunction = DEFAULT_KEY_FUNCTION;
+    private volatile long mTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS);
+
+    public void setKeyFunction(KeyFunction keyFunction) {
+        mKeyFunction = keyFunction == null ? DEFAULT_KEY_FUNCTION : keyFunction;
+    }
+
+    /**
+     * 设置超时时间, 超时的任务不再被合并, 等待它的回调收到onError(); 只对之后开始的任务生效
+     *
+     * @param timeoutMillis 超时时间
+     */
+    public void setTimeout(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeoutMillis must be positive: " + timeoutMillis);
+        }
+        mTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * 加入任务
+     *
+     * @param owner    执行任务的对象, 一般为model
+     * @param callback 任务的回调
+     * @param taskType 任务类型
+     * @param data     任务参数
+     * @return 如果没有相同的任务正在执行, 返回一个回调, 调用者需要执行任务并将结果回调给它; 否则返回null, callback会收到正在执行的任务的结果
+     */
+    public IBasicHandler.Callback join(Object owner, IBasicHandler.Callback callback, int taskType, Bundle data) {
+        return join(owner, callback, taskType, data, null);
+    }
+
+    /**
+     * 加入任务, 新开始的任务会在超时时间后通过scheduler检查是否已经结束, 即使之后没有相同的任务加入, 等待的回调也不会一直得不到结果
+     *
+     * @param scheduler 检查超时的调度器, 为null时只在之后加入相同的任务时检查
+     * @see #join(Object, IBasicHandler.Callback, int, Bundle)
+     */
+    public IBasicHandler.Callback join(Object owner, IBasicHandler.Callback callback, int taskType, Bundle data,
+                                       IScheduler scheduler) {
+        Object key = mKeyFunction.getKey(taskType, data);
+        for (; ; ) {
+            Flight current = mFlights.get(key);
+            if (current == null) {
+                Flight flight = new Flight(owner, key, taskType, callback, mTimeoutNanos);
+                current = mFlights.putIfAbsent(key, flight);
+                if (current == null) {
+                    flight.scheduleTimeout(scheduler);
+                    return flight;
+                }
+            }
+            if (current.isExpired()) {
+                current.expire();
+            } else if (current.attach(callback)) {
+                return null;
+            }
+            // 任务刚好结束或者已经超时, 重新开始一个
+            mFlights.remove(key, current);
+        }
+    }
+
+    /**
+     * 放弃owner正在执行的所有任务, 等待这些任务的回调会收到onError()
+     *
+     * @param owner 执行任务的对象
+     */
+    public void abandon(Object owner) {
+        Iterator<Flight> iterator = mFlights.values().iterator();
+        while (iterator.hasNext()) {
+            Flight flight = iterator.next();
+            if (flight.mOwner == owner) {
+                iterator.remove();
+                flight.abandon();
+            }
+        }
+    }
+
+    /**
+     * 正在执行的一个任务, 将回调转发给所有等待的回调
+     */
+    private class Flight implements IBasicHandler.Callback {
+
+        private final Object mOwner;
+        private final Object mKey;
+        private final int mTaskType;
+        private final IBasicHandler.Callback mLeader;
+        private final List<IBasicHandler.Callback> mCallbacks = new ArrayList<>(2);
+        private final long mDeadlineNanos;
+        private boolean isDone = false;
+        /**
+         * 检查超时的调度器, 任务结束时移除超时检查
+         */
+        private volatile IScheduler mScheduler;
+        private final Runnable mTimeout = new Runnable() {
+            @Override
+            public void run() {
+                if (mFlights.remove(mKey, Flight.this)) {
+                    expire();
+                }
+            }
+        };
+
+        Flight(Object owner, Object key, int taskType, IBasicHandler.Callback leader, long timeoutNanos) {
+            mOwner = owner;
+            mKey = key;
+            mTaskType = taskType;
+            mLeader = leader;
+            mCallbacks.add(leader);
+            mDeadlineNanos = System.nanoTime() + timeoutNanos;
+        }
+
+        void scheduleTimeout(IScheduler scheduler) {
+            if (scheduler != null) {
+                mScheduler = scheduler;
+                scheduler.postDelayed(mTimeout, TimeUnit.NANOSECONDS.toMillis(mDeadlineNanos - System.nanoTime()) + 1);
+            }
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - mDeadlineNanos >= 0;
+        }
+
+        /**
+         * 超时, 所有等待的回调(包括leader的原始回调)收到onError(), 之后leader的回调被忽略
+         */
+        void expire() {
+            IBasicHandler.Callback[] callbacks = snapshot(true);
+            if (callbacks != null) {
+                cancelTimeout();
+                Bundle data = new Bundle();
+                data.putBoolean(KEY_TIMEOUT, true);
+                for (IBasicHandler.Callback callback : callbacks) {
+                    callback.onError(mTaskType, data);
+                }
+            }
+        }
+
+        private void cancelTimeout() {
+            IScheduler scheduler = mScheduler;
+            if (scheduler != null) {
+                scheduler.remove(mTimeout);
+            }
+        }
+
+        synchronized boolean attach(IBasicHandler.Callback callback) {
+            if (isDone) {
+                return false;
+            }
+            mCallbacks.add(callback);
+            return true;
+        }
+
+        private synchronized IBasicHandler.Callback[] snapshot(boolean done) {
+            if (isDone) {
+                return null;
+            }
+            isDone = done;
+            return mCallbacks.toArray(new IBasicHandler.Callback[mCallbacks.size()]);
+        }
+
+        private IBasicHandler.Callback[] finish() {
+            IBasicHandler.Callback[] callbacks = snapshot(true);
+            if (callbacks != null) {
+                mFlights.remove(mKey, this);
+                cancelTimeout();
+            }
+            return callbacks;
+        }
+
+        void abandon() {
+            IBasicHandler.Callback[] callbacks = snapshot(true);
+            if (callbacks != null) {
+                cancelTimeout();
+                for (IBasicHandler.Callback callback : callbacks) {
+                    if (callback != mLeader) {
+                        callback.onError(mTaskType, null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void call(int dataType, Bundle data) {
+            IBasicHandler.Callback[] callbacks = snapshot(false);
+            if (callbacks != null) {
+                for (IBasicHandler.Callback callback : callbacks) {
+                    callback.call(dataType, data);
+                }
+            }
+        }
+
+        @Override
+        public void onError(int dataType, Bundle data) {
+            IBasicHandler.Callback[] callbacks = finish();
+            if (callbacks != null) {
+                for (IBasicHandler.Callback callback : callbacks) {
+                    callback.onError(dataType, data);
+                }
+            }
+        }
+
+        @Override
+        public void onSuccess(int dataType, Bundle data) {
+            IBasicHandler.Callback[] callbacks = finish();
+            if (callbacks != null) {
+                for (IBasicHandler.Callback callback : callbacks) {
+                    callback.onSuccess(dataType, data);
+                }
+            }
+        }
+
+        @Override
+        public void onFailed(int dataType, Bundle data) {
+            IBasicHandler.Callback[] callbacks = finish();
+            if (callbacks != null) {
+                for (IBasicHandler.Callback callback : callbacks) {
+                    callback.onFailed(dataType, data);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.jeson.mvp.model.impl;
+
+/**
+ * 流式任务的数据源, 由BasicModel在子线程中按请求的数量拉取数据块<br/>
+ * 只有在presenter请求时才会调用next(), 因此同一时刻在内存中的数据块数量不会超过请求的数量
+ *
+ * @param <D> 数据块类型
+ */
+
+public interface StreamSource<D> {
+
+    /**
+     * 运行在子线程, 产生下一个数据块, 同一个数据源不会被并发调用
+     *
+     * @return 下一个数据块, 返回null表示已经结束
+     * @throws Exception 出错时结束流式任务, 通过onError()回调
+     */
+    D next() throws Exception;
+
+    /**
+     * 运行在子线程, 流式任务结束, 出错或者被取消时调用一次, 用于释放资源(例如关闭游标)
+     */
+    void close();
+}
@@ -0,0 +1,156 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.IBasicHandler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个流式任务的订阅, 请求和取消可以在任意线程调用, 数据源只在model的线程池中被串行访问<br/>
+ * 请求或者取消时如果没有正在运行的拉取任务, 则向线程池提交一个; 拉取任务每次最多发出DRAIN_BATCH个数据块, 之后重新提交, 避免长时间占用线程
+ */
+
+class StreamSubscription<D> implements IBasicHandler.Subscription, Runnable {
+
+    /**
+     * 拉取任务每次运行最多发出的数据块数量
+     */
+    private static final int DRAIN_BATCH = 32;
+
+    private final BasicModel mModel;
+    private final int mDataType;
+    private final StreamSource<D> mSource;
+    private final IBasicHandler.StreamCallback<D> mCallback;
+    /**
+     * 还没有发出的请求数量
+     */
+    private final AtomicLong mRequested = new AtomicLong();
+    /**
+     * 拉取任务需要处理的信号数量, 从0增加时提交拉取任务, 保证同一时刻只有一个拉取任务
+     */
+    private final AtomicInteger mWip = new AtomicInteger();
+    private volatile boolean isCancelled = false;
+    /**
+     * 需要结束流式任务的错误, 例如请求的数量不合法或者拉取任务被线程池拒绝
+     */
+    private volatile Exception mError;
+    /**
+     * 是否已经结束, 只在拉取任务中读写
+     */
+    private boolean isTerminated = false;
+
+    StreamSubscription(BasicModel model, int dataType, StreamSource<D> source, IBasicHandler.StreamCallback<D> callback) {
+        mModel = model;
+        mDataType = dataType;
+        mSource = source;
+        mCallback = callback;
+    }
+
+    @Override
+    public void request(int n) {
+        if (n <= 0) {
+            mError = new IllegalArgumentException("request must be positive: " + n);
+        } else {
+            long current;
+            do {
+                current = mRequested.get();
+            } while (!mRequested.compareAndSet(current, Math.min(Long.MAX_VALUE - n, current) + n));
+        }
+        schedule();
+    }
+
+    @Override
+    public void cancel() {
+        isCancelled = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (mWip.getAndIncrement() == 0) {
+            mModel.executeStream(this, mDataType);
+        }
+    }
+
+    /**
+     * 拉取任务被线程池拒绝, 在当前线程结束流式任务
+     */
+    void reject(Exception e) {
+        mError = e;
+        run();
+    }
+
+    @Override
+    public void run() {
+        int missed = 1;
+        for (; ; ) {
+            if (!drain()) {
+                mModel.executeStream(this, mDataType); // 还有请求没有完成, 让出线程后继续
+                return;
+            }
+            missed = mWip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false表示发出了DRAIN_BATCH个数据块后仍有请求, 需要重新提交
+     */
+    private boolean drain() {
+        for (int emitted = 0; !isTerminated; emitted++) {
+            if (isCancelled) {
+                terminate();
+                return true;
+            }
+            Exception error = mError;
+            if (error != null) {
+                terminate();
+                mCallback.onError(mDataType, errorData(error));
+                return true;
+            }
+            if (mRequested.get() == 0) {
+                return true;
+            }
+            if (emitted == DRAIN_BATCH) {
+                return false;
+            }
+            D chunk;
+            try {
+                chunk = mSource.next();
+            } catch (Exception e) {
+                terminate();
+                if (!isCancelled) {
+                    mCallback.onError(mDataType, errorData(e));
+                }
+                return true;
+            }
+            if (chunk == null) {
+                terminate();
+                if (!isCancelled) {
+                    mCallback.onComplete(mDataType);
+                }
+                return true;
+            }
+            mRequested.decrementAndGet();
+            if (!isCancelled) {
+                mCallback.onNext(mDataType, chunk);
+            }
+        }
+        return true;
+    }
+
+    private void terminate() {
+        isTerminated = true;
+        mModel.removeStream(this);
+        mSource.close();
+    }
+
+    private static Bundle errorData(Exception e) {
+        Bundle data = new Bundle();
+        data.putSerializable(BasicModel.KEY_STREAM_ERROR, e);
+        return data;
+    }
+}
@@ -0,0 +1,163 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.IBasicHandler;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可以取消的任务<br/>
+ * 任务还在队列中时取消, 任务会被丢弃, 不再运行; 任务正在运行时取消, 需要任务通过{@link #isCurrentCancelled()}自行检查并尽快结束<br/>
+ * 任务被取消后, 通过{@link #guard(IBasicHandler.Callback)}或者model的工作回调发出的回调都会被丢弃<br/>
+ * 还没有运行的任务被取消或者被线程池丢弃时, 如果任务实现了{@link Discardable}, 会调用它的discard()回收资源
+ */
+
+public class TaskHandle implements Runnable {
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_DONE = 2;
+
+    /**
+     * 当前线程正在运行的任务
+     */
+    private static final ThreadLocal<TaskHandle> sCurrent = new ThreadLocal<>();
+
+    private final Runnable mTask;
+    private final AtomicInteger mState = new AtomicInteger(STATE_PENDING);
+    private volatile boolean isCancelled = false;
+    /**
+     * 所在的取消分组, 任务结束时从分组中移除
+     */
+    private final Set<TaskHandle> mGroup;
+    private volatile Executor mExecutor;
+
+    /**
+     * 不再运行时需要回收资源的任务, 例如对象池中的消息载体
+     */
+    interface Discardable {
+
+        /**
+         * 任务不会再运行, 只会被调用一次, 与run()互斥
+         */
+        void discard();
+    }
+
+    TaskHandle(Runnable task, Set<TaskHandle> group) {
+        mTask = task;
+        mGroup = group;
+    }
+
+    /**
+     * 获取当前线程正在运行的任务
+     *
+     * @return 当前任务, 不是通过TaskHandle运行时返回null
+     */
+    public static TaskHandle current() {
+        return sCurrent.get();
+    }
+
+    /**
+     * 当前线程正在运行的任务是否已经被取消
+     */
+    public static boolean isCurrentCancelled() {
+        TaskHandle handle = sCurrent.get();
+        return handle != null && handle.isCancelled;
+    }
+
+    /**
+     * 加入取消分组, 在提交到线程池之前调用
+     *
+     * @param executor 将要运行的线程池, 用于取消时从队列中移除, 可以为null
+     */
+    void register(Executor executor) {
+        mExecutor = executor;
+        mGroup.add(this);
+    }
+
+    @Override
+    public void run() {
+        if (isCancelled || !mState.compareAndSet(STATE_PENDING, STATE_RUNNING)) {
+            return;
+        }
+        TaskHandle outer = sCurrent.get();
+        sCurrent.set(this);
+        try {
+            mTask.run();
+        } finally {
+            sCurrent.set(outer);
+            mState.set(STATE_DONE);
+            mGroup.remove(this);
+        }
+    }
+
+    /**
+     * 取消任务, 还没有运行的任务不会再运行
+     */
+    public void cancel() {
+        if (isCancelled || mState.get() == STATE_DONE) {
+            return;
+        }
+        isCancelled = true;
+        mGroup.remove(this);
+        if (mState.compareAndSet(STATE_PENDING, STATE_DONE)) { // 与run()竞争, 成功时任务不会再运行
+            Executor executor = mExecutor;
+            if (executor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) executor).remove(this); // 从队列中移除, 不能移除时会在运行前被丢弃
+            }
+            if (mTask instanceof Discardable) {
+                ((Discardable) mTask).discard();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    public boolean isDone() {
+        return isCancelled || mState.get() == STATE_DONE;
+    }
+
+    /**
+     * 包装一个回调, 任务被取消后不再回调
+     *
+     * @param callback 原始回调
+     * @return 包装后的回调
+     */
+    public IBasicHandler.Callback guard(final IBasicHandler.Callback callback) {
+        return new IBasicHandler.Callback() {
+            @Override
+            public void call(int dataType, Bundle data) {
+                if (!isCancelled) {
+                    callback.call(dataType, data);
+                }
+            }
+
+            @Override
+            public void onError(int dataType, Bundle data) {
+                if (!isCancelled) {
+                    callback.onError(dataType, data);
+                }
+            }
+
+            @Override
+            public void onSuccess(int dataType, Bundle data) {
+                if (!isCancelled) {
+                    callback.onSuccess(dataType, data);
+                }
+            }
+
+            @Override
+            public void onFailed(int dataType, Bundle data) {
+                if (!isCancelled) {
+                    callback.onFailed(dataType, data);
+                }
+            }
+        };
+    }
+}
@@ -11,23 +11,65 @@ import android.util.Log;
 import android.view.View;
 
 import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.scheduler.Schedulers;
+import com.jeson.mvp.scheduler.impl.LooperScheduler;
+import com.jeson.mvp.utils.Payload;
+import com.jeson.mvp.utils.PayloadPool;
+import com.jeson.mvp.utils.StartupMetrics;
+import com.jeson.mvp.utils.StateSnapshot;
+import com.jeson.mvp.utils.TaskMetrics;
 import com.jeson.mvp.utils.NotCalledInCreateMethodException;
 import com.jeson.mvp.utils.SuperNotCalledException;
 import com.jeson.mvp.model.IBasicModel;
+import com.jeson.mvp.model.impl.Pipeline;
 import com.jeson.mvp.presenter.IBasicPresenter;
 import com.jeson.mvp.view.IBasicView;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel> implements IBasicPresenter {
 
     private static final String TAG = "BasicPresenter";
     private static boolean DEBUG_LIFECYCLE = false;
+    /**
+     * 主线程回调的耗时监控, 为null时不监控
+     */
+    private static volatile UIWatchdog sUIWatchdog;
+    /**
+     * 较大的状态写入的目录, 为null时使用宿主Activity的缓存目录
+     */
+    private static volatile File sStateDirectory;
+    /**
+     * 状态在outState中的键的前缀
+     */
+    private static final String KEY_STATE_PREFIX = "jeson_mvp_state:";
+    /**
+     * model的状态在outState中的键的后缀
+     */
+    private static final String KEY_MODEL_STATE_SUFFIX = ":model";
+    /**
+     * 宿主Activity缓存目录下写入状态的子目录
+     */
+    private static final String STATE_DIRECTORY = "jeson_mvp_state";
     /**
      * 检查自动销毁的间隔
      */
     private static final long DESTROY_CHECKER_DURATION = 1000;
+    /**
+     * 切换至主线程的回调载体对象池容量
+     */
+    private static final int UI_CALL_POOL_SIZE = 64;
+    /**
+     * 配置变化后新的Activity需要在这个时间内取回保留的presenter, 否则presenter会被销毁
+     */
+    private static final long RETAIN_TIMEOUT_MILLIS = 5000;
     /**
      * 子线程回调call()时, 使接下来的代码运行在主线程
      */
@@ -45,9 +87,14 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
      */
     private static final int MSG_ON_ERROR_CALLED_ON_UI = 0xF0000004;
     /**
-     * 根据线程id保存一个状态, 决定回调是在子线程或者是在主线程运行
+     * 每个线程独享一个状态, 决定回调是在子线程或者是在主线程运行, 读写时不需要加锁, 也不会产生新的对象
      */
-    private Map<Long, Boolean> mCalledStatus;
+    private static final ThreadLocal<boolean[]> sCalledStatus = new ThreadLocal<boolean[]>() {
+        @Override
+        protected boolean[] initialValue() {
+            return new boolean[1];
+        }
+    };
     /**
      * View层
      */
@@ -57,9 +104,13 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
      */
     private K mBasicModel;
     /**
-     * 运行在主线程的Handler
+     * 主线程调度器
+     */
+    private final IScheduler mScheduler;
+    /**
+     * 运行在主线程的Handler, 第一次使用时创建
      */
-    private android.os.Handler mUIHandler;
+    private volatile android.os.Handler mUIHandler;
     /**
      * 当前是否被销毁
      */
@@ -69,9 +120,41 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
      */
     private Activity mHostActivity;
     /**
-     * 生命周期托管回调
+     * 同一个宿主Activity中之前创建的同类presenter数量, 用于区分保存的状态和保留的presenter
+     */
+    private int mStateOrdinal = 0;
+    /**
+     * 上一次保存的状态, 第一次读取时才解码
+     */
+    private StateSnapshot mSavedState;
+    /**
+     * 上一次保存的model的状态, 只用于释放它的文件, 读取由model负责
      */
-    private ActivityLifecycleCallbacks mActivityLifecycleCallbacks;
+    private StateSnapshot mSavedModelState;
+    /**
+     * 上一次保存的状态写入的文件, 再次保存或者页面结束时删除, 只在主线程读写
+     */
+    private List<File> mStateFiles;
+    /**
+     * 配置变化时是否保留presenter和model
+     */
+    private boolean isRetainOnConfigurationChange = false;
+    /**
+     * 与view分离期间暂存的主线程回调, 重新连接view后按顺序回放, 为null时没有暂存, 只在主线程读写
+     */
+    private List<Runnable> mDetachedCallbacks;
+    /**
+     * 保留后一直没有被取回时销毁presenter
+     */
+    private final Runnable mRetainTimeout = new Runnable() {
+        @Override
+        public void run() {
+            if (mBasicView == null && !isDestroyed) {
+                RetainedPresenters.remove(BasicPresenter.this);
+                finish();
+            }
+        }
+    };
     /**
      * 当前状态的生命周期
      */
@@ -84,26 +167,239 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
      * 表明onCreate()方法是否已经被调用过
      */
     private boolean isCreate = false;
+    /**
+     * 是否在onCreate()之后的主线程空闲时预热model
+     */
+    private boolean isWarmUpOnIdle = false;
+    /**
+     * 预热model和回调载体对象池
+     */
+    private final Runnable mWarmUp = new Runnable() {
+        @Override
+        public void run() {
+            if (!isDestroyed) {
+                mUICallPool.prefill();
+                if (mBasicModel instanceof IBasicModel.WarmUp) {
+                    ((IBasicModel.WarmUp) mBasicModel).warmUp();
+                }
+            }
+        }
+    };
+    /**
+     * 是否按帧批量派发主线程回调
+     */
+    private volatile boolean isBatchDelivery = false;
+    /**
+     * 不可见(ON_PAUSE, ON_STOP)时是否合并回调
+     */
+    private volatile boolean isConflateWhenHidden = false;
+    /**
+     * 当前是否不可见, 在主线程写入, 子线程读取
+     */
+    private volatile boolean isHidden = false;
+    /**
+     * 不可见期间每个dataType最新的回调, 开启合并时创建
+     */
+    private volatile ConflationBuffer mConflationBuffer;
+    /**
+     * 等待在下一帧派发的回调, 多个子线程可以同时无锁写入
+     */
+    private final Queue<CallEvent> mPendingEvents = new ConcurrentLinkedQueue<>();
+    /**
+     * 是否已经请求了下一帧的回调
+     */
+    private final AtomicBoolean mFrameScheduled = new AtomicBoolean(false);
+    /**
+     * 每一帧派发的回调, 只在主线程使用
+     */
+    private final List<CallEvent> mFrameBatch = new ArrayList<>();
+    /**
+     * 还没有结束的Pipeline, presenter销毁时取消, 只在主线程读写
+     */
+    private List<Pipeline.Execution> mPipelines;
+    /**
+     * 回调的统计, 为null时不统计
+     */
+    private volatile TaskMetrics mTaskMetrics;
+    /**
+     * 切换至主线程的回调载体对象池
+     */
+    private final PayloadPool<UICall> mUICallPool = new PayloadPool<UICall>(UI_CALL_POOL_SIZE) {
+        @Override
+        protected UICall create() {
+            return new UICall();
+        }
+    };
 
     public BasicPresenter(T view, K model) {
+        this(view, model, Schedulers.getMainScheduler());
+    }
+
+    /**
+     * 指定主线程调度器, 例如在JVM中运行时使用{@link com.jeson.mvp.scheduler.impl.EventLoopScheduler}<br/>
+     * 只有调度器为{@link LooperScheduler}时才会将生命周期托付给宿主Activity, 其他调度器需要手动调用生命周期方法
+     *
+     * @param view      view层
+     * @param model     model层
+     * @param scheduler 主线程调度器
+     */
+    public BasicPresenter(T view, K model, IScheduler scheduler) {
+        long start = System.nanoTime();
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler must not be null");
+        }
         mBasicView = view;
         mBasicModel = model;
-        mUIHandler = new Handler();
-        mCalledStatus = new HashMap<>();
+        mScheduler = scheduler;
         mBasicModel.setWorkCallback(mWorkCallback);
-        // 将Presenter的生命周期托付给宿主Activity
-        mHostActivity = getViewActivity();
+        bindHostActivity();
+        StartupMetrics metrics = StartupMetrics.getDefault();
+        if (metrics != null) {
+            metrics.record(StartupMetrics.PHASE_PRESENTER_INIT, getClass(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 设置是否在onCreate()之后的主线程空闲时预热, 预热会调用model的warmUp()提前创建线程池并启动线程(model需要实现{@link IBasicModel.WarmUp}),
+     * 页面打开后马上就要请求数据时开启, 可以避免第一个任务等待线程池的创建, 又不会占用onCreate()的时间<br/>
+     * 需要在onCreate()之前设置, 一般在构造方法中设置
+     *
+     * @param warmUpOnIdle 是否预热
+     */
+    protected void setWarmUpOnIdle(boolean warmUpOnIdle) {
+        isWarmUpOnIdle = warmUpOnIdle;
+    }
+
+    /**
+     * 将Presenter的生命周期托付给宿主Activity
+     */
+    private void bindHostActivity() {
+        mHostActivity = mScheduler instanceof LooperScheduler ? getViewActivity() : null;
         if (mHostActivity != null) {
             Application application = mHostActivity.getApplication();
             if (application == null) {
                 throw new NotCalledInCreateMethodException("BasicPresenter " + BasicPresenter.this
                         + " did not call in activity's onCreate() or after activity's onCreate()");
             }
-            mActivityLifecycleCallbacks = new ActivityLifecycleCallbacks();
-            application.registerActivityLifecycleCallbacks(mActivityLifecycleCallbacks);
+            mStateOrdinal = LifecycleDispatcher.getInstance(application).register(mHostActivity, this);
         }
     }
 
+    /**
+     * 设置宿主Activity因为配置变化(例如屏幕旋转)销毁时是否保留presenter和model, 一般在构造方法中设置<br/>
+     * 开启后配置变化时presenter不会被销毁, 而是与view分离, model的线程池和正在运行的任务都会保留;
+     * 新的Activity在onCreate()中通过{@link #getRetained(Activity, Class, int)}取回presenter, 再通过{@link #attachView(IBasicView)}连接新的view,
+     * 分离期间产生的主线程回调会在连接后按顺序回放. 5秒内没有被取回的presenter会被销毁<br/>
+     * 注意: 配置变化时presenter仍然会收到onPause()和onStop(), 在这两个生命周期取消的任务不会保留
+     *
+     * @param retain 是否保留
+     */
+    protected void setRetainOnConfigurationChange(boolean retain) {
+        isRetainOnConfigurationChange = retain;
+    }
+
+    /**
+     * 取回配置变化前保留的presenter
+     *
+     * @param activity 新的Activity
+     * @param type     presenter类
+     * @param ordinal  presenter在Activity的同类presenter中的创建顺序, 从0开始, 只有一个同类presenter时为0
+     * @param <P>      presenter类型
+     * @return 保留的presenter, 没有时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <P extends BasicPresenter<?, ?>> P getRetained(Activity activity, Class<P> type, int ordinal) {
+        return (P) RetainedPresenters.remove(activity, type, ordinal);
+    }
+
+    /**
+     * 与当前view分离, 之后的主线程回调会被暂存, 直到通过attachView()连接新的view, 运行在主线程<br/>
+     * 分离期间getBasicView()返回null
+     */
+    public void detachView() {
+        if (isDestroyed || mBasicView == null) {
+            return;
+        }
+        if (mHostActivity != null) {
+            LifecycleDispatcher.getInstance(mHostActivity.getApplication()).unregister(mHostActivity, this);
+            mHostActivity = null;
+        }
+        mBasicView = null;
+        if (mDetachedCallbacks == null) {
+            mDetachedCallbacks = new ArrayList<>();
+        }
+    }
+
+    /**
+     * 连接新的view, 运行在主线程<br/>
+     * 如果view属于一个Activity, 生命周期重新托付给这个Activity; 分离期间暂存的回调会在下一次主线程循环中按顺序回放
+     *
+     * @param view 新的view
+     */
+    public void attachView(T view) {
+        if (isDestroyed) {
+            throw new IllegalStateException("BasicPresenter " + this + " has been destroyed");
+        }
+        if (view == null) {
+            throw new IllegalArgumentException("view must not be null");
+        }
+        mScheduler.remove(mRetainTimeout);
+        if (mHostActivity != null) {
+            LifecycleDispatcher.getInstance(mHostActivity.getApplication()).unregister(mHostActivity, this);
+        }
+        mBasicView = view;
+        bindHostActivity();
+        if (mHostActivity != null) {
+            mLifeStatus = LifeStatus.ON_CREATE; // 跟随新的Activity重新经过onStart()和onResume()
+        }
+        if (mDetachedCallbacks != null) {
+            mScheduler.post(mReplayDetachedCallbacks);
+        }
+    }
+
+    /**
+     * 回放分离期间暂存的回调, 回放之前又分离时继续暂存
+     */
+    private final Runnable mReplayDetachedCallbacks = new Runnable() {
+        @Override
+        public void run() {
+            List<Runnable> callbacks = mDetachedCallbacks;
+            if (callbacks == null || mBasicView == null) {
+                return;
+            }
+            mDetachedCallbacks = null;
+            for (int i = 0, size = callbacks.size(); i < size && !isDestroyed; i++) {
+                callbacks.get(i).run();
+            }
+        }
+    };
+
+    /**
+     * 与view分离期间暂存主线程回调, 运行在主线程
+     *
+     * @return 是否已经暂存
+     */
+    boolean holdIfDetached(Runnable callback) {
+        if (mDetachedCallbacks == null) {
+            return false;
+        }
+        mDetachedCallbacks.add(callback);
+        return true;
+    }
+
+    /**
+     * 宿主Activity因为配置变化被销毁, 保留presenter等待新的Activity取回
+     */
+    private void retain() {
+        Activity activity = mHostActivity;
+        detachView();
+        BasicPresenter<?, ?> replaced = RetainedPresenters.put(activity, this, mStateOrdinal);
+        if (replaced != null) {
+            replaced.finish();
+        }
+        mScheduler.postDelayed(mRetainTimeout, RETAIN_TIMEOUT_MILLIS);
+    }
+
     /**
      * 获取view层
      *
@@ -123,11 +419,28 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
     }
 
     /**
-     * 获取运行的handler
+     * 获取主线程调度器
+     */
+    protected IScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * 获取运行的handler, 需要调度器为{@link LooperScheduler}
      *
      * @return
      */
     protected android.os.Handler getHandler() {
+        if (mUIHandler == null) {
+            synchronized (this) {
+                if (mUIHandler == null && !isDestroyed) {
+                    if (!(mScheduler instanceof LooperScheduler)) {
+                        throw new IllegalStateException("Handler is only available with a LooperScheduler: " + mScheduler);
+                    }
+                    mUIHandler = new Handler(((LooperScheduler) mScheduler).getLooper());
+                }
+            }
+        }
         return mUIHandler;
     }
 
@@ -152,7 +465,7 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
      * @param data     获取数据时需要传入的参数
      */
     protected void onWorkingCalledOnWorkThread(int dataType, Bundle data) {
-        mCalledStatus.put(Thread.currentThread().getId(), true);
+        continueOnUIThread();
     }
 
     /**
@@ -165,18 +478,18 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
      * 使用方法参考onWorkingCalledOnWorkThread(int dataType, Bundle data)方法
      */
     protected void onSuccessCalledOnWorkThread(int dataType, Bundle data) {
-        mCalledStatus.put(Thread.currentThread().getId(), true);
+        continueOnUIThread();
     }
 
     protected void onFailedCalledOnWorkThread(int dataType, Bundle data) {
-        mCalledStatus.put(Thread.currentThread().getId(), true);
+        continueOnUIThread();
     }
 
     protected void onFailedCalledOnUIThread(int dataType, Bundle data) {
     }
 
     protected void onErrorCalledOnWorkThread(int dataType, Bundle data) {
-        mCalledStatus.put(Thread.currentThread().getId(), true);
+        continueOnUIThread();
     }
 
     protected void onErrorCalledOnUIThread(int dataType, Bundle data) {
@@ -200,10 +513,9 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
             if (isDestroyed) {
                 return;
             }
-            mCalledStatus.put(Thread.currentThread().getId(), false);
-            onWorkingCalledOnWorkThread(dataType, data);
-            if (mCalledStatus.get(Thread.currentThread().getId())) {
-                Message.obtain(mUIHandler, MSG_ON_WORKING_CALLED_ON_UI, dataType, 0, data).sendToTarget();
+            recordResult(dataType, TaskMetrics.RESULT_WORKING);
+            if (dispatchOnWorkThread(MSG_ON_WORKING_CALLED_ON_UI, dataType, data)) {
+                postToUIThread(MSG_ON_WORKING_CALLED_ON_UI, dataType, data);
             }
         }
 
@@ -212,10 +524,9 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
             if (isDestroyed) {
                 return;
             }
-            mCalledStatus.put(Thread.currentThread().getId(), false);
-            onSuccessCalledOnWorkThread(dataType, data);
-            if (mCalledStatus.get(Thread.currentThread().getId())) {
-                Message.obtain(mUIHandler, MSG_ON_SUCCESS_CALLED_ON_UI, dataType, 0, data).sendToTarget();
+            recordResult(dataType, TaskMetrics.RESULT_SUCCESS);
+            if (dispatchOnWorkThread(MSG_ON_SUCCESS_CALLED_ON_UI, dataType, data)) {
+                postToUIThread(MSG_ON_SUCCESS_CALLED_ON_UI, dataType, data);
             }
         }
 
@@ -224,10 +535,9 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
             if (isDestroyed) {
                 return;
             }
-            mCalledStatus.put(Thread.currentThread().getId(), false);
-            onFailedCalledOnWorkThread(dataType, data);
-            if (mCalledStatus.get(Thread.currentThread().getId())) {
-                Message.obtain(mUIHandler, MSG_ON_FAILED_CALLED_ON_UI, dataType, 0, data).sendToTarget();
+            recordResult(dataType, TaskMetrics.RESULT_FAILED);
+            if (dispatchOnWorkThread(MSG_ON_FAILED_CALLED_ON_UI, dataType, data)) {
+                postToUIThread(MSG_ON_FAILED_CALLED_ON_UI, dataType, data);
             }
         }
 
@@ -236,18 +546,491 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
             if (isDestroyed) {
                 return;
             }
-            mCalledStatus.put(Thread.currentThread().getId(), false);
-            onErrorCalledOnWorkThread(dataType, data);
-            if (mCalledStatus.get(Thread.currentThread().getId())) {
-                Message.obtain(mUIHandler, MSG_ON_ERROR_CALLED_ON_UI, dataType, 0, data).sendToTarget();
+            recordResult(dataType, TaskMetrics.RESULT_ERROR);
+            if (dispatchOnWorkThread(MSG_ON_ERROR_CALLED_ON_UI, dataType, data)) {
+                postToUIThread(MSG_ON_ERROR_CALLED_ON_UI, dataType, data);
+            }
+        }
+    };
+
+    /**
+     * 设置回调的统计, 开启后按dataType记录各种回调的次数, 以及回调从子线程切换至主线程的耗时<br/>
+     * 同一个TaskMetrics可以被多个model和presenter共用
+     *
+     * @param taskMetrics 统计, 为null时关闭统计
+     */
+    public void setTaskMetrics(TaskMetrics taskMetrics) {
+        mTaskMetrics = taskMetrics;
+    }
+
+    public TaskMetrics getTaskMetrics() {
+        return mTaskMetrics;
+    }
+
+    /**
+     * 设置主线程回调的耗时监控, 对所有presenter生效<br/>
+     * 开启后每一次在主线程的派发都会计时, 超出帧预算时记录presenter类, dataType和耗时
+     *
+     * @param watchdog 耗时监控, 为null时关闭
+     */
+    public static void setUIWatchdog(UIWatchdog watchdog) {
+        sUIWatchdog = watchdog;
+    }
+
+    public static UIWatchdog getUIWatchdog() {
+        return sUIWatchdog;
+    }
+
+    void recordResult(int dataType, int result) {
+        TaskMetrics metrics = mTaskMetrics;
+        if (metrics != null) {
+            metrics.recordResult(dataType, result);
+        }
+    }
+
+    /**
+     * 开始一个流式任务, 数据源由model的createStreamSource()创建, 回调运行在主线程<br/>
+     * 在onSubscribe()中通过subscription.request(n)请求第一批数据块, 每处理完一部分再请求更多, 同一时刻存在的数据块数量不会超过请求的数量;
+     * 取消订阅或者presenter销毁时, 取消会传递到model, 数据源随之关闭<br/>
+     * model需要实现{@link IBasicModel.Streaming}, 例如继承BasicModel
+     *
+     * @param dataType 任务类型
+     * @param data     任务执行时所需的数据
+     * @param callback 运行在主线程的回调
+     * @param <D>      数据块类型
+     */
+    protected <D> void requestStream(int dataType, Bundle data, IBasicHandler.StreamCallback<D> callback) {
+        if (isDestroyed) {
+            return;
+        }
+        if (!(mBasicModel instanceof IBasicModel.Streaming)) {
+            throw new UnsupportedOperationException("Model " + mBasicModel + " does not support streams");
+        }
+        ((IBasicModel.Streaming) mBasicModel).handleStream(new UIStreamCallback<>(callback), dataType, data);
+    }
+
+    /**
+     * 执行一个跨model的Pipeline, 没有依赖关系的阶段同时运行, 最终结果通过工作回调只回调一次, 例如onSuccessCalledOnUIThread(dataType, data);
+     * presenter销毁时自动取消, 运行在主线程
+     *
+     * @param pipeline Pipeline
+     * @param dataType 最终结果回调时的dataType
+     * @param data     执行参数
+     * @return 本次执行, 可以通过它取消, presenter已经销毁时返回null
+     */
+    protected Pipeline.Execution executePipeline(Pipeline pipeline, int dataType, Bundle data) {
+        if (isDestroyed) {
+            return null;
+        }
+        if (mPipelines == null) {
+            mPipelines = new ArrayList<>();
+        }
+        for (int i = mPipelines.size() - 1; i >= 0; i--) {
+            if (mPipelines.get(i).isDone()) {
+                mPipelines.remove(i);
+            }
+        }
+        Pipeline.Execution execution = pipeline.execute(mWorkCallback, dataType, data);
+        mPipelines.add(execution);
+        return execution;
+    }
+
+    /**
+     * 将流式任务的回调切换至主线程, 与view分离期间暂存, 取消或者presenter销毁后不再回调
+     */
+    private class UIStreamCallback<D> implements IBasicHandler.StreamCallback<D>, IBasicHandler.Subscription {
+
+        private final IBasicHandler.StreamCallback<D> mDownstream;
+        private volatile IBasicHandler.Subscription mUpstream;
+        private volatile boolean isCancelled = false;
+
+        UIStreamCallback(IBasicHandler.StreamCallback<D> downstream) {
+            mDownstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(final int dataType, IBasicHandler.Subscription subscription) {
+            mUpstream = subscription;
+            mScheduler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!holdIfDetached(this) && isActive()) {
+                        mDownstream.onSubscribe(dataType, UIStreamCallback.this);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onNext(final int dataType, final D chunk) {
+            mScheduler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!holdIfDetached(this) && isActive()) {
+                        mDownstream.onNext(dataType, chunk);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onComplete(final int dataType) {
+            mScheduler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!holdIfDetached(this) && isActive()) {
+                        mDownstream.onComplete(dataType);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onError(final int dataType, final Bundle data) {
+            mScheduler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!holdIfDetached(this) && isActive()) {
+                        mDownstream.onError(dataType, data);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void request(int n) {
+            mUpstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+            mUpstream.cancel();
+        }
+
+        private boolean isActive() {
+            if (isDestroyed && !isCancelled) {
+                cancel();
+            }
+            return !isCancelled;
+        }
+    }
+
+    /**
+     * 设置是否按帧批量派发主线程回调<br/>
+     * 开启后子线程的回调不再各自发送一个消息到主线程, 而是先放入一个无锁队列, 主线程在每一帧只取出一次, 通过onBatchCalledOnUIThread()一起派发,
+     * 因此无论子线程回调多么频繁, 每一帧最多只有一个主线程消息
+     *
+     * @param batchDelivery 是否按帧批量派发
+     */
+    protected void setBatchDelivery(boolean batchDelivery) {
+        isBatchDelivery = batchDelivery;
+    }
+
+    /**
+     * 设置不可见(ON_PAUSE或者ON_STOP)时是否合并主线程回调<br/>
+     * 开启后不可见期间的回调不再切换至主线程, 每个dataType只保留最新的一次(包括它的回调类型), 回到ON_RESUME后在下一次主线程循环中
+     * 按最后一次更新的顺序通过onBatchCalledOnUIThread()一起派发, 因此后台页面不会再刷新看不见的view;
+     * 需要每一次回调都处理的dataType不要使用这个模式. 流式任务和通过getHandler()发送的消息不受影响<br/>
+     * 被替换或者在销毁时丢弃的回调数据如果是{@link Payload}会被回收
+     *
+     * @param conflateWhenHidden 是否合并
+     */
+    protected void setConflateWhenHidden(boolean conflateWhenHidden) {
+        if (conflateWhenHidden && mConflationBuffer == null) {
+            mConflationBuffer = new ConflationBuffer();
+        }
+        isConflateWhenHidden = conflateWhenHidden;
+        if (!conflateWhenHidden) {
+            mScheduler.post(mFlushConflated); // 关闭时派发已经合并的回调
+        }
+    }
+
+    /**
+     * 获取不可见期间被合并(丢弃)的回调数量
+     */
+    protected long getConflatedCount() {
+        ConflationBuffer buffer = mConflationBuffer;
+        return buffer == null ? 0 : buffer.getConflatedCount();
+    }
+
+    private boolean isConflating() {
+        return isConflateWhenHidden && isHidden;
+    }
+
+    /**
+     * 放入合并缓冲区, 放入的同时变为可见时, 派发可能已经结束, 需要重新派发
+     */
+    private void conflate(int what, int dataType, Object data) {
+        mConflationBuffer.put(new CallEvent(what, dataType, data, 0));
+        if (!isConflating()) {
+            mScheduler.post(mFlushConflated);
+        }
+    }
+
+    /**
+     * 可见后一起派发不可见期间合并的回调
+     */
+    private final Runnable mFlushConflated = new Runnable() {
+        @Override
+        public void run() {
+            ConflationBuffer buffer = mConflationBuffer;
+            if (buffer == null || isDestroyed || isConflating() || buffer.isEmpty()) {
+                return;
+            }
+            List<CallEvent> events = new ArrayList<>();
+            buffer.drainTo(events);
+            if (mDetachedCallbacks != null) {
+                for (int i = 0, size = events.size(); i < size; i++) {
+                    CallEvent held = events.get(i);
+                    dispatchWatched(held.type, held.dataType, held.data);
+                }
+                return;
+            }
+            dispatchBatch(events);
+        }
+    };
+
+    /**
+     * 开启了耗时监控时对onBatchCalledOnUIThread()计时
+     */
+    private void dispatchBatch(List<CallEvent> events) {
+        UIWatchdog watchdog = sUIWatchdog;
+        if (watchdog != null) {
+            watchdog.begin(this, UIWatchdog.SOURCE_BATCH, events.size(), UIWatchdog.NO_DATA_TYPE);
+        }
+        try {
+            onBatchCalledOnUIThread(events);
+        } finally {
+            if (watchdog != null) {
+                watchdog.end();
+            }
+        }
+    }
+
+    /**
+     * 运行在主线程<br/>
+     * 按帧批量派发模式下, 每一帧回调一次, 默认按顺序回调每个事件对应的onXXXCalledOnUIThread()方法
+     *
+     * @param events 上一帧以来产生的事件, 只在这个方法内有效, 不要持有这个列表
+     */
+    protected void onBatchCalledOnUIThread(List<CallEvent> events) {
+        for (int i = 0, size = events.size(); i < size; i++) {
+            if (isDestroyed) {
+                return;
+            }
+            CallEvent event = events.get(i);
+            dispatchOnUIThread(event.type, event.dataType, event.data);
+        }
+    }
+
+    /**
+     * 将回调切换至主线程运行, 如果回调本身就运行在主线程(例如model为MAIN_THREAD模式), 则直接运行, 不再经过调度器
+     */
+    void postToUIThread(int what, int dataType, Object data) {
+        if (isConflating()) {
+            conflate(what, dataType, data);
+        } else if (mScheduler.isCurrentThread() && !isBatchDelivery) {
+            dispatchWatched(what, dataType, data);
+        } else if (isBatchDelivery) {
+            mPendingEvents.offer(new CallEvent(what, dataType, data, mTaskMetrics == null ? 0 : System.nanoTime()));
+            if (mFrameScheduled.compareAndSet(false, true)) {
+                mScheduler.postFrameCallback(mFrameCallback);
+            }
+        } else {
+            UICall call = mUICallPool.obtain();
+            call.what = what;
+            call.dataType = dataType;
+            call.data = data;
+            call.postNanos = mTaskMetrics == null ? 0 : System.nanoTime();
+            mScheduler.post(call);
+        }
+    }
+
+    /**
+     * 切换至主线程的一次回调, 通过对象池复用
+     */
+    private class UICall extends Payload implements Runnable {
+        private int what;
+        private int dataType;
+        private Object data;
+        /**
+         * 切换至主线程的时间, 为0时不统计
+         */
+        private long postNanos;
+
+        @Override
+        public void run() {
+            try {
+                if (!isDestroyed) {
+                    recordHop(dataType, postNanos);
+                    dispatchWatched(what, dataType, data);
+                }
+            } finally {
+                recycle();
+            }
+        }
+
+        @Override
+        protected void onRecycle() {
+            data = null;
+            postNanos = 0;
+        }
+    }
+
+    private void recordHop(int dataType, long postNanos) {
+        TaskMetrics metrics = mTaskMetrics;
+        if (metrics != null && postNanos != 0) {
+            metrics.recordHop(dataType, System.nanoTime() - postNanos);
+        }
+    }
+
+    /**
+     * 每一帧取出一次等待派发的回调
+     */
+    private final Runnable mFrameCallback = new Runnable() {
+        @Override
+        public void run() {
+            // 先清除标记, 之后加入的事件会请求新的一帧, 不会丢失
+            mFrameScheduled.set(false);
+            if (isDestroyed) {
+                mPendingEvents.clear();
+                return;
+            }
+            CallEvent event;
+            while ((event = mPendingEvents.poll()) != null) {
+                recordHop(event.dataType, event.postNanos);
+                mFrameBatch.add(event);
+            }
+            if (mFrameBatch.isEmpty()) {
+                return;
+            }
+            try {
+                if (mDetachedCallbacks != null || isConflating()) {
+                    // 逐个暂存或者合并
+                    for (int i = 0, size = mFrameBatch.size(); i < size; i++) {
+                        CallEvent held = mFrameBatch.get(i);
+                        dispatchWatched(held.type, held.dataType, held.data);
+                    }
+                } else {
+                    dispatchBatch(mFrameBatch);
+                }
+            } finally {
+                mFrameBatch.clear();
             }
         }
     };
 
+    /**
+     * 运行在主线程<br/>
+     * 开启了耗时监控时对dispatchOnUIThread()计时
+     */
+    private void dispatchWatched(final int what, final int dataType, final Object data) {
+        if (mDetachedCallbacks != null) {
+            holdIfDetached(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchWatched(what, dataType, data);
+                }
+            });
+            return;
+        }
+        if (isConflating()) {
+            conflate(what, dataType, data); // 变为不可见之前已经切换至主线程的回调
+            return;
+        }
+        UIWatchdog watchdog = sUIWatchdog;
+        if (watchdog == null) {
+            dispatchOnUIThread(what, dataType, data);
+            return;
+        }
+        watchdog.begin(this, UIWatchdog.SOURCE_CALLBACK, what, dataType);
+        try {
+            dispatchOnUIThread(what, dataType, data);
+        } finally {
+            watchdog.end();
+        }
+    }
+
+    /**
+     * 运行在主线程<br/>
+     * 回调对应的onXXXCalledOnUIThread()方法
+     *
+     * @return 是否为MSG_ON_XXX_CALLED_ON_UI消息
+     */
+    boolean dispatchOnUIThread(int what, int dataType, Object data) {
+        switch (what) {
+            case MSG_ON_WORKING_CALLED_ON_UI:
+                onWorkingCalledOnUIThread(dataType, (Bundle) data);
+                return true;
+            case MSG_ON_SUCCESS_CALLED_ON_UI:
+                onSuccessCalledOnUIThread(dataType, (Bundle) data);
+                return true;
+            case MSG_ON_FAILED_CALLED_ON_UI:
+                onFailedCalledOnUIThread(dataType, (Bundle) data);
+                return true;
+            case MSG_ON_ERROR_CALLED_ON_UI:
+                onErrorCalledOnUIThread(dataType, (Bundle) data);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 运行在子线程<br/>
+     * 回调对应的onXXXCalledOnWorkThread()方法, 并返回是否需要继续在主线程运行onXXXCalledOnUIThread()方法
+     *
+     * @param what     对应的MSG_ON_XXX_CALLED_ON_UI
+     * @param dataType 任务类型
+     * @param data     数据
+     * @return true表示需要切换至主线程继续运行
+     */
+    boolean dispatchOnWorkThread(int what, int dataType, Object data) {
+        boolean[] status = sCalledStatus.get();
+        boolean outer = status[0]; // 回调中可能再次回调, 需要保存外层的状态
+        status[0] = false;
+        try {
+            callOnWorkThread(what, dataType, data);
+            return status[0];
+        } finally {
+            status[0] = outer;
+        }
+    }
+
+    /**
+     * 运行在子线程<br/>
+     * 根据what回调对应的onXXXCalledOnWorkThread()方法
+     */
+    void callOnWorkThread(int what, int dataType, Object data) {
+        switch (what) {
+            case MSG_ON_WORKING_CALLED_ON_UI:
+                onWorkingCalledOnWorkThread(dataType, (Bundle) data);
+                break;
+            case MSG_ON_SUCCESS_CALLED_ON_UI:
+                onSuccessCalledOnWorkThread(dataType, (Bundle) data);
+                break;
+            case MSG_ON_FAILED_CALLED_ON_UI:
+                onFailedCalledOnWorkThread(dataType, (Bundle) data);
+                break;
+            case MSG_ON_ERROR_CALLED_ON_UI:
+                onErrorCalledOnWorkThread(dataType, (Bundle) data);
+                break;
+        }
+    }
+
+    /**
+     * 运行在子线程<br/>
+     * 在onXXXCalledOnWorkThread()中调用, 表示回调需要继续在主线程运行
+     */
+    static void continueOnUIThread() {
+        sCalledStatus.get()[0] = true;
+    }
+
     private class Handler extends android.os.Handler {
 
-        private Handler() {
-            super(Looper.getMainLooper());
+        private Handler(Looper looper) {
+            super(looper);
         }
 
         @Override
@@ -255,22 +1038,29 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
             if (isDestroyed) {
                 return;
             }
-            switch (msg.what) {
-                case BasicPresenter.MSG_ON_WORKING_CALLED_ON_UI:
-                    onWorkingCalledOnUIThread(msg.arg1, (Bundle) msg.obj);
-                    break;
-                case BasicPresenter.MSG_ON_SUCCESS_CALLED_ON_UI:
-                    onSuccessCalledOnUIThread(msg.arg1, (Bundle) msg.obj);
-                    break;
-                case BasicPresenter.MSG_ON_FAILED_CALLED_ON_UI:
-                    onFailedCalledOnUIThread(msg.arg1, (Bundle) msg.obj);
-                    break;
-                case BasicPresenter.MSG_ON_ERROR_CALLED_ON_UI:
-                    onErrorCalledOnUIThread(msg.arg1, (Bundle) msg.obj);
-                    break;
-                default:
+            if (mDetachedCallbacks != null) {
+                final Message copy = Message.obtain(msg); // Looper会回收msg对象
+                holdIfDetached(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleMessage(copy);
+                        copy.recycle();
+                    }
+                });
+                return;
+            }
+            UIWatchdog watchdog = sUIWatchdog;
+            if (watchdog != null) {
+                watchdog.begin(BasicPresenter.this, UIWatchdog.SOURCE_MESSAGE, msg.what, UIWatchdog.NO_DATA_TYPE);
+            }
+            try {
+                if (!dispatchOnUIThread(msg.what, msg.arg1, msg.obj)) {
                     BasicPresenter.this.handleMessage(msg);
-                    break;
+                }
+            } finally {
+                if (watchdog != null) {
+                    watchdog.end();
+                }
             }
         }
     }
@@ -284,12 +1074,16 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
             case ON_CREATE:
                 if (mLifeStatus.value <= LifeStatus.ON_CREATE.value) {
                     isCreate = true;
+                    restoreState(savedInstanceState);
                     getBasicModel().onCreate(savedInstanceState);
                     mLifeStatus = LifeStatus.ON_CREATE;
+                    if (isWarmUpOnIdle) {
+                        mScheduler.postIdle(mWarmUp);
+                    }
                 }
                 break;
             case ON_START:
-                if (mLifeStatus.value <= LifeStatus.ON_CREATE.value) {
+                if (mLifeStatus.value <= LifeStatus.ON_CREATE.value || mLifeStatus == LifeStatus.ON_STOP) {
                     if (!isCreate) {
                         isCalled = false;
                         onCreate(null);
@@ -303,22 +1097,40 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
                 }
                 break;
             case ON_RESUME:
-                if (mLifeStatus.value < LifeStatus.ON_RESUME.value) {
-                    getBasicModel().onStart();
+                isHidden = false;
+                if (mConflationBuffer != null) {
+                    mScheduler.post(mFlushConflated);
+                }
+                if (mLifeStatus != LifeStatus.ON_RESUME && mLifeStatus != LifeStatus.ON_DESTROY) {
+                    if (mLifeStatus == LifeStatus.ON_CREATE || mLifeStatus == LifeStatus.ON_STOP) {
+                        isCalled = false;
+                        onStart();
+                        if (!isCalled) {
+                            throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
+                                    + " did not call through to super.onStart()");
+                        }
+                    }
+                    getBasicModel().onResume();
                     mLifeStatus = LifeStatus.ON_RESUME;
                 }
                 break;
             case ON_PAUSE:
-                mLifeStatus = LifeStatus.ON_PAUSE;
-                getBasicModel().onPause();
+                isHidden = true;
+                if (mLifeStatus.value < LifeStatus.ON_PAUSE.value) {
+                    getBasicModel().onPause();
+                    mLifeStatus = LifeStatus.ON_PAUSE;
+                }
                 break;
             case ON_STOP:
-                if (mLifeStatus.value < LifeStatus.ON_PAUSE.value) {
-                    isCalled = false;
-                    onPause();
-                    if (!isCalled) {
-                        throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                                + " did not call through to super.onPause()");
+                isHidden = true;
+                if (mLifeStatus.value < LifeStatus.ON_STOP.value) {
+                    if (mLifeStatus.value < LifeStatus.ON_PAUSE.value) {
+                        isCalled = false;
+                        onPause();
+                        if (!isCalled) {
+                            throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
+                                    + " did not call through to super.onPause()");
+                        }
                     }
                     getBasicModel().onStop();
                     mLifeStatus = LifeStatus.ON_STOP;
@@ -333,8 +1145,23 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
                                 + " did not call through to super.onStop()");
                     }
                     isDestroyed = true;
+                    if (mPipelines != null) {
+                        for (Pipeline.Execution execution : mPipelines) {
+                            execution.cancel();
+                        }
+                        mPipelines = null;
+                    }
+                    if (mConflationBuffer != null) {
+                        mConflationBuffer.clear();
+                    }
                     mBasicModel.onDestroy();
-                    mHostActivity.getApplication().unregisterActivityLifecycleCallbacks(mActivityLifecycleCallbacks);
+                    if (mHostActivity == null || mHostActivity.isFinishing()) {
+                        deleteStateFiles(); // 页面不会再恢复
+                        discardRestoredState();
+                    }
+                    if (mHostActivity != null) {
+                        LifecycleDispatcher.getInstance(mHostActivity.getApplication()).unregister(mHostActivity, this);
+                    }
                     mBasicView = null;
                     mBasicModel = null;
                     mHostActivity = null;
@@ -346,105 +1173,204 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
     }
 
     /**
-     * 获取宿主Activity
+     * 设置较大的状态写入的目录, 对所有presenter生效, 没有宿主Activity的presenter需要设置后才会将较大的状态写入文件
      *
-     * @return
+     * @param directory 目录, 为null时使用宿主Activity的缓存目录
      */
-    private Activity getViewActivity() {
-        if (mBasicView instanceof Activity) {
-            return (Activity) mBasicView;
+    public static void setStateDirectory(File directory) {
+        sStateDirectory = directory;
+    }
+
+    private File getStateDirectory() {
+        File directory = sStateDirectory;
+        if (directory == null && mHostActivity != null) {
+            directory = new File(mHostActivity.getCacheDir(), STATE_DIRECTORY);
         }
-        if (mBasicView instanceof Fragment) {
-            return ((Fragment) mBasicView).getActivity();
+        return directory;
+    }
+
+    private String getStateKey() {
+        return KEY_STATE_PREFIX + getClass().getName() + ":" + mStateOrdinal;
+    }
+
+    /**
+     * 保存presenter和model的状态, 运行在主线程<br/>
+     * 状态编码为紧凑的二进制, 较大时写入本地文件, outState中只保存文件名, 详见{@link StateSnapshot};
+     * model实现{@link IBasicModel.Stateful}时同时保存model的状态
+     */
+    public void onSaveInstanceState(Bundle outState) {
+        if (isDestroyed || outState == null) {
+            return;
         }
-        if (mBasicView instanceof View) {
-            Context context = ((View) mBasicView).getContext();
-            if (context != null && context instanceof Activity) {
-                return (Activity) context;
+        Bundle state = new Bundle();
+        onSaveState(state);
+        Bundle modelState = new Bundle();
+        if (mBasicModel instanceof IBasicModel.Stateful) {
+            ((IBasicModel.Stateful) mBasicModel).onSaveState(modelState);
+        }
+        String key = getStateKey();
+        File directory = getStateDirectory();
+        List<File> files = new ArrayList<>(2);
+        try {
+            if (!state.isEmpty()) {
+                addIfNotNull(files, StateSnapshot.write(outState, key, state, directory));
+            }
+            if (!modelState.isEmpty()) {
+                addIfNotNull(files, StateSnapshot.write(outState, key + KEY_MODEL_STATE_SUFFIX, modelState, directory));
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "BasicPresenter: failed to save state of " + this, e); // 放弃较大的状态, 重建时重新获取
+            for (File file : files) {
+                file.delete();
             }
+            return;
         }
-        return null;
+        deleteStateFiles(); // 之前保存的状态已经被替换
+        mStateFiles = files.isEmpty() ? null : files;
+        releaseRestoredState();
     }
 
     /**
-     * 生命周期回调, 通过宿主Activity将其托付给Application
+     * 保存状态, 子类重写时放入需要在页面重建或者进程重启后恢复的状态, 只能放入{@link com.jeson.mvp.utils.BundleCodec}支持的值<br/>
+     * 不需要担心状态过大, 较大的状态会写入本地文件
+     *
+     * @param outState 当前presenter的状态
      */
-    private class ActivityLifecycleCallbacks implements Application.ActivityLifecycleCallbacks {
+    protected void onSaveState(Bundle outState) {
+    }
 
-        @Override
-        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
-            if (activity == mHostActivity) {
-                isCalled = false;
-                onCreate(savedInstanceState);
-                if (!isCalled) {
-                    throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                            + " did not call through to super.onCreate()");
-                }
-            }
+    /**
+     * 获取上一次通过onSaveState()保存的状态, 第一次调用时解码, 较大的状态会读取文件
+     *
+     * @return 状态, 没有保存或者已经无法读取时返回null
+     */
+    protected Bundle getSavedState() {
+        return mSavedState == null ? null : mSavedState.get();
+    }
+
+    /**
+     * 只读取状态的引用, 解码推迟到第一次使用
+     */
+    private void restoreState(Bundle savedInstanceState) {
+        if (savedInstanceState == null) {
+            return;
+        }
+        String key = getStateKey();
+        mSavedState = StateSnapshot.read(savedInstanceState, key);
+        mSavedModelState = StateSnapshot.read(savedInstanceState, key + KEY_MODEL_STATE_SUFFIX);
+        if (mBasicModel instanceof IBasicModel.Stateful) {
+            ((IBasicModel.Stateful) mBasicModel).onRestoreState(mSavedModelState);
         }
+    }
 
-        @Override
-        public void onActivityStarted(Activity activity) {
-            if (activity == mHostActivity) {
-                isCalled = false;
-                onStart();
-                if (!isCalled) {
-                    throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                            + " did not call through to super.onStart()");
-                }
-            }
+    /**
+     * 恢复的状态已经被新保存的状态替换, 它们的文件在读取之后删除; 还没有读取的状态仍然可以读取
+     */
+    private void releaseRestoredState() {
+        if (mSavedState != null) {
+            mSavedState.release();
         }
+        if (mSavedModelState != null) {
+            mSavedModelState.release();
+            mSavedModelState = null;
+        }
+    }
 
-        @Override
-        public void onActivityResumed(Activity activity) {
-            if (activity == mHostActivity) {
-                isCalled = false;
-                onResume();
-                if (!isCalled) {
-                    throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                            + " did not call through to super.onResume()");
-                }
-            }
+    /**
+     * 页面结束, 不再读取恢复的状态, 直接删除它们的文件
+     */
+    private void discardRestoredState() {
+        if (mSavedState != null) {
+            mSavedState.discard();
+            mSavedState = null;
+        }
+        if (mSavedModelState != null) {
+            mSavedModelState.discard();
+            mSavedModelState = null;
         }
+    }
 
-        @Override
-        public void onActivityPaused(Activity activity) {
-            if (activity == mHostActivity) {
-                isCalled = false;
-                onPause();
-                if (!isCalled) {
-                    throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                            + " did not call through to super.onPause()");
-                }
+    private void deleteStateFiles() {
+        if (mStateFiles != null) {
+            for (File file : mStateFiles) {
+                file.delete();
             }
+            mStateFiles = null;
         }
+    }
 
-        @Override
-        public void onActivityStopped(Activity activity) {
-            if (activity == mHostActivity) {
-                isCalled = false;
-                onStop();
-                if (!isCalled) {
-                    throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                            + " did not call through to super.onStop()");
-                }
-            }
+    private static void addIfNotNull(List<File> files, File file) {
+        if (file != null) {
+            files.add(file);
         }
+    }
 
-        @Override
-        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    /**
+     * 获取宿主Activity
+     *
+     * @return
+     */
+    private Activity getViewActivity() {
+        Object view = TypedViewAdapter.unwrap(mBasicView);
+        if (view instanceof Activity) {
+            return (Activity) view;
+        }
+        if (view instanceof Fragment) {
+            return ((Fragment) view).getActivity();
+        }
+        if (view instanceof View) {
+            Context context = ((View) view).getContext();
+            if (context != null && context instanceof Activity) {
+                return (Activity) context;
+            }
         }
+        return null;
+    }
 
-        @Override
-        public void onActivityDestroyed(Activity activity) {
-            if (activity == mHostActivity) {
-                isCalled = false;
-                onDestroy();
-                if (!isCalled) {
-                    throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
-                            + " did not call through to super.onDestroy()");
+    /**
+     * 宿主Activity的生命周期, 由{@link LifecycleDispatcher}分发, 运行在主线程
+     */
+    void onHostLifecycle(LifeStatus lifeStatus, Bundle savedInstanceState) {
+        isCalled = false;
+        String method;
+        switch (lifeStatus) {
+            case ON_CREATE:
+                StartupMetrics metrics = StartupMetrics.getDefault();
+                long start = metrics == null ? 0 : System.nanoTime();
+                onCreate(savedInstanceState);
+                if (metrics != null) {
+                    metrics.record(StartupMetrics.PHASE_CREATE, getClass(), System.nanoTime() - start);
                 }
-            }
+                method = "onCreate()";
+                break;
+            case ON_START:
+                onStart();
+                method = "onStart()";
+                break;
+            case ON_RESUME:
+                onResume();
+                method = "onResume()";
+                break;
+            case ON_PAUSE:
+                onPause();
+                method = "onPause()";
+                break;
+            case ON_STOP:
+                onStop();
+                method = "onStop()";
+                break;
+            default:
+                if (isRetainOnConfigurationChange && mHostActivity != null && mHostActivity.isChangingConfigurations()) {
+                    retain();
+                    return;
+                }
+                onDestroy();
+                method = "onDestroy()";
+                break;
+        }
+        if (!isCalled) {
+            throw new SuperNotCalledException("BasicPresenter " + BasicPresenter.this
+                    + " did not call through to super." + method);
         }
     }
 
@@ -511,6 +1437,46 @@ public abstract class BasicPresenter<T extends IBasicView, K extends IBasicModel
         return null;
     }
 
+    /**
+     * 按帧批量派发模式下的一次回调
+     */
+    protected static final class CallEvent {
+        /**
+         * 对应call()
+         */
+        public static final int TYPE_WORKING = MSG_ON_WORKING_CALLED_ON_UI;
+        /**
+         * 对应onSuccess()
+         */
+        public static final int TYPE_SUCCESS = MSG_ON_SUCCESS_CALLED_ON_UI;
+        /**
+         * 对应onFailed()
+         */
+        public static final int TYPE_FAILED = MSG_ON_FAILED_CALLED_ON_UI;
+        /**
+         * 对应onError()
+         */
+        public static final int TYPE_ERROR = MSG_ON_ERROR_CALLED_ON_UI;
+
+        public final int type;
+        public final int dataType;
+        /**
+         * 数据, 一般为Bundle, 来自BasicTypedPresenter的类型化回调时为对应的数据类型
+         */
+        public final Object data;
+        /**
+         * 放入队列的时间, 用于统计, 为0时不统计
+         */
+        final long postNanos;
+
+        CallEvent(int type, int dataType, Object data, long postNanos) {
+            this.type = type;
+            this.dataType = dataType;
+            this.data = data;
+            this.postNanos = postNanos;
+        }
+    }
+
     protected class Callback implements IBasicHandler.Callback {
 
         @Override
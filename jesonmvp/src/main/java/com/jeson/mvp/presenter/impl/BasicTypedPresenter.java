@@ -0,0 +1,201 @@
+package com.jeson.mvp.presenter.impl;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.model.IBasicModel;
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.utils.Payload;
+import com.jeson.mvp.utils.TaskMetrics;
+import com.jeson.mvp.view.IBasicView;
+import com.jeson.mvp.view.ITypedView;
+
+/**
+ * 类型化的presenter, 与model之间的数据不再使用Bundle传递, 而是直接传递D类型的对象<br/>
+ * model通过getTypedWorkingCallback()回调, presenter在onXXXCalledOnWorkThread(int dataType, D data)和onXXXCalledOnUIThread(int dataType, D data)中处理,
+ * 使用方法与Bundle版本的回调一致; Bundle版本的回调仍然可以使用<br/>
+ * view只需要实现{@link ITypedView}, 默认的onWorkingCalledOnUIThread()和onSuccessCalledOnUIThread()通过updateView()把数据交给view
+ *
+ * @param <D> 数据类型, 高频更新时可以使用{@link com.jeson.mvp.utils.Payload}复用对象
+ */
+
+public abstract class BasicTypedPresenter<T extends ITypedView<D>, K extends IBasicModel & IBasicModel.Typed, D>
+        extends BasicPresenter<IBasicView, K> {
+
+    /**
+     * 子线程回调call()时, 使接下来的代码运行在主线程
+     */
+    private static final int MSG_ON_TYPED_WORKING_CALLED_ON_UI = 0xF0000011;
+    /**
+     * 子线程回调onSuccess()时, 使接下来的代码运行在主线程
+     */
+    private static final int MSG_ON_TYPED_SUCCESS_CALLED_ON_UI = 0xF0000012;
+    /**
+     * 子线程回调onFailed()时, 使接下来的代码运行在主线程
+     */
+    private static final int MSG_ON_TYPED_FAILED_CALLED_ON_UI = 0xF0000013;
+    /**
+     * 子线程回调onError()时, 使接下来的代码运行在主线程
+     */
+    private static final int MSG_ON_TYPED_ERROR_CALLED_ON_UI = 0xF0000014;
+
+    public BasicTypedPresenter(T view, K model) {
+        super(TypedViewAdapter.wrap(view), model);
+        model.setTypedWorkCallback(mTypedWorkCallback);
+    }
+
+    public BasicTypedPresenter(T view, K model, IScheduler scheduler) {
+        super(TypedViewAdapter.wrap(view), model, scheduler);
+        model.setTypedWorkCallback(mTypedWorkCallback);
+    }
+
+    /**
+     * 连接新的类型化view, 运行在主线程, 详见attachView()
+     *
+     * @param view 新的view
+     */
+    public void attachTypedView(T view) {
+        attachView(TypedViewAdapter.wrap(view));
+    }
+
+    /**
+     * 获取类型化的view
+     *
+     * @return view层, 分离期间返回null
+     */
+    @SuppressWarnings("unchecked")
+    protected T getTypedView() {
+        Object view = TypedViewAdapter.unwrap(getBasicView());
+        return view instanceof ITypedView ? (T) view : null;
+    }
+
+    /**
+     * 把数据交给view, 运行在主线程; 没有连接view时数据被丢弃, 如果是{@link Payload}会被回收
+     *
+     * @param dataType 数据类型
+     * @param data     数据
+     */
+    protected void updateView(int dataType, D data) {
+        T view = getTypedView();
+        if (view != null) {
+            view.onDataUpdate(dataType, data);
+        } else if (data instanceof Payload) {
+            ((Payload) data).recycle();
+        }
+    }
+
+    /**
+     * 运行在主线程<br/>
+     * 使用方法参考onWorkingCalledOnUIThread(int dataType, Bundle data)方法
+     */
+    protected void onWorkingCalledOnUIThread(int dataType, D data) {
+        updateView(dataType, data);
+    }
+
+    /**
+     * 运行在子线程<br/>
+     * 使用方法参考onWorkingCalledOnWorkThread(int dataType, Bundle data)方法
+     */
+    protected void onWorkingCalledOnWorkThread(int dataType, D data) {
+        continueOnUIThread();
+    }
+
+    protected void onSuccessCalledOnUIThread(int dataType, D data) {
+        updateView(dataType, data);
+    }
+
+    protected void onSuccessCalledOnWorkThread(int dataType, D data) {
+        continueOnUIThread();
+    }
+
+    protected void onFailedCalledOnUIThread(int dataType, D data) {
+    }
+
+    protected void onFailedCalledOnWorkThread(int dataType, D data) {
+        continueOnUIThread();
+    }
+
+    protected void onErrorCalledOnUIThread(int dataType, D data) {
+    }
+
+    protected void onErrorCalledOnWorkThread(int dataType, D data) {
+        continueOnUIThread();
+    }
+
+    /**
+     * 用于model层的类型化工作回调
+     */
+    protected final IBasicHandler.TypedCallback<D> mTypedWorkCallback = new IBasicHandler.TypedCallback<D>() {
+
+        @Override
+        public void call(int dataType, D data) {
+            dispatch(MSG_ON_TYPED_WORKING_CALLED_ON_UI, TaskMetrics.RESULT_WORKING, dataType, data);
+        }
+
+        @Override
+        public void onError(int dataType, D data) {
+            dispatch(MSG_ON_TYPED_ERROR_CALLED_ON_UI, TaskMetrics.RESULT_ERROR, dataType, data);
+        }
+
+        @Override
+        public void onSuccess(int dataType, D data) {
+            dispatch(MSG_ON_TYPED_SUCCESS_CALLED_ON_UI, TaskMetrics.RESULT_SUCCESS, dataType, data);
+        }
+
+        @Override
+        public void onFailed(int dataType, D data) {
+            dispatch(MSG_ON_TYPED_FAILED_CALLED_ON_UI, TaskMetrics.RESULT_FAILED, dataType, data);
+        }
+
+        private void dispatch(int what, int result, int dataType, D data) {
+            if (isDestroyed()) {
+                return;
+            }
+            recordResult(dataType, result);
+            if (dispatchOnWorkThread(what, dataType, data)) {
+                postToUIThread(what, dataType, data);
+            }
+        }
+    };
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void callOnWorkThread(int what, int dataType, Object data) {
+        switch (what) {
+            case MSG_ON_TYPED_WORKING_CALLED_ON_UI:
+                onWorkingCalledOnWorkThread(dataType, (D) data);
+                break;
+            case MSG_ON_TYPED_SUCCESS_CALLED_ON_UI:
+                onSuccessCalledOnWorkThread(dataType, (D) data);
+                break;
+            case MSG_ON_TYPED_FAILED_CALLED_ON_UI:
+                onFailedCalledOnWorkThread(dataType, (D) data);
+                break;
+            case MSG_ON_TYPED_ERROR_CALLED_ON_UI:
+                onErrorCalledOnWorkThread(dataType, (D) data);
+                break;
+            default:
+                super.callOnWorkThread(what, dataType, data);
+                break;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    boolean dispatchOnUIThread(int what, int dataType, Object data) {
+        switch (what) {
+            case MSG_ON_TYPED_WORKING_CALLED_ON_UI:
+                onWorkingCalledOnUIThread(dataType, (D) data);
+                return true;
+            case MSG_ON_TYPED_SUCCESS_CALLED_ON_UI:
+                onSuccessCalledOnUIThread(dataType, (D) data);
+                return true;
+            case MSG_ON_TYPED_FAILED_CALLED_ON_UI:
+                onFailedCalledOnUIThread(dataType, (D) data);
+                return true;
+            case MSG_ON_TYPED_ERROR_CALLED_ON_UI:
+                onErrorCalledOnUIThread(dataType, (D) data);
+                return true;
+            default:
+                return super.dispatchOnUIThread(what, dataType, data);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.jeson.mvp.presenter.impl;
+
+import com.jeson.mvp.utils.Payload;
+
+import java.util.List;
+
+/**
+ * 每个dataType只保留最新一次回调的缓冲区, presenter不可见期间使用<br/>
+ * dataType和回调分别存放在两个数组中, 按最后一次更新的顺序排列, dataType的种类一般很少, 查找和移动都是线性的<br/>
+ * 被替换或者清除的回调不会再派发, 数据是{@link Payload}时在这里回收
+ */
+
+final class ConflationBuffer {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] mDataTypes = new int[INITIAL_CAPACITY];
+    private BasicPresenter.CallEvent[] mEvents = new BasicPresenter.CallEvent[INITIAL_CAPACITY];
+    private int mSize = 0;
+    /**
+     * 被新回调替换的回调数量
+     */
+    private long mConflatedCount = 0;
+
+    /**
+     * 放入一次回调, 替换同一个dataType之前的回调并移到最后
+     */
+    void put(BasicPresenter.CallEvent event) {
+        Object replaced = null;
+        synchronized (this) {
+            int index = indexOf(event.dataType);
+            if (index >= 0) {
+                replaced = mEvents[index].data;
+            }
+            add(index, event);
+        }
+        if (replaced != event.data) { // 同一个对象再次回调时不能回收
+            recycle(replaced);
+        }
+    }
+
+    private void add(int index, BasicPresenter.CallEvent event) {
+        if (index >= 0) {
+            int moved = mSize - index - 1;
+            System.arraycopy(mDataTypes, index + 1, mDataTypes, index, moved);
+            System.arraycopy(mEvents, index + 1, mEvents, index, moved);
+            mSize--;
+            mConflatedCount++;
+        } else if (mSize == mDataTypes.length) {
+            int[] dataTypes = new int[mSize * 2];
+            BasicPresenter.CallEvent[] events = new BasicPresenter.CallEvent[mSize * 2];
+            System.arraycopy(mDataTypes, 0, dataTypes, 0, mSize);
+            System.arraycopy(mEvents, 0, events, 0, mSize);
+            mDataTypes = dataTypes;
+            mEvents = events;
+        }
+        mDataTypes[mSize] = event.dataType;
+        mEvents[mSize] = event;
+        mSize++;
+    }
+
+    /**
+     * 取出所有回调
+     *
+     * @param out 按最后一次更新的顺序加入的回调
+     */
+    synchronized void drainTo(List<BasicPresenter.CallEvent> out) {
+        for (int i = 0; i < mSize; i++) {
+            out.add(mEvents[i]);
+            mEvents[i] = null;
+        }
+        mSize = 0;
+    }
+
+    synchronized boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    void clear() {
+        Object[] cleared;
+        synchronized (this) {
+            cleared = new Object[mSize];
+            for (int i = 0; i < mSize; i++) {
+                cleared[i] = mEvents[i].data;
+                mEvents[i] = null;
+            }
+            mSize = 0;
+        }
+        for (Object data : cleared) {
+            recycle(data);
+        }
+    }
+
+    synchronized long getConflatedCount() {
+        return mConflatedCount;
+    }
+
+    private static void recycle(Object data) {
+        if (data instanceof Payload) {
+            ((Payload) data).recycle();
+        }
+    }
+
+    private int indexOf(int dataType) {
+        for (int i = 0; i < mSize; i++) {
+            if (mDataTypes[i] == dataType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * 进程内唯一的Activity生命周期分发器, 只向Application注册一次回调<br/>
+ * presenter按宿主Activity分组, 一个Activity的生命周期事件只会分发给它自己的presenter,
+ * 分发的开销与该Activity的presenter数量成正比, 与进程内presenter的总数无关
+ */
+
+final class LifecycleDispatcher implements Application.ActivityLifecycleCallbacks {
+
+    private static final BasicPresenter<?, ?>[] EMPTY = new BasicPresenter<?, ?>[0];
+
+    private static LifecycleDispatcher sInstance;
+
+    /**
+     * 每个Activity的presenter, 按注册顺序排列; 数组在修改时整体替换, 分发时不需要加锁, 分发过程中也可以注册和注销
+     */
+    private final IdentityHashMap<Activity, BasicPresenter<?, ?>[]> mPresenters = new IdentityHashMap<>();
+
+    private LifecycleDispatcher() {
+    }
+
+    /**
+     * 获取分发器, 第一次调用时向Application注册
+     */
+    static synchronized LifecycleDispatcher getInstance(Application application) {
+        if (sInstance == null) {
+            sInstance = new LifecycleDispatcher();
+            application.registerActivityLifecycleCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    /**
+     * 注册presenter
+     *
+     * @return 同一个Activity中之前注册的同类presenter数量, 页面重建后按相同顺序创建的presenter得到相同的值, 用于区分它们保存的状态
+     */
+    synchronized int register(Activity activity, BasicPresenter<?, ?> presenter) {
+        BasicPresenter<?, ?>[] presenters = mPresenters.get(activity);
+        if (presenters == null) {
+            presenters = EMPTY;
+        }
+        int ordinal = 0;
+        for (BasicPresenter<?, ?> registered : presenters) {
+            if (registered.getClass() == presenter.getClass()) {
+                ordinal++;
+            }
+        }
+        BasicPresenter<?, ?>[] updated = Arrays.copyOf(presenters, presenters.length + 1);
+        updated[presenters.length] = presenter;
+        mPresenters.put(activity, updated);
+        return ordinal;
+    }
+
+    synchronized void unregister(Activity activity, BasicPresenter<?, ?> presenter) {
+        BasicPresenter<?, ?>[] presenters = mPresenters.get(activity);
+        if (presenters == null) {
+            return;
+        }
+        for (int i = 0; i < presenters.length; i++) {
+            if (presenters[i] == presenter) {
+                if (presenters.length == 1) {
+                    mPresenters.remove(activity);
+                    return;
+                }
+                BasicPresenter<?, ?>[] updated = new BasicPresenter<?, ?>[presenters.length - 1];
+                System.arraycopy(presenters, 0, updated, 0, i);
+                System.arraycopy(presenters, i + 1, updated, i, presenters.length - i - 1);
+                mPresenters.put(activity, updated);
+                return;
+            }
+        }
+    }
+
+    private synchronized BasicPresenter<?, ?>[] get(Activity activity) {
+        return mPresenters.get(activity);
+    }
+
+    private void dispatch(Activity activity, LifeStatus lifeStatus, Bundle savedInstanceState) {
+        BasicPresenter<?, ?>[] presenters = get(activity);
+        if (presenters == null) {
+            return;
+        }
+        for (BasicPresenter<?, ?> presenter : presenters) {
+            presenter.onHostLifecycle(lifeStatus, savedInstanceState);
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        dispatch(activity, LifeStatus.ON_CREATE, savedInstanceState);
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        dispatch(activity, LifeStatus.ON_START, null);
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        dispatch(activity, LifeStatus.ON_RESUME, null);
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        dispatch(activity, LifeStatus.ON_PAUSE, null);
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        dispatch(activity, LifeStatus.ON_STOP, null);
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        BasicPresenter<?, ?>[] presenters = get(activity);
+        if (presenters == null) {
+            return;
+        }
+        for (BasicPresenter<?, ?> presenter : presenters) {
+            presenter.onSaveInstanceState(outState);
+        }
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        dispatch(activity, LifeStatus.ON_DESTROY, null);
+        synchronized (this) {
+            mPresenters.remove(activity); // presenter在onDestroy()中会注销, 这里保证不会持有已经销毁的Activity
+        }
+    }
+}
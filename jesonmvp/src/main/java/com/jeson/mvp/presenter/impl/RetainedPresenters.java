@@ -0,0 +1,47 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.app.Activity;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 配置变化(例如屏幕旋转)期间保留的presenter, 以Activity类, 任务栈, presenter类和同类presenter的序号作为键, 新的Activity通过相同的键取回
+ */
+
+final class RetainedPresenters {
+
+    private static final Map<String, BasicPresenter<?, ?>> sPresenters = new HashMap<>();
+
+    private RetainedPresenters() {
+    }
+
+    private static String key(Activity activity, Class<?> presenterClass, int ordinal) {
+        return activity.getClass().getName() + '/' + activity.getTaskId() + '/' + presenterClass.getName() + '#' + ordinal;
+    }
+
+    /**
+     * 保留presenter
+     *
+     * @param ordinal 同一个Activity中之前创建的同类presenter数量, 区分同一个Activity中的多个同类presenter
+     * @return 被替换的presenter, 需要由调用者销毁
+     */
+    static synchronized BasicPresenter<?, ?> put(Activity activity, BasicPresenter<?, ?> presenter, int ordinal) {
+        BasicPresenter<?, ?> replaced = sPresenters.put(key(activity, presenter.getClass(), ordinal), presenter);
+        return replaced == presenter ? null : replaced;
+    }
+
+    static synchronized BasicPresenter<?, ?> remove(Activity activity, Class<?> presenterClass, int ordinal) {
+        return sPresenters.remove(key(activity, presenterClass, ordinal));
+    }
+
+    static synchronized void remove(BasicPresenter<?, ?> presenter) {
+        for (Iterator<BasicPresenter<?, ?>> iterator = sPresenters.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == presenter) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+}
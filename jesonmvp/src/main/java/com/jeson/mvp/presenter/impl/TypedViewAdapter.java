@@ -0,0 +1,44 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.view.IBasicView;
+import com.jeson.mvp.view.ITypedView;
+
+/**
+ * 使只实现了{@link ITypedView}的view可以交给BasicPresenter管理, Bundle版本的更新不会转发给view<br/>
+ * 宿主Activity的查找会穿过这个适配器, 因此生命周期的托付与直接使用view时一致
+ */
+
+final class TypedViewAdapter implements IBasicView {
+
+    private final ITypedView<?> mView;
+
+    private TypedViewAdapter(ITypedView<?> view) {
+        mView = view;
+    }
+
+    /**
+     * 包装view, view同时实现了IBasicView时直接返回
+     */
+    static IBasicView wrap(ITypedView<?> view) {
+        if (view == null) {
+            return null;
+        }
+        if (view instanceof IBasicView) {
+            return (IBasicView) view;
+        }
+        return new TypedViewAdapter(view);
+    }
+
+    /**
+     * 取出被包装的view, 不是适配器时原样返回
+     */
+    static Object unwrap(IBasicView view) {
+        return view instanceof TypedViewAdapter ? ((TypedViewAdapter) view).mView : view;
+    }
+
+    @Override
+    public void onDataUpdate(Bundle data) {
+    }
+}
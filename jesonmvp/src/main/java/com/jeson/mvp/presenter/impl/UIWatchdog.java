@@ -0,0 +1,285 @@
+package com.jeson.mvp.presenter.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 主线程回调的耗时监控, 通过{@link BasicPresenter#setUIWatchdog(UIWatchdog)}开启<br/>
+ * presenter在主线程运行的每一次派发(onXXXCalledOnUIThread(), handleMessage(), 每一帧的批量派发)都会与帧预算比较, 超出预算时记录presenter类, dataType和耗时;
+ * 设置了卡顿阈值时, 一个采样线程会在派发超过阈值时抓取主线程的调用栈, 用于定位卡顿的代码<br/>
+ * 没有超出预算时不会创建对象, 可以在正式版本中开启
+ */
+
+public class UIWatchdog {
+
+    /**
+     * 默认的帧预算
+     */
+    public static final long DEFAULT_FRAME_BUDGET_MILLIS = 16;
+    /**
+     * 来自子线程的回调, what为回调类型(BasicPresenter.CallEvent.TYPE_XXX)
+     */
+    public static final int SOURCE_CALLBACK = 0;
+    /**
+     * 通过getHandler()发送的消息, what为消息的what
+     */
+    public static final int SOURCE_MESSAGE = 1;
+    /**
+     * 一帧的批量派发, what为这一帧的事件数量
+     */
+    public static final int SOURCE_BATCH = 2;
+    /**
+     * 没有dataType时的值
+     */
+    public static final int NO_DATA_TYPE = -1;
+    /**
+     * 最多保留的超时记录数量
+     */
+    private static final int MAX_OVERRUNS = 64;
+
+    /**
+     * 超出预算时的回调
+     */
+    public interface Listener {
+        /**
+         * 运行在超时的线程(一般为主线程), 不要做耗时的操作
+         */
+        void onOverrun(Overrun overrun);
+    }
+
+    private final long mBudgetNanos;
+    private volatile long mStallNanos = 0;
+    private volatile Listener mListener;
+    private final AtomicLong mOverrunCount = new AtomicLong();
+    private final ArrayDeque<Overrun> mOverruns = new ArrayDeque<>();
+    /**
+     * 所有派发过回调的线程的状态, 供采样线程读取
+     */
+    private final List<DispatchState> mStates = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<DispatchState> mState = new ThreadLocal<DispatchState>() {
+        @Override
+        protected DispatchState initialValue() {
+            DispatchState state = new DispatchState(Thread.currentThread());
+            mStates.add(state);
+            return state;
+        }
+    };
+    private Thread mSampler;
+
+    public UIWatchdog() {
+        this(DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param frameBudgetMillis 帧预算, 单次派发超过这个时间会被记录
+     */
+    public UIWatchdog(long frameBudgetMillis) {
+        if (frameBudgetMillis <= 0) {
+            throw new IllegalArgumentException("frameBudgetMillis must be positive: " + frameBudgetMillis);
+        }
+        mBudgetNanos = TimeUnit.MILLISECONDS.toNanos(frameBudgetMillis);
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 设置卡顿阈值, 派发超过这个时间时由采样线程抓取调用栈, 记录在{@link Overrun#stack}中<br/>
+     * 采样线程按阈值的1/4间隔检查, 设置为0时停止采样线程
+     *
+     * @param stallThresholdMillis 卡顿阈值, 一般为帧预算的数倍
+     */
+    public synchronized void setStallThreshold(long stallThresholdMillis) {
+        mStallNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, stallThresholdMillis));
+        if (mStallNanos > 0 && mSampler == null) {
+            mSampler = new Thread(new Sampler(), "jeson-mvp-watchdog");
+            mSampler.setDaemon(true);
+            mSampler.start();
+        } else if (mStallNanos == 0 && mSampler != null) {
+            mSampler.interrupt();
+            mSampler = null;
+        }
+    }
+
+    /**
+     * 停止采样线程
+     */
+    public void release() {
+        setStallThreshold(0);
+    }
+
+    /**
+     * 获取超出预算的总次数
+     */
+    public long getOverrunCount() {
+        return mOverrunCount.get();
+    }
+
+    /**
+     * 获取最近的超时记录, 最多保留64条, 按时间顺序
+     */
+    public List<Overrun> getOverruns() {
+        synchronized (mOverruns) {
+            return new ArrayList<>(mOverruns);
+        }
+    }
+
+    public void clear() {
+        synchronized (mOverruns) {
+            mOverruns.clear();
+        }
+    }
+
+    /**
+     * 开始一次派发, 与end()成对调用; 嵌套的派发只统计最外层
+     */
+    void begin(Object presenter, int source, int what, int dataType) {
+        DispatchState state = mState.get();
+        if (state.mDepth++ > 0) {
+            return;
+        }
+        state.mPresenterClass = presenter.getClass();
+        state.mSource = source;
+        state.mWhat = what;
+        state.mDataType = dataType;
+        state.mStartNanos = System.nanoTime(); // 最后写入, 采样线程读到开始时间时其他字段已经可见
+    }
+
+    void end() {
+        DispatchState state = mState.get();
+        if (--state.mDepth > 0) {
+            return;
+        }
+        long duration = System.nanoTime() - state.mStartNanos;
+        state.mStartNanos = 0;
+        StackTraceElement[] stack = state.mStallStack;
+        state.mStallStack = null;
+        if (duration <= mBudgetNanos) {
+            return;
+        }
+        mOverrunCount.incrementAndGet();
+        Overrun overrun = new Overrun(state.mPresenterClass, state.mSource, state.mWhat, state.mDataType,
+                duration, System.currentTimeMillis(), stack);
+        state.mPresenterClass = null;
+        synchronized (mOverruns) {
+            if (mOverruns.size() == MAX_OVERRUNS) {
+                mOverruns.pollFirst();
+            }
+            mOverruns.addLast(overrun);
+        }
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onOverrun(overrun);
+        }
+    }
+
+    /**
+     * 一个线程当前的派发状态, 除volatile字段外只在所属线程读写
+     */
+    private static class DispatchState {
+        private final Thread mThread;
+        private int mDepth;
+        private Class<?> mPresenterClass;
+        private int mSource;
+        private int mWhat;
+        private int mDataType;
+        /**
+         * 当前派发的开始时间, 0表示没有正在进行的派发
+         */
+        private volatile long mStartNanos;
+        /**
+         * 采样线程抓取的调用栈
+         */
+        private volatile StackTraceElement[] mStallStack;
+
+        DispatchState(Thread thread) {
+            mThread = thread;
+        }
+    }
+
+    private class Sampler implements Runnable {
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                long stallNanos = mStallNanos;
+                if (stallNanos == 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.max(TimeUnit.MILLISECONDS.toNanos(1), stallNanos / 4));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (DispatchState state : mStates) {
+                    long start = state.mStartNanos;
+                    if (start == 0 || state.mStallStack != null || System.nanoTime() - start < stallNanos) {
+                        continue;
+                    }
+                    StackTraceElement[] stack = state.mThread.getStackTrace();
+                    if (state.mStartNanos == start) { // 抓取期间派发可能已经结束
+                        state.mStallStack = stack;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次超出预算的派发
+     */
+    public static final class Overrun {
+        /**
+         * 派发回调的presenter类
+         */
+        public final Class<?> presenterClass;
+        /**
+         * SOURCE_CALLBACK, SOURCE_MESSAGE或者SOURCE_BATCH
+         */
+        public final int source;
+        public final int what;
+        /**
+         * 回调的dataType, 没有时为NO_DATA_TYPE
+         */
+        public final int dataType;
+        public final long durationNanos;
+        /**
+         * 发生时间, System.currentTimeMillis()
+         */
+        public final long timeMillis;
+        /**
+         * 派发超过卡顿阈值时抓取的调用栈, 没有抓取时为null
+         */
+        public final StackTraceElement[] stack;
+
+        private Overrun(Class<?> presenterClass, int source, int what, int dataType, long durationNanos,
+                        long timeMillis, StackTraceElement[] stack) {
+            this.presenterClass = presenterClass;
+            this.source = source;
+            this.what = what;
+            this.dataType = dataType;
+            this.durationNanos = durationNanos;
+            this.timeMillis = timeMillis;
+            this.stack = stack;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(presenterClass.getName()).append(" source=").append(source).append(" what=").append(what)
+                    .append(" dataType=").append(dataType).append(" took ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(durationNanos)).append("ms");
+            if (stack != null) {
+                for (StackTraceElement element : stack) {
+                    builder.append("\n\tat ").append(element);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.jeson.mvp.scheduler;
+
+/**
+ * 主线程调度器, presenter和model通过它把代码切换到"主线程"运行<br/>
+ * Android中由主线程的Looper实现, 在JVM中(例如服务端或者压力测试)由一个事件循环线程实现, 使presenter和model可以脱离Android运行
+ */
+
+public interface IScheduler {
+
+    /**
+     * 当前线程是否为调度器所在的线程
+     */
+    boolean isCurrentThread();
+
+    /**
+     * 在调度器所在的线程运行任务
+     *
+     * @param task 任务
+     */
+    void post(Runnable task);
+
+    /**
+     * 延迟一段时间后在调度器所在的线程运行任务
+     *
+     * @param task        任务
+     * @param delayMillis 延迟的毫秒数
+     */
+    void postDelayed(Runnable task, long delayMillis);
+
+    /**
+     * 移除还没有运行的任务
+     *
+     * @param task 通过post()或者postDelayed()提交的任务
+     */
+    void remove(Runnable task);
+
+    /**
+     * 在下一帧开始时运行任务, 用于按帧批量派发回调; 可以在任何线程调用
+     *
+     * @param task 任务
+     */
+    void postFrameCallback(Runnable task);
+
+    /**
+     * 在调度器所在的线程空闲时运行任务, 用于推迟不紧急的初始化(例如预热); 可以在任何线程调用
+     *
+     * @param task 任务
+     */
+    void postIdle(Runnable task);
+}
@@ -0,0 +1,54 @@
+package com.jeson.mvp.scheduler;
+
+import android.os.Looper;
+
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.scheduler.impl.LooperScheduler;
+
+/**
+ * 获取默认的主线程调度器<br/>
+ * Android中为主线程Looper的{@link LooperScheduler}; 在JVM中没有主线程Looper时, 为进程内共享的{@link EventLoopScheduler}
+ */
+
+public final class Schedulers {
+
+    private static volatile IScheduler sMainScheduler;
+
+    private Schedulers() {
+    }
+
+    /**
+     * 获取默认的主线程调度器, presenter和model没有指定调度器时使用它
+     */
+    public static IScheduler getMainScheduler() {
+        if (sMainScheduler == null) {
+            synchronized (Schedulers.class) {
+                if (sMainScheduler == null) {
+                    sMainScheduler = createMainScheduler();
+                }
+            }
+        }
+        return sMainScheduler;
+    }
+
+    /**
+     * 替换默认的主线程调度器, 需要在创建presenter和model之前调用, 例如在JVM中运行时指定自己的事件循环
+     *
+     * @param scheduler 主线程调度器, 为null时恢复默认
+     */
+    public static void setMainScheduler(IScheduler scheduler) {
+        synchronized (Schedulers.class) {
+            sMainScheduler = scheduler;
+        }
+    }
+
+    private static IScheduler createMainScheduler() {
+        Looper looper = null;
+        try {
+            looper = Looper.getMainLooper();
+        } catch (RuntimeException | LinkageError e) {
+            // JVM中没有Android运行环境(android.jar的方法会抛出"Stub!", 或者没有android.jar)
+        }
+        return looper != null ? new LooperScheduler(looper) : new EventLoopScheduler("jeson-mvp-main");
+    }
+}
@@ -0,0 +1,229 @@
+package com.jeson.mvp.scheduler.impl;
+
+import com.jeson.mvp.scheduler.IScheduler;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 在JVM中代替Android主线程的事件循环, 由一个独立的线程按顺序运行提交的任务, 不依赖任何Android类<br/>
+ * 不需要延迟的任务进入无锁队列, 延迟的任务按时间排序; 帧回调按固定的间隔({@link #FRAME_INTERVAL_MILLIS})对齐;
+ * 空闲任务在没有其他任务可以运行时每次运行一个
+ */
+
+public class EventLoopScheduler implements IScheduler {
+
+    /**
+     * 模拟的帧间隔
+     */
+    public static final long FRAME_INTERVAL_MILLIS = 16;
+    /**
+     * 每次处理延迟任务之间最多连续运行的任务数量, 避免延迟任务一直得不到运行
+     */
+    private static final int MAX_BATCH = 256;
+
+    private final Thread mThread;
+    private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> mIdleTasks = new ConcurrentLinkedQueue<>();
+    /**
+     * 延迟的任务, 通过自身加锁
+     */
+    private final PriorityQueue<DelayedTask> mDelayedTasks = new PriorityQueue<>();
+    private final long mStartNanos = System.nanoTime();
+    private long mSequence = 0;
+    /**
+     * 事件循环线程是否正在等待新的任务
+     */
+    private volatile boolean isWaiting = false;
+    private volatile boolean isQuit = false;
+
+    public EventLoopScheduler(String name) {
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, name);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    public Thread getThread() {
+        return mThread;
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        mTasks.offer(task);
+        if (isWaiting) {
+            LockSupport.unpark(mThread);
+        }
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        if (delayMillis <= 0) {
+            post(task);
+        } else {
+            postDelayedNanos(task, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        }
+    }
+
+    private void postDelayedNanos(Runnable task, long delayNanos) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        synchronized (mDelayedTasks) {
+            mDelayedTasks.offer(new DelayedTask(task, System.nanoTime() + delayNanos, mSequence++));
+        }
+        LockSupport.unpark(mThread); // 重新计算等待时间
+    }
+
+    @Override
+    public void remove(Runnable task) {
+        while (mTasks.remove(task)) {
+            // 与Handler.removeCallbacks()一致, 移除所有相同的任务
+        }
+        synchronized (mDelayedTasks) {
+            Iterator<DelayedTask> iterator = mDelayedTasks.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().mTask == task) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void postFrameCallback(Runnable task) {
+        long frameNanos = TimeUnit.MILLISECONDS.toNanos(FRAME_INTERVAL_MILLIS);
+        long elapsed = System.nanoTime() - mStartNanos;
+        postDelayedNanos(task, frameNanos - elapsed % frameNanos);
+    }
+
+    @Override
+    public void postIdle(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        mIdleTasks.offer(task);
+        if (isWaiting) {
+            LockSupport.unpark(mThread);
+        }
+    }
+
+    /**
+     * 退出事件循环, 还没有运行的任务不再运行
+     */
+    public void quit() {
+        isQuit = true;
+        LockSupport.unpark(mThread);
+    }
+
+    public boolean isQuit() {
+        return isQuit;
+    }
+
+    private void loop() {
+        while (!isQuit) {
+            long waitNanos = runDueTasks();
+            int count = 0;
+            Runnable task;
+            while (count < MAX_BATCH && !isQuit && (task = mTasks.poll()) != null) {
+                run(task);
+                count++;
+            }
+            if (count > 0) {
+                continue;
+            }
+            if ((task = mIdleTasks.poll()) != null) {
+                run(task); // 每次只运行一个空闲任务, 之后重新检查普通任务
+                continue;
+            }
+            // 先标记为等待再检查一次队列, 避免错过等待之前提交的任务
+            isWaiting = true;
+            if (mTasks.isEmpty() && mIdleTasks.isEmpty() && !isQuit) {
+                if (waitNanos < 0) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, waitNanos);
+                }
+            }
+            isWaiting = false;
+        }
+    }
+
+    /**
+     * 运行已经到期的延迟任务
+     *
+     * @return 距离下一个延迟任务到期的纳秒数, 没有延迟任务时返回-1
+     */
+    private long runDueTasks() {
+        for (; ; ) {
+            DelayedTask due;
+            synchronized (mDelayedTasks) {
+                DelayedTask head = mDelayedTasks.peek();
+                if (head == null) {
+                    return -1;
+                }
+                long remaining = head.mWhen - System.nanoTime();
+                if (remaining > 0) {
+                    return remaining;
+                }
+                due = mDelayedTasks.poll();
+            }
+            run(due.mTask);
+            if (isQuit) {
+                return -1;
+            }
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Thread.UncaughtExceptionHandler handler = mThread.getUncaughtExceptionHandler();
+            if (handler != null) {
+                handler.uncaughtException(mThread, e);
+            }
+        }
+    }
+
+    private static class DelayedTask implements Comparable<DelayedTask> {
+
+        private final Runnable mTask;
+        private final long mWhen;
+        /**
+         * 到期时间相同时按提交顺序运行
+         */
+        private final long mSequence;
+
+        DelayedTask(Runnable task, long when, long sequence) {
+            mTask = task;
+            mWhen = when;
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(DelayedTask another) {
+            long diff = mWhen - another.mWhen;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+    }
+}
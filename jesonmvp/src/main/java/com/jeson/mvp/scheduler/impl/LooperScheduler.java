@@ -0,0 +1,99 @@
+package com.jeson.mvp.scheduler.impl;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.Choreographer;
+
+import com.jeson.mvp.scheduler.IScheduler;
+
+/**
+ * 基于Looper的调度器, Android中默认使用主线程的Looper, 下一帧由Choreographer决定
+ */
+
+public class LooperScheduler implements IScheduler {
+
+    private final Looper mLooper;
+    private final Handler mHandler;
+    /**
+     * Choreographer只能在Looper所在的线程获取, 获取之后可以在任何线程使用
+     */
+    private volatile Choreographer mChoreographer;
+
+    public LooperScheduler(Looper looper) {
+        if (looper == null) {
+            throw new IllegalArgumentException("looper must not be null");
+        }
+        mLooper = looper;
+        mHandler = new Handler(looper);
+    }
+
+    public Looper getLooper() {
+        return mLooper;
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return Looper.myLooper() == mLooper;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        mHandler.post(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        mHandler.postDelayed(task, delayMillis);
+    }
+
+    @Override
+    public void remove(Runnable task) {
+        mHandler.removeCallbacks(task);
+    }
+
+    @Override
+    public void postFrameCallback(final Runnable task) {
+        Choreographer choreographer = mChoreographer;
+        if (choreographer == null && isCurrentThread()) {
+            choreographer = mChoreographer = Choreographer.getInstance();
+        }
+        if (choreographer == null) {
+            // 还没有获取Choreographer时先切换到Looper所在的线程
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    postFrameCallback(task);
+                }
+            });
+            return;
+        }
+        choreographer.postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                task.run();
+            }
+        });
+    }
+
+    @Override
+    public void postIdle(final Runnable task) {
+        if (!isCurrentThread()) {
+            // Looper.getQueue()需要API 23, 只能在Looper所在的线程通过myQueue()获取消息队列
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    postIdle(task);
+                }
+            });
+            return;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                task.run();
+                return false;
+            }
+        });
+    }
+}
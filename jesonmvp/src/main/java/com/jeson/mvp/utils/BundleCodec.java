@@ -0,0 +1,308 @@
+package com.jeson.mvp.utils;
+
+import android.os.Bundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Bundle的紧凑二进制编码, 不依赖Parcel, 编码结果可以写入文件并在进程重启或者应用升级后读取<br/>
+ * 键按字典序排列, 内容相同的Bundle编码结果相同, 因此也可以作为键使用; 整数使用变长编码, 字符串使用UTF-8<br/>
+ * 支持boolean, int, long, double, String, byte[], 嵌套的Bundle和null, 其他Serializable的值通过Java序列化保存, 体积较大
+ */
+
+public final class BundleCodec {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_FALSE = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_STRING = 6;
+    private static final int TYPE_BYTES = 7;
+    private static final int TYPE_BUNDLE = 8;
+    private static final int TYPE_SERIALIZABLE = 9;
+
+    private BundleCodec() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param bundle 为null时按空的Bundle编码
+     * @return 编码结果
+     * @throws IllegalArgumentException 包含不支持的值
+     */
+    public static byte[] encode(Bundle bundle) {
+        Writer writer = new Writer();
+        writeBundle(writer, bundle);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解码
+     *
+     * @throws IllegalArgumentException 数据不完整或者格式错误
+     */
+    public static Bundle decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 解码数组的一部分
+     *
+     * @throws IllegalArgumentException 数据不完整或者格式错误
+     */
+    public static Bundle decode(byte[] bytes, int offset, int length) {
+        Reader reader = new Reader(bytes, offset, offset + length);
+        try {
+            Bundle bundle = readBundle(reader);
+            if (reader.mPosition != reader.mLimit) {
+                throw new IllegalArgumentException("Trailing bytes after bundle: " + (reader.mLimit - reader.mPosition));
+            }
+            return bundle;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated bundle", e);
+        }
+    }
+
+    private static void writeBundle(Writer writer, Bundle bundle) {
+        if (bundle == null || bundle.isEmpty()) {
+            writer.writeVarint(0);
+            return;
+        }
+        String[] keys = bundle.keySet().toArray(new String[bundle.size()]);
+        Arrays.sort(keys);
+        writer.writeVarint(keys.length);
+        for (String key : keys) {
+            writer.writeString(key);
+            writeValue(writer, key, bundle.get(key));
+        }
+    }
+
+    private static void writeValue(Writer writer, String key, Object value) {
+        if (value == null) {
+            writer.write(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            writer.write((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof Integer) {
+            writer.write(TYPE_INT);
+            writer.writeVarint(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            writer.write(TYPE_LONG);
+            writer.writeVarint(zigzag((Long) value));
+        } else if (value instanceof Double) {
+            writer.write(TYPE_DOUBLE);
+            writer.writeFixed64(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof String) {
+            writer.write(TYPE_STRING);
+            writer.writeString((String) value);
+        } else if (value instanceof byte[]) {
+            writer.write(TYPE_BYTES);
+            writer.writeBytes((byte[]) value);
+        } else if (value instanceof Bundle) {
+            writer.write(TYPE_BUNDLE);
+            writeBundle(writer, (Bundle) value);
+        } else if (value instanceof Serializable) {
+            writer.write(TYPE_SERIALIZABLE);
+            writer.writeBytes(serialize(key, (Serializable) value));
+        } else {
+            throw new IllegalArgumentException("Unsupported value for key " + key + ": " + value.getClass().getName());
+        }
+    }
+
+    private static Bundle readBundle(Reader reader) {
+        int count = (int) reader.readVarint();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid bundle size: " + count);
+        }
+        Bundle bundle = new Bundle();
+        for (int i = 0; i < count; i++) {
+            String key = reader.readString();
+            int type = reader.read();
+            switch (type) {
+                case TYPE_NULL:
+                    bundle.putString(key, null);
+                    break;
+                case TYPE_FALSE:
+                case TYPE_TRUE:
+                    bundle.putBoolean(key, type == TYPE_TRUE);
+                    break;
+                case TYPE_INT:
+                    bundle.putInt(key, (int) unzigzag(reader.readVarint()));
+                    break;
+                case TYPE_LONG:
+                    bundle.putLong(key, unzigzag(reader.readVarint()));
+                    break;
+                case TYPE_DOUBLE:
+                    bundle.putDouble(key, Double.longBitsToDouble(reader.readFixed64()));
+                    break;
+                case TYPE_STRING:
+                    bundle.putString(key, reader.readString());
+                    break;
+                case TYPE_BYTES:
+                    bundle.putByteArray(key, reader.readBytes());
+                    break;
+                case TYPE_BUNDLE:
+                    bundle.putBundle(key, readBundle(reader));
+                    break;
+                case TYPE_SERIALIZABLE:
+                    bundle.putSerializable(key, deserialize(key, reader.readBytes()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown type " + type + " for key " + key);
+            }
+        }
+        return bundle;
+    }
+
+    private static byte[] serialize(String key, Serializable value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize value for key " + key, e);
+        }
+    }
+
+    private static Serializable deserialize(String key, byte[] bytes) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return (Serializable) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Cannot deserialize value for key " + key, e);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+
+        private byte[] mBuffer = new byte[64];
+        private int mSize = 0;
+
+        private void ensure(int extra) {
+            if (mSize + extra > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mSize + extra));
+            }
+        }
+
+        void write(int b) {
+            ensure(1);
+            mBuffer[mSize++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                mBuffer[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeFixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                mBuffer[mSize++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, mBuffer, mSize, bytes.length);
+            mSize += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBytes(value.getBytes(UTF_8));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mSize);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] mBuffer;
+        private final int mLimit;
+        private int mPosition;
+
+        Reader(byte[] buffer, int offset, int limit) {
+            mBuffer = buffer;
+            mPosition = offset;
+            mLimit = limit;
+        }
+
+        int read() {
+            if (mPosition >= mLimit) {
+                throw new IllegalArgumentException("Truncated bundle");
+            }
+            return mBuffer[mPosition++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long readFixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) read() << (i * 8);
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            long length = readVarint();
+            if (length < 0 || length > mLimit - mPosition) {
+                throw new IllegalArgumentException("Invalid length: " + length);
+            }
+            byte[] bytes = Arrays.copyOfRange(mBuffer, mPosition, mPosition + (int) length);
+            mPosition += (int) length;
+            return bytes;
+        }
+
+        String readString() {
+            long length = readVarint();
+            if (length < 0 || length > mLimit - mPosition) {
+                throw new IllegalArgumentException("Invalid length: " + length);
+            }
+            String value = new String(mBuffer, mPosition, (int) length, UTF_8);
+            mPosition += (int) length;
+            return value;
+        }
+    }
+}
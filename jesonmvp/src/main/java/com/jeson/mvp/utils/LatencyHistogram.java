@@ -0,0 +1,174 @@
+package com.jeson.mvp.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的耗时直方图, 记录时不加锁也不创建对象, 可以在正式版本中一直开启<br/>
+ * 每个2的幂区间再等分为8个桶, 百分位的相对误差不超过12.5%, 记录范围为0到约18分钟, 超出范围的值计入最后一个桶
+ */
+
+public class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间等分的桶数量为2^SUB_BUCKET_BITS
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 记录的最大值为2^MAX_EXPONENT纳秒
+     */
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotal = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 纳秒, 小于0时按0记录
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets.incrementAndGet(indexOf(nanos));
+        mCount.incrementAndGet();
+        mTotal.addAndGet(nanos);
+        for (; ; ) {
+            long max = mMax.get();
+            if (nanos <= max || mMax.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mTotal.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * 获取当前数据的快照, 记录仍在进行时快照中的各项数据可能有微小的不一致
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+            count += buckets[i];
+        }
+        return new Snapshot(buckets, count, mTotal.get(), mMax.get());
+    }
+
+    private static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (nanos >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    /**
+     * 桶内的最大值, 百分位按桶的最大值计算, 结果不会低于真实值
+     */
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long sub = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图的快照, 时间单位都是纳秒
+     */
+    public static final class Snapshot {
+
+        private final long[] mBuckets;
+        private final long mCount;
+        private final long mTotal;
+        private final long mMax;
+
+        private Snapshot(long[] buckets, long count, long total, long max) {
+            mBuckets = buckets;
+            mCount = count;
+            mTotal = total;
+            mMax = max;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        public long getTotal() {
+            return mTotal;
+        }
+
+        public long getMean() {
+            return mCount == 0 ? 0 : mTotal / mCount;
+        }
+
+        /**
+         * 获取百分位
+         *
+         * @param percentile 0到100之间, 例如99表示p99
+         * @return 纳秒, 没有数据时返回0
+         */
+        public long getPercentile(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(mCount * Math.min(100, Math.max(0, percentile)) / 100);
+            rank = Math.max(1, rank);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    // 最后一个桶包含超出范围的值, 没有上界
+                    return i == mBuckets.length - 1 ? mMax : Math.min(upperBoundOf(i), mMax);
+                }
+            }
+            return mMax;
+        }
+
+        public long getP50() {
+            return getPercentile(50);
+        }
+
+        public long getP90() {
+            return getPercentile(90);
+        }
+
+        public long getP99() {
+            return getPercentile(99);
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount + ", mean=" + getMean() + "ns, p50=" + getP50() + "ns, p90=" + getP90()
+                    + "ns, p99=" + getP99() + "ns, max=" + mMax + "ns";
+        }
+    }
+}
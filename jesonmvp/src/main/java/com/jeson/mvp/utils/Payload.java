@@ -0,0 +1,70 @@
+package com.jeson.mvp.utils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 类型化回调的数据载体基类<br/>
+ * 1. 可复用: 通过{@link PayloadPool}获取的对象, 在使用完成后调用recycle()放回对象池, 高频更新时不再每次创建新对象<br/>
+ * 2. 不可变交接: 子线程填充完数据后调用freeze(), 之后任何修改都会抛出异常, 主线程可以安全的读取<br/>
+ * 子类的setter方法需要先调用checkMutable()
+ */
+
+public abstract class Payload {
+
+    private volatile boolean isFrozen = false;
+    /**
+     * 是否已经回收, 防止重复回收
+     */
+    private final AtomicBoolean mRecycled = new AtomicBoolean(false);
+    /**
+     * 所属的对象池, 不是从对象池获取时为null
+     */
+    PayloadPool<?> mPool;
+
+    /**
+     * 冻结数据, 之后不能再修改, 一般在交给其他线程之前调用
+     */
+    public final void freeze() {
+        isFrozen = true;
+    }
+
+    public final boolean isFrozen() {
+        return isFrozen;
+    }
+
+    /**
+     * 检查是否可以修改, 子类的setter方法需要先调用这个方法
+     */
+    protected final void checkMutable() {
+        if (isFrozen) {
+            throw new IllegalStateException(getClass().getName() + " is frozen and can not be modified");
+        }
+    }
+
+    /**
+     * 回收数据, 回收之后不要再使用这个对象
+     */
+    public final void recycle() {
+        if (!mRecycled.compareAndSet(false, true)) {
+            throw new IllegalStateException(getClass().getName() + " has been recycled");
+        }
+        onRecycle();
+        isFrozen = false;
+        PayloadPool<?> pool = mPool;
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+
+    /**
+     * 从对象池中取出时调用
+     */
+    final void reuse() {
+        mRecycled.set(false);
+    }
+
+    /**
+     * 回收时调用, 子类需要在这里清除数据, 尤其是对其他对象的引用
+     */
+    protected abstract void onRecycle();
+}
@@ -0,0 +1,88 @@
+package com.jeson.mvp.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁的Payload对象池, 多个线程可以同时获取和回收, 获取和回收都不会创建新的对象<br/>
+ * 对象池为空时会创建新对象, 对象池满时回收的对象会被丢弃
+ *
+ * @param <P> Payload类型
+ */
+
+public abstract class PayloadPool<P extends Payload> {
+
+    private final AtomicReferenceArray<P> mSlots;
+    /**
+     * 获取对象时对象池为空而创建的对象数量, 稳定状态下不应该再增加
+     */
+    private final AtomicLong mCreatedCount = new AtomicLong();
+
+    /**
+     * @param capacity 对象池的容量
+     */
+    public PayloadPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mSlots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * 创建一个新的对象
+     */
+    protected abstract P create();
+
+    /**
+     * 预先填满对象池, 创建的对象不计入getCreatedCount()
+     */
+    public void prefill() {
+        for (int i = 0; i < mSlots.length(); i++) {
+            if (mSlots.get(i) == null) {
+                P payload = create();
+                payload.mPool = this;
+                if (!mSlots.compareAndSet(i, null, payload)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取一个对象, 优先从对象池中获取
+     *
+     * @return 可以修改的对象
+     */
+    public P obtain() {
+        int length = mSlots.length();
+        int start = (int) (Thread.currentThread().getId() % length); // 不同线程从不同的位置开始, 减少竞争
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            P payload = mSlots.get(index);
+            if (payload != null && mSlots.compareAndSet(index, payload, null)) {
+                payload.reuse();
+                return payload;
+            }
+        }
+        P payload = create();
+        payload.mPool = this;
+        mCreatedCount.incrementAndGet();
+        return payload;
+    }
+
+    @SuppressWarnings("unchecked")
+    void release(Payload payload) {
+        int length = mSlots.length();
+        int start = (int) (Thread.currentThread().getId() % length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (mSlots.get(index) == null && mSlots.compareAndSet(index, null, (P) payload)) {
+                return;
+            }
+        }
+    }
+
+    public long getCreatedCount() {
+        return mCreatedCount.get();
+    }
+}
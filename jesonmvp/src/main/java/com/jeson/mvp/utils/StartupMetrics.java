@@ -0,0 +1,158 @@
+package com.jeson.mvp.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 页面启动阶段的耗时统计, 按阶段和类名记录, 通过{@link #setDefault(StartupMetrics)}开启后由model和presenter自动记录<br/>
+ * 线程池改为第一次使用或者预热时才创建, 创建线程池的耗时记录在PHASE_EXECUTOR_ON_DEMAND或PHASE_EXECUTOR_ON_IDLE,
+ * 这部分时间原来在model的构造方法中, 即Activity的onCreate()中, 通过{@link Snapshot#getDeferredNanos()}读取
+ */
+
+public class StartupMetrics {
+
+    /**
+     * BasicModel的构造方法
+     */
+    public static final int PHASE_MODEL_INIT = 0;
+    /**
+     * BasicPresenter的构造方法
+     */
+    public static final int PHASE_PRESENTER_INIT = 1;
+    /**
+     * 由宿主Activity分发的presenter的onCreate(), 包括model的onCreate()
+     */
+    public static final int PHASE_CREATE = 2;
+    /**
+     * 第一次使用时创建线程池
+     */
+    public static final int PHASE_EXECUTOR_ON_DEMAND = 3;
+    /**
+     * 预热时在主线程空闲时创建线程池
+     */
+    public static final int PHASE_EXECUTOR_ON_IDLE = 4;
+
+    private static final String[] PHASE_NAMES = {"modelInit", "presenterInit", "create", "executorOnDemand", "executorOnIdle"};
+
+    private static volatile StartupMetrics sDefault;
+
+    private final List<ConcurrentMap<String, LatencyHistogram>> mPhases = new ArrayList<>(PHASE_NAMES.length);
+
+    public StartupMetrics() {
+        for (int i = 0; i < PHASE_NAMES.length; i++) {
+            mPhases.add(new ConcurrentHashMap<String, LatencyHistogram>());
+        }
+    }
+
+    /**
+     * 设置进程内的启动统计, 一般在Application的onCreate()中设置
+     *
+     * @param metrics 统计, 为null时关闭统计
+     */
+    public static void setDefault(StartupMetrics metrics) {
+        sDefault = metrics;
+    }
+
+    public static StartupMetrics getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param phase 阶段, 例如PHASE_MODEL_INIT
+     * @param owner model或者presenter的类
+     * @param nanos 耗时
+     */
+    public void record(int phase, Class<?> owner, long nanos) {
+        ConcurrentMap<String, LatencyHistogram> entries = mPhases.get(phase);
+        String name = owner.getName();
+        LatencyHistogram histogram = entries.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram previous = entries.putIfAbsent(name, histogram);
+            if (previous != null) {
+                histogram = previous;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    public void reset() {
+        for (ConcurrentMap<String, LatencyHistogram> entries : mPhases) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 获取当前所有统计数据的快照
+     */
+    public Snapshot snapshot() {
+        List<Map<String, LatencyHistogram.Snapshot>> phases = new ArrayList<>(mPhases.size());
+        for (ConcurrentMap<String, LatencyHistogram> entries : mPhases) {
+            Map<String, LatencyHistogram.Snapshot> stats = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> entry : entries.entrySet()) {
+                stats.put(entry.getKey(), entry.getValue().snapshot());
+            }
+            phases.add(Collections.unmodifiableMap(stats));
+        }
+        return new Snapshot(phases);
+    }
+
+    /**
+     * 统计数据的快照
+     */
+    public static final class Snapshot {
+
+        private final List<Map<String, LatencyHistogram.Snapshot>> mPhases;
+
+        private Snapshot(List<Map<String, LatencyHistogram.Snapshot>> phases) {
+            mPhases = phases;
+        }
+
+        /**
+         * 获取一个阶段按类名排序的统计
+         *
+         * @param phase 阶段, 例如PHASE_MODEL_INIT
+         */
+        public Map<String, LatencyHistogram.Snapshot> getPhase(int phase) {
+            return mPhases.get(phase);
+        }
+
+        /**
+         * 获取一个阶段所有类的总耗时
+         */
+        public long getTotalNanos(int phase) {
+            long total = 0;
+            for (LatencyHistogram.Snapshot stats : mPhases.get(phase).values()) {
+                total += stats.getTotal();
+            }
+            return total;
+        }
+
+        /**
+         * 获取从启动过程中移出的线程池创建耗时, 即第一次使用和预热时创建线程池的总耗时
+         */
+        public long getDeferredNanos() {
+            return getTotalNanos(PHASE_EXECUTOR_ON_DEMAND) + getTotalNanos(PHASE_EXECUTOR_ON_IDLE);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < mPhases.size(); i++) {
+                for (Map.Entry<String, LatencyHistogram.Snapshot> entry : mPhases.get(i).entrySet()) {
+                    builder.append(PHASE_NAMES[i]).append(' ').append(entry.getKey())
+                            .append(": ").append(entry.getValue()).append('\n');
+                }
+            }
+            builder.append("deferred: ").append(getDeferredNanos()).append("ns\n");
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.jeson.mvp.utils;
+
+import android.os.Bundle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * 保存在onSaveInstanceState()中的状态快照<br/>
+ * 状态通过{@link BundleCodec}编码为紧凑的二进制, 不超过{@link #INLINE_LIMIT_BYTES}时以byte[]放入outState,
+ * 否则写入本地文件, outState中只保存文件名, 因此不会因为状态过大抛出TransactionTooLargeException<br/>
+ * 恢复时只读取outState中的引用, 第一次调用{@link #get()}时才读取文件并解码<br/>
+ * 恢复的状态被新的状态替换后调用{@link #release()}, 文件在第一次读取之后删除, 因此延迟读取的状态不会丢失
+ */
+
+public final class StateSnapshot {
+
+    /**
+     * 直接放入outState的最大编码长度, 超过时写入文件; 一个Activity所有状态的总和需要远小于Binder事务的1MB限制
+     */
+    public static final int INLINE_LIMIT_BYTES = 16 * 1024;
+
+    private static final String KEY_INLINE_SUFFIX = ":inline";
+    private static final String KEY_FILE_SUFFIX = ":file";
+    private static final String FILE_SUFFIX = ".state";
+    private static final int FILE_MAGIC = 0x4A4D5353;
+    private static final int FILE_HEADER_BYTES = 12;
+    /**
+     * 超过这个时间的状态文件在下一次写入时删除, 例如进程被杀后没有再恢复的页面留下的文件
+     */
+    private static final long MAX_FILE_AGE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static volatile boolean isPruned = false;
+
+    private final byte[] mInline;
+    private final File mFile;
+    private Bundle mState;
+    private boolean isLoaded = false;
+    /**
+     * 文件是否已经不再需要, 读取之后删除
+     */
+    private boolean isReleased = false;
+
+    private StateSnapshot(byte[] inline, File file) {
+        mInline = inline;
+        mFile = file;
+    }
+
+    /**
+     * 保存状态
+     *
+     * @param outState  onSaveInstanceState()的参数
+     * @param key       状态在outState中的键, 同一个outState中不能重复
+     * @param state     状态
+     * @param directory 状态过大时写入的目录, 为null时总是放入outState
+     * @return 写入的文件, 状态直接放入outState时返回null
+     * @throws IOException 写入文件失败, 此时outState没有被修改
+     */
+    public static File write(Bundle outState, String key, Bundle state, File directory) throws IOException {
+        byte[] bytes = BundleCodec.encode(state);
+        if (bytes.length <= INLINE_LIMIT_BYTES || directory == null) {
+            outState.putByteArray(key + KEY_INLINE_SUFFIX, bytes);
+            outState.remove(key + KEY_FILE_SUFFIX);
+            return null;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        if (!isPruned) {
+            isPruned = true;
+            prune(directory);
+        }
+        File file = new File(directory, UUID.randomUUID().toString() + FILE_SUFFIX);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        header.putInt(FILE_MAGIC).putInt(bytes.length).putInt((int) crc.getValue());
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(header.array());
+            out.write(bytes);
+        } catch (IOException e) {
+            out.close();
+            file.delete();
+            throw e;
+        }
+        out.close();
+        outState.putString(key + KEY_FILE_SUFFIX, file.getAbsolutePath());
+        outState.remove(key + KEY_INLINE_SUFFIX);
+        return file;
+    }
+
+    /**
+     * 读取状态的引用, 不会读取文件也不会解码
+     *
+     * @param savedInstanceState onCreate()的参数, 可以为null
+     * @param key                保存时使用的键
+     * @return 快照, 没有保存过时返回null
+     */
+    public static StateSnapshot read(Bundle savedInstanceState, String key) {
+        if (savedInstanceState == null) {
+            return null;
+        }
+        byte[] inline = savedInstanceState.getByteArray(key + KEY_INLINE_SUFFIX);
+        if (inline != null) {
+            return new StateSnapshot(inline, null);
+        }
+        String path = savedInstanceState.getString(key + KEY_FILE_SUFFIX);
+        return path == null ? null : new StateSnapshot(null, new File(path));
+    }
+
+    /**
+     * 获取状态, 第一次调用时读取文件并解码
+     *
+     * @return 状态, 文件已经被删除或者内容损坏时返回null
+     */
+    public synchronized Bundle get() {
+        if (!isLoaded) {
+            isLoaded = true;
+            try {
+                mState = mInline != null ? BundleCodec.decode(mInline) : load(mFile);
+            } catch (IllegalArgumentException | IOException e) {
+                mState = null;
+            }
+            if (isReleased && mFile != null) {
+                mFile.delete();
+            }
+        }
+        return mState;
+    }
+
+    /**
+     * 文件不再需要保留, 已经读取过时立即删除, 否则在第一次读取之后删除
+     */
+    public synchronized void release() {
+        isReleased = true;
+        if (isLoaded && mFile != null) {
+            mFile.delete();
+        }
+    }
+
+    /**
+     * 不再读取, 立即删除文件, 之后get()返回null
+     */
+    public synchronized void discard() {
+        isReleased = true;
+        isLoaded = true;
+        mState = null;
+        if (mFile != null) {
+            mFile.delete();
+        }
+    }
+
+    /**
+     * 状态保存在的文件, 直接放入outState时返回null
+     */
+    public File getFile() {
+        return mFile;
+    }
+
+    private static Bundle load(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            long length = in.length();
+            if (length < FILE_HEADER_BYTES || length - FILE_HEADER_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Invalid state file " + file);
+            }
+            byte[] bytes = new byte[(int) length];
+            in.readFully(bytes);
+            ByteBuffer header = ByteBuffer.wrap(bytes, 0, FILE_HEADER_BYTES);
+            int size = header.getInt(4);
+            if (header.getInt(0) != FILE_MAGIC || size != bytes.length - FILE_HEADER_BYTES) {
+                throw new IOException("Invalid state file " + file);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, FILE_HEADER_BYTES, size);
+            if ((int) crc.getValue() != header.getInt(8)) {
+                throw new IOException("Corrupt state file " + file);
+            }
+            return BundleCodec.decode(bytes, FILE_HEADER_BYTES, size);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void prune(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - MAX_FILE_AGE_MILLIS;
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_SUFFIX) && file.lastModified() < expired) {
+                file.delete();
+            }
+        }
+    }
+}
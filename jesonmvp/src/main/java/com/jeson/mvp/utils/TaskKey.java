@@ -0,0 +1,69 @@
+package com.jeson.mvp.utils;
+
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * 由任务类型和参数组成的键, 任务类型相同且参数内容相等的两个TaskKey相等<br/>
+ * 创建时会对参数做一次快照, 之后修改参数不会影响这个键
+ */
+
+public final class TaskKey {
+
+    private final int mType;
+    private final String[] mNames;
+    private final Object[] mValues;
+    private final int mHashCode;
+
+    public TaskKey(int type, Bundle data) {
+        mType = type;
+        if (data == null || data.isEmpty()) {
+            mNames = new String[0];
+            mValues = new Object[0];
+        } else {
+            mNames = data.keySet().toArray(new String[data.size()]);
+            Arrays.sort(mNames);
+            mValues = new Object[mNames.length];
+            for (int i = 0; i < mNames.length; i++) {
+                Object value = data.get(mNames[i]);
+                // 嵌套的Bundle没有实现equals(), 同样转换为TaskKey进行比较
+                mValues[i] = value instanceof Bundle ? new TaskKey(0, (Bundle) value) : value;
+            }
+        }
+        mHashCode = 31 * (31 * type + Arrays.hashCode(mNames)) + Arrays.deepHashCode(mValues);
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TaskKey)) {
+            return false;
+        }
+        TaskKey other = (TaskKey) o;
+        return mType == other.mType && mHashCode == other.mHashCode
+                && Arrays.equals(mNames, other.mNames) && Arrays.deepEquals(mValues, other.mValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("TaskKey{type=").append(mType);
+        for (int i = 0; i < mNames.length; i++) {
+            builder.append(", ").append(mNames[i]).append('=');
+            Object value = mValues[i];
+            builder.append(value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value));
+        }
+        return builder.append('}').toString();
+    }
+}
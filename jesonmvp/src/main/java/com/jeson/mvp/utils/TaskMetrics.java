@@ -0,0 +1,267 @@
+package com.jeson.mvp.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务的耗时和结果统计, 可以被多个model和presenter共用<br/>
+ * model按消息的what记录排队时间(从发送到开始运行)和运行时间; presenter按dataType记录回调切换至主线程的耗时, 以及call/onSuccess/onFailed/onError的次数<br/>
+ * 记录时不加锁也不创建对象(每个what或dataType第一次出现时除外), 可以在正式版本中一直开启, 通过snapshot()读取
+ */
+
+public class TaskMetrics {
+
+    public static final int RESULT_WORKING = 0;
+    public static final int RESULT_SUCCESS = 1;
+    public static final int RESULT_FAILED = 2;
+    public static final int RESULT_ERROR = 3;
+
+    private final Registry<TaskEntry> mTasks = new Registry<TaskEntry>() {
+        @Override
+        TaskEntry create() {
+            return new TaskEntry();
+        }
+    };
+    private final Registry<DataEntry> mData = new Registry<DataEntry>() {
+        @Override
+        DataEntry create() {
+            return new DataEntry();
+        }
+    };
+
+    /**
+     * 记录一次任务, 由model调用
+     *
+     * @param what           消息的what
+     * @param queueWaitNanos 排队时间
+     * @param executionNanos 运行时间
+     */
+    public void recordTask(int what, long queueWaitNanos, long executionNanos) {
+        TaskEntry entry = mTasks.get(what);
+        entry.mQueueWait.record(queueWaitNanos);
+        entry.mExecution.record(executionNanos);
+    }
+
+    /**
+     * 记录一次回调从子线程切换至主线程的耗时, 由presenter调用
+     */
+    public void recordHop(int dataType, long hopNanos) {
+        mData.get(dataType).mHop.record(hopNanos);
+    }
+
+    /**
+     * 记录一次回调, 由presenter调用
+     *
+     * @param result RESULT_WORKING, RESULT_SUCCESS, RESULT_FAILED或者RESULT_ERROR
+     */
+    public void recordResult(int dataType, int result) {
+        mData.get(dataType).mResults[result].incrementAndGet();
+    }
+
+    public void reset() {
+        Table table = mTasks.mTable;
+        for (Object value : table.mValues) {
+            TaskEntry entry = (TaskEntry) value;
+            entry.mQueueWait.reset();
+            entry.mExecution.reset();
+        }
+        table = mData.mTable;
+        for (Object value : table.mValues) {
+            DataEntry entry = (DataEntry) value;
+            entry.mHop.reset();
+            for (AtomicLong result : entry.mResults) {
+                result.set(0);
+            }
+        }
+    }
+
+    /**
+     * 获取当前所有统计数据的快照
+     */
+    public Snapshot snapshot() {
+        Map<Integer, TaskStats> tasks = new TreeMap<>();
+        Table table = mTasks.mTable;
+        for (int i = 0; i < table.mKeys.length; i++) {
+            TaskEntry entry = (TaskEntry) table.mValues[i];
+            tasks.put(table.mKeys[i], new TaskStats(table.mKeys[i], entry.mQueueWait.snapshot(), entry.mExecution.snapshot()));
+        }
+        Map<Integer, DataStats> data = new TreeMap<>();
+        table = mData.mTable;
+        for (int i = 0; i < table.mKeys.length; i++) {
+            DataEntry entry = (DataEntry) table.mValues[i];
+            long[] results = new long[entry.mResults.length];
+            for (int j = 0; j < results.length; j++) {
+                results[j] = entry.mResults[j].get();
+            }
+            data.put(table.mKeys[i], new DataStats(table.mKeys[i], entry.mHop.snapshot(), results));
+        }
+        return new Snapshot(tasks, data);
+    }
+
+    private static class TaskEntry {
+        private final LatencyHistogram mQueueWait = new LatencyHistogram();
+        private final LatencyHistogram mExecution = new LatencyHistogram();
+    }
+
+    private static class DataEntry {
+        private final LatencyHistogram mHop = new LatencyHistogram();
+        private final AtomicLong[] mResults = {new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong()};
+    }
+
+    /**
+     * 按int查找的写时复制表, 查找时不加锁, 只有出现新的key时才加锁并复制数组
+     */
+    private abstract static class Registry<E> {
+
+        /**
+         * keys和values放在同一个不可变对象中, 一次volatile读取就能得到一致的数据
+         */
+        private volatile Table mTable = new Table(new int[0], new Object[0]);
+
+        abstract E create();
+
+        @SuppressWarnings("unchecked")
+        E get(int key) {
+            Table table = mTable;
+            int index = Arrays.binarySearch(table.mKeys, key);
+            if (index >= 0) {
+                return (E) table.mValues[index];
+            }
+            synchronized (this) {
+                table = mTable;
+                index = Arrays.binarySearch(table.mKeys, key);
+                if (index >= 0) {
+                    return (E) table.mValues[index];
+                }
+                index = -index - 1;
+                int length = table.mKeys.length;
+                int[] keys = new int[length + 1];
+                Object[] values = new Object[length + 1];
+                System.arraycopy(table.mKeys, 0, keys, 0, index);
+                System.arraycopy(table.mKeys, index, keys, index + 1, length - index);
+                System.arraycopy(table.mValues, 0, values, 0, index);
+                System.arraycopy(table.mValues, index, values, index + 1, length - index);
+                E value = create();
+                keys[index] = key;
+                values[index] = value;
+                mTable = new Table(keys, values);
+                return value;
+            }
+        }
+
+    }
+
+    private static class Table {
+        private final int[] mKeys;
+        private final Object[] mValues;
+
+        Table(int[] keys, Object[] values) {
+            mKeys = keys;
+            mValues = values;
+        }
+    }
+
+    /**
+     * 统计数据的快照
+     */
+    public static final class Snapshot {
+
+        private final Map<Integer, TaskStats> mTasks;
+        private final Map<Integer, DataStats> mData;
+
+        private Snapshot(Map<Integer, TaskStats> tasks, Map<Integer, DataStats> data) {
+            mTasks = Collections.unmodifiableMap(tasks);
+            mData = Collections.unmodifiableMap(data);
+        }
+
+        /**
+         * 按what排序的任务统计
+         */
+        public Map<Integer, TaskStats> getTasks() {
+            return mTasks;
+        }
+
+        /**
+         * 按dataType排序的回调统计
+         */
+        public Map<Integer, DataStats> getData() {
+            return mData;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (TaskStats stats : mTasks.values()) {
+                builder.append(stats).append('\n');
+            }
+            for (DataStats stats : mData.values()) {
+                builder.append(stats).append('\n');
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * 一种任务(消息的what)的统计
+     */
+    public static final class TaskStats {
+
+        public final int what;
+        /**
+         * 从发送消息到开始运行的时间
+         */
+        public final LatencyHistogram.Snapshot queueWait;
+        /**
+         * handleMessage()的运行时间
+         */
+        public final LatencyHistogram.Snapshot execution;
+
+        private TaskStats(int what, LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution) {
+            this.what = what;
+            this.queueWait = queueWait;
+            this.execution = execution;
+        }
+
+        @Override
+        public String toString() {
+            return "task " + what + ": queueWait[" + queueWait + "], execution[" + execution + "]";
+        }
+    }
+
+    /**
+     * 一种数据(dataType)的回调统计
+     */
+    public static final class DataStats {
+
+        public final int dataType;
+        /**
+         * 回调从子线程切换至主线程的耗时
+         */
+        public final LatencyHistogram.Snapshot hop;
+        private final long[] mResults;
+
+        private DataStats(int dataType, LatencyHistogram.Snapshot hop, long[] results) {
+            this.dataType = dataType;
+            this.hop = hop;
+            mResults = results;
+        }
+
+        /**
+         * 获取某种回调的次数
+         *
+         * @param result RESULT_WORKING, RESULT_SUCCESS, RESULT_FAILED或者RESULT_ERROR
+         */
+        public long getCount(int result) {
+            return mResults[result];
+        }
+
+        @Override
+        public String toString() {
+            return "data " + dataType + ": working=" + mResults[RESULT_WORKING] + ", success=" + mResults[RESULT_SUCCESS]
+                    + ", failed=" + mResults[RESULT_FAILED] + ", error=" + mResults[RESULT_ERROR] + ", hop[" + hop + "]";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.jeson.mvp.view;
+
+
+/**
+ * 类型化的view层接口, 数据不再使用Bundle传递, 与BasicTypedPresenter配合使用, 不需要再实现{@link IBasicView}
+ *
+ * @param <D> 数据类型
+ */
+
+public interface ITypedView<D> {
+
+    /**
+     * 当有新的数据更新时, presentr会调用这个方法
+     *
+     * @param dataType 数据类型
+     * @param data     数据更新时的数据载体, 如果是{@link com.jeson.mvp.utils.Payload}, 使用完成后需要调用recycle()
+     */
+    void onDataUpdate(int dataType, D data);
+
+}
@@ -0,0 +1,133 @@
+package com.jeson.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jeson.mvp.scheduler.IScheduler;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 单元测试的工具方法, 启动一个线程作为主线程运行主Looper, 每个JVM只启动一次; 也可以在{@link EventLoopScheduler}上运行
+ */
+
+public final class Loops {
+
+    /**
+     * 等待的超时时间
+     */
+    public static final long TIMEOUT_SECONDS = 5;
+
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static Handler sMainHandler;
+
+    private Loops() {
+    }
+
+    /**
+     * 启动主线程, 返回时主Looper已经可以使用
+     *
+     * @return 运行在主线程的Handler
+     */
+    public static synchronized Handler main() throws InterruptedException {
+        if (sMainHandler == null) {
+            final CountDownLatch prepared = new CountDownLatch(1);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Looper.prepareMainLooper();
+                    prepared.countDown();
+                    Looper.loop();
+                }
+            }, "main");
+            thread.setDaemon(true);
+            thread.start();
+            await(prepared);
+            sMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return sMainHandler;
+    }
+
+    /**
+     * 在主线程中运行任务并等待结束, 任务抛出的异常会在当前线程重新抛出
+     */
+    public static void run(Runnable task) throws InterruptedException {
+        WaitingTask waiting = new WaitingTask(task);
+        main().post(waiting);
+        waiting.await();
+    }
+
+    /**
+     * 在调度器的线程中运行任务并等待结束, 例如{@link EventLoopScheduler}, 任务抛出的异常会在当前线程重新抛出
+     */
+    public static void run(IScheduler scheduler, Runnable task) throws InterruptedException {
+        WaitingTask waiting = new WaitingTask(task);
+        scheduler.post(waiting);
+        waiting.await();
+    }
+
+    /**
+     * 等待之前发送到主线程的消息都处理完
+     */
+    public static void drain() throws InterruptedException {
+        run(NOTHING);
+    }
+
+    /**
+     * 等待之前提交到调度器的任务都运行结束
+     */
+    public static void drain(IScheduler scheduler) throws InterruptedException {
+        run(scheduler, NOTHING);
+    }
+
+    public static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue("timed out after " + TIMEOUT_SECONDS + "s", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 记录任务的结束和抛出的异常
+     */
+    private static class WaitingTask implements Runnable {
+
+        private final Runnable mTask;
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private final AtomicReference<Throwable> mError = new AtomicReference<>();
+
+        WaitingTask(Runnable task) {
+            mTask = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mTask.run();
+            } catch (Throwable t) {
+                mError.set(t);
+            } finally {
+                mDone.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            Loops.await(mDone);
+            Throwable t = mError.get();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t != null) {
+                throw new AssertionError(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.jeson.mvp.model.impl;
+
+import com.jeson.mvp.Loops;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveExecutorTest {
+
+    private AdaptiveExecutor mExecutor;
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        mExecutor = new AdaptiveExecutor(1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    mRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Loops.await(started); // 唯一的线程被占用, 之后提交的任务留在队列中
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mRelease.countDown();
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void cancelRemovesWrappedTaskFromQueue() {
+        final AtomicBoolean ran = new AtomicBoolean(false);
+        TaskHandle handle = new TaskHandle(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(true);
+            }
+        }, Collections.newSetFromMap(new ConcurrentHashMap<TaskHandle, Boolean>()));
+        handle.register(mExecutor);
+        mExecutor.execute(handle);
+        assertEquals(1, mExecutor.getQueue().size());
+        handle.cancel();
+        assertEquals(0, mExecutor.getQueue().size());
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void removeMatchesOriginalTask() {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        mExecutor.execute(task);
+        assertTrue(mExecutor.remove(task));
+        assertFalse(mExecutor.remove(task));
+        assertTrue(mExecutor.getQueue().isEmpty());
+    }
+
+    @Test
+    public void shutdownNowReturnsOriginalTasks() {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        mExecutor.execute(task);
+        List<Runnable> pending = mExecutor.shutdownNow();
+        assertEquals(1, pending.size());
+        assertSame(task, pending.get(0));
+    }
+}
@@ -0,0 +1,148 @@
+package com.jeson.mvp.model.impl;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BoundedExecutor.OverflowPolicy;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedExecutorTest {
+
+    private BoundedExecutor mExecutor;
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final List<Runnable> mRejected = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        mRelease.countDown();
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 创建只有一个线程和一个排队位置的线程池, 并使线程和队列都被占满
+     */
+    private void saturate(OverflowPolicy policy) throws Exception {
+        mExecutor = new BoundedExecutor(1, 1, policy);
+        mExecutor.setRejectionListener(new BoundedExecutor.RejectionListener() {
+            @Override
+            public void onRejected(Runnable task, int taskType) {
+                mRejected.add(task);
+            }
+        });
+        final CountDownLatch started = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    mRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Loops.await(started);
+        mExecutor.execute(noop(), 1);
+    }
+
+    @Test
+    public void blockWaitsForSpaceOnOrdinaryThreads() throws Exception {
+        saturate(OverflowPolicy.BLOCK);
+        final CountDownLatch ran = new CountDownLatch(1);
+        Thread submitter = new Thread() {
+            @Override
+            public void run() {
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ran.countDown();
+                    }
+                }, 2);
+            }
+        };
+        submitter.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Loops.TIMEOUT_SECONDS);
+        while (submitter.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.TIMED_WAITING, submitter.getState());
+        mRelease.countDown();
+        Loops.await(ran);
+        submitter.join();
+        assertTrue(mRejected.isEmpty());
+    }
+
+    @Test
+    public void blockDoesNotBlockTheSchedulerThread() throws Exception {
+        saturate(OverflowPolicy.BLOCK);
+        EventLoopScheduler loop = new EventLoopScheduler("test-main");
+        mExecutor.setScheduler(loop);
+        final Runnable task = noop();
+        try {
+            Loops.run(loop, new Runnable() {
+                @Override
+                public void run() {
+                    mExecutor.execute(task, 2); // 阻塞时Loops.run()会超时
+                }
+            });
+        } finally {
+            loop.quit();
+        }
+        assertEquals(1, mRejected.size());
+        assertSame(task, mRejected.get(0));
+    }
+
+    @Test
+    public void coalesceReplacesQueuedTaskOfTheSameType() throws Exception {
+        saturate(OverflowPolicy.COALESCE_LATEST);
+        final CountDownLatch ran = new CountDownLatch(1);
+        Runnable latest = new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        };
+        mExecutor.execute(latest, 1);
+        assertEquals(1, mRejected.size());
+        assertEquals(1, mExecutor.getQueue().size());
+        mRelease.countDown();
+        Loops.await(ran);
+    }
+
+    @Test
+    public void dropOldestMakesRoomForTheSameType() throws Exception {
+        saturate(OverflowPolicy.DROP_OLDEST_SAME_TYPE);
+        Runnable other = noop();
+        mExecutor.execute(other, 2); // 队列中没有类型2的任务, 丢弃新任务
+        assertSame(other, mRejected.get(0));
+        final CountDownLatch ran = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 1);
+        assertEquals(2, mRejected.size());
+        mRelease.countDown();
+        Loops.await(ran);
+    }
+
+    private static Runnable noop() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Looper;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DestroyedDispatchTest {
+
+    @Test
+    public void messageDispatchedWhileDestroyingIsDropped() throws Exception {
+        Loops.main();
+        final DestroyingModel model = new DestroyingModel(2);
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                model.getWorkHandler().sendEmptyMessage(1);
+            }
+        });
+        Loops.drain();
+        assertEquals(1, model.mKeys.get());
+        assertEquals(0, model.mHandled.get());
+    }
+
+    @Test
+    public void directMessageDispatchedWhileDestroyingIsDropped() throws Exception {
+        Loops.main();
+        DestroyingModel model = new DestroyingModel(2);
+        model.setDirectDispatch(true);
+        model.getWorkHandler().sendEmptyMessage(1);
+        Loops.drain();
+        assertEquals(1, model.mKeys.get());
+        assertEquals(0, model.mHandled.get());
+    }
+
+    @Test
+    public void postedRunnableDispatchedWhileDestroyingIsDropped() throws Exception {
+        Loops.main();
+        final DestroyingModel model = new DestroyingModel(2);
+        model.setDirectDispatch(true);
+        model.getWorkHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                model.mHandled.incrementAndGet();
+            }
+        });
+        Loops.drain();
+        assertEquals(1, model.mKeys.get());
+        assertEquals(0, model.mHandled.get());
+    }
+
+    @Test
+    public void mainThreadModelStillRunsTasksOnTheMainThread() throws Exception {
+        Loops.main();
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final CountDownLatch ran = new CountDownLatch(1);
+        DestroyingModel model = new DestroyingModel(BasicModel.MAIN_THREAD);
+        try {
+            model.executeWithPriority(new Runnable() {
+                @Override
+                public void run() {
+                    thread.set(Thread.currentThread());
+                    ran.countDown();
+                }
+            }, PriorityExecutor.PRIORITY_DEFAULT);
+            Loops.await(ran);
+            assertSame(Looper.getMainLooper().getThread(), thread.get());
+        } finally {
+            model.onDestroy();
+        }
+    }
+
+    /**
+     * 在计算消息的键时销毁model, 模拟派发过程中主线程同时销毁model
+     */
+    static class DestroyingModel extends BasicModel {
+
+        final AtomicInteger mKeys = new AtomicInteger();
+        final AtomicInteger mHandled = new AtomicInteger();
+        private final int mThreadCount;
+
+        DestroyingModel(int nThreads) {
+            super(nThreads);
+            mThreadCount = nThreads;
+        }
+
+        @Override
+        protected int getTaskKey(Message msg) {
+            if (mKeys.incrementAndGet() == 1 && mThreadCount != MAIN_THREAD) {
+                onDestroy();
+            }
+            return super.getTaskKey(msg);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+            mHandled.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Message;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KeyedExecutorTest {
+
+    private KeyedExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = new KeyedExecutor(4);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void tasksWithTheSameKeyRunInOrder() throws Exception {
+        final int keys = 32;
+        final int perKey = 500;
+        final int[] last = new int[keys];
+        final AtomicBoolean outOfOrder = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(keys * perKey);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int first = p;
+            producers[p] = new Thread() {
+                @Override
+                public void run() {
+                    for (int seq = 1; seq <= perKey; seq++) {
+                        for (int key = first; key < keys; key += 4) {
+                            final int k = key;
+                            final int s = seq;
+                            mExecutor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (last[k] != s - 1) {
+                                        outOfOrder.set(true);
+                                    }
+                                    last[k] = s;
+                                    done.countDown();
+                                }
+                            }, key);
+                        }
+                    }
+                }
+            };
+            producers[p].start();
+        }
+        Loops.await(done);
+        assertFalse(outOfOrder.get());
+    }
+
+    @Test
+    public void differentKeysRunInParallel() throws Exception {
+        final CountDownLatch started = new CountDownLatch(4);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, i * 1000003);
+        }
+        try {
+            assertTrue("4 keys should occupy 4 threads at once", started.await(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void workerThreadsAreDaemons() throws Exception {
+        final AtomicBoolean daemon = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                daemon.set(Thread.currentThread().isDaemon());
+                done.countDown();
+            }
+        });
+        Loops.await(done);
+        assertTrue(daemon.get());
+    }
+
+    @Test
+    public void shutdownDrainsThenRejects() throws Exception {
+        final AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ran.incrementAndGet();
+                }
+            }, i);
+        }
+        mExecutor.shutdown();
+        long start = System.nanoTime();
+        assertTrue(mExecutor.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("awaitTermination() should return once the last task finishes",
+                System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertTrue(ran.get() == 100);
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, 1);
+            fail("execute() after shutdown() should be rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void keyedModelKeepsMessageOrderPerKey() throws Exception {
+        EventLoopScheduler loop = new EventLoopScheduler("test-main");
+        OrderModel model = new OrderModel(loop, 16 * 200);
+        try {
+            for (int seq = 1; seq <= 200; seq++) {
+                for (int key = 0; key < 16; key++) {
+                    model.send(key, seq);
+                }
+            }
+            Loops.await(model.mDone);
+            assertFalse("messages of one key overlapped or ran out of order", model.mBroken.get());
+        } finally {
+            model.onDestroy();
+            loop.quit();
+        }
+    }
+
+    static class OrderModel extends BasicModel {
+
+        final int[] mLast = new int[16];
+        final AtomicInteger[] mRunning = new AtomicInteger[16];
+        final AtomicBoolean mBroken = new AtomicBoolean(false);
+        final CountDownLatch mDone;
+
+        OrderModel(EventLoopScheduler loop, int count) {
+            super(KEYED_THREAD, loop);
+            mDone = new CountDownLatch(count);
+            for (int i = 0; i < mRunning.length; i++) {
+                mRunning[i] = new AtomicInteger();
+            }
+        }
+
+        void send(int key, int seq) {
+            Message msg = Message.obtain();
+            msg.what = 1;
+            msg.arg1 = key;
+            msg.arg2 = seq;
+            submitMessage(msg, LifeStatus.ON_DESTROY);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+            int key = msg.arg1;
+            if (mRunning[key].incrementAndGet() != 1 || mLast[key] != msg.arg2 - 1) {
+                mBroken.set(true);
+            }
+            mLast[key] = msg.arg2;
+            mRunning[key].decrementAndGet();
+            mDone.countDown();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.presenter.impl.BasicPresenter;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.utils.StartupMetrics;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyExecutorTest {
+
+    private EventLoopScheduler mLoop;
+    private final StartupMetrics mMetrics = new StartupMetrics();
+    private LazyModel mModel;
+
+    @Before
+    public void setUp() {
+        StartupMetrics.setDefault(mMetrics);
+        mLoop = new EventLoopScheduler("test-main");
+        mModel = new LazyModel(mLoop);
+    }
+
+    @After
+    public void tearDown() {
+        StartupMetrics.setDefault(null);
+        mModel.onDestroy();
+        mLoop.quit();
+    }
+
+    private void runOnModel() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        mModel.run(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+        Loops.await(ran);
+    }
+
+    @Test
+    public void executorIsCreatedOnFirstUse() throws Exception {
+        assertEquals(0, mModel.mCreated.get());
+        assertTrue(mMetrics.snapshot().getPhase(StartupMetrics.PHASE_MODEL_INIT).containsKey(LazyModel.class.getName()));
+
+        runOnModel();
+        runOnModel();
+        assertEquals(1, mModel.mCreated.get());
+        // 创建线程池时子类的字段已经初始化
+        assertSame(mModel.mName, mModel.mNameOnCreate);
+        StartupMetrics.Snapshot snapshot = mMetrics.snapshot();
+        assertEquals(1, snapshot.getPhase(StartupMetrics.PHASE_EXECUTOR_ON_DEMAND).get(LazyModel.class.getName()).getCount());
+        assertTrue(snapshot.getPhase(StartupMetrics.PHASE_EXECUTOR_ON_IDLE).isEmpty());
+        assertEquals(snapshot.getTotalNanos(StartupMetrics.PHASE_EXECUTOR_ON_DEMAND), snapshot.getDeferredNanos());
+    }
+
+    @Test
+    public void warmUpCreatesTheExecutorAndStartsAThread() throws Exception {
+        mModel.warmUp();
+        assertEquals(1, mModel.mCreated.get());
+        assertEquals(1, mModel.mExecutor.getPoolSize());
+        mModel.warmUp();
+        assertEquals(1, mModel.mCreated.get());
+
+        runOnModel();
+        assertEquals(1, mModel.mCreated.get());
+        StartupMetrics.Snapshot snapshot = mMetrics.snapshot();
+        assertEquals(1, snapshot.getPhase(StartupMetrics.PHASE_EXECUTOR_ON_IDLE).get(LazyModel.class.getName()).getCount());
+        assertTrue(snapshot.getPhase(StartupMetrics.PHASE_EXECUTOR_ON_DEMAND).isEmpty());
+    }
+
+    @Test
+    public void destroyedModelNeverCreatesAnExecutor() {
+        mModel.onDestroy();
+        mModel.warmUp();
+        assertEquals(0, mModel.mCreated.get());
+    }
+
+    @Test
+    public void presenterWarmsUpTheModelWhenTheLoopIsIdle() throws Exception {
+        final WarmUpPresenter presenter = new WarmUpPresenter(mModel, mLoop);
+        final AtomicInteger createdInOnCreate = new AtomicInteger(-1);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onCreate(null);
+                createdInOnCreate.set(mModel.mCreated.get());
+            }
+        });
+        final CountDownLatch idle = new CountDownLatch(1);
+        mLoop.postIdle(new Runnable() {
+            @Override
+            public void run() {
+                idle.countDown();
+            }
+        });
+        Loops.await(idle);
+        assertEquals(0, createdInOnCreate.get());
+        assertEquals(1, mModel.mCreated.get());
+        assertNotNull(mMetrics.snapshot().getPhase(StartupMetrics.PHASE_PRESENTER_INIT).get(WarmUpPresenter.class.getName()));
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onDestroy();
+            }
+        });
+    }
+
+    static class LazyModel extends BasicModel {
+
+        final AtomicInteger mCreated = new AtomicInteger();
+        final String mName = "lazy";
+        volatile String mNameOnCreate;
+        volatile ThreadPoolExecutor mExecutor;
+
+        LazyModel(EventLoopScheduler loop) {
+            super(2, loop);
+        }
+
+        void run(Runnable task) {
+            submit(task, LifeStatus.ON_DESTROY);
+        }
+
+        @Override
+        protected ExecutorService createExecutorService(int nThreads) {
+            mCreated.incrementAndGet();
+            mNameOnCreate = mName;
+            mExecutor = (ThreadPoolExecutor) super.createExecutorService(nThreads);
+            return mExecutor;
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    static class WarmUpPresenter extends BasicPresenter<IBasicView, LazyModel> {
+
+        WarmUpPresenter(LazyModel model, EventLoopScheduler loop) {
+            super(new IBasicView() {
+                @Override
+                public void onDataUpdate(Bundle bundle) {
+                }
+            }, model, loop);
+            setWarmUpOnIdle(true);
+        }
+    }
+}
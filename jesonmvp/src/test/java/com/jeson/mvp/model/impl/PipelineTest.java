@@ -0,0 +1,294 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelineTest {
+
+    private static final int TASK_ECHO = 1;
+    private static final int TASK_FAIL = 2;
+    private static final int TASK_THROW = 3;
+    /**
+     * 等待另一个阶段也开始后才结束, 两个阶段不能同时运行时会超时
+     */
+    private static final int TASK_MEET = 4;
+
+    private static final int DATA_PAGE = 100;
+
+    private EventLoopScheduler mLoop;
+    private StageModel mUser;
+    private StageModel mFeed;
+    private StageModel mPage;
+    private final RecordingCallback mCallback = new RecordingCallback();
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+        CountDownLatch meeting = new CountDownLatch(2);
+        mUser = new StageModel(mLoop, "user", meeting);
+        mFeed = new StageModel(mLoop, "feed", meeting);
+        mPage = new StageModel(mLoop, "page", meeting);
+    }
+
+    @After
+    public void tearDown() {
+        mUser.onDestroy();
+        mFeed.onDestroy();
+        mPage.onDestroy();
+        mLoop.quit();
+    }
+
+    @Test
+    public void independentStagesRunInParallelAndFanIn() throws Exception {
+        Pipeline pipeline = new Pipeline()
+                .addStage(1, mUser, TASK_MEET)
+                .addStage(2, mFeed, TASK_MEET)
+                .addStage(3, mPage, TASK_ECHO, 1, 2);
+        Bundle args = new Bundle();
+        args.putString("arg", "x");
+        pipeline.execute(mCallback, DATA_PAGE, args);
+        Loops.await(mCallback.mDone);
+
+        assertEquals("success", mCallback.mResult);
+        assertEquals(DATA_PAGE, mCallback.mDataType);
+        Bundle output = mCallback.mData;
+        assertEquals("page", output.getString("name"));
+        Bundle input = output.getBundle("input");
+        assertEquals("x", input.getString("arg"));
+        assertEquals("user", input.getBundle(Pipeline.keyOf(1)).getString("name"));
+        assertEquals("feed", input.getBundle(Pipeline.keyOf(2)).getString("name"));
+        assertEquals(1, mCallback.mCalls.size());
+    }
+
+    @Test
+    public void multipleSinksAreKeyedByStage() throws Exception {
+        Pipeline pipeline = new Pipeline()
+                .addStage(1, mUser, TASK_ECHO)
+                .addStage(2, mFeed, TASK_ECHO, 1)
+                .addStage(3, mPage, TASK_ECHO, 1);
+        pipeline.execute(mCallback, DATA_PAGE, null);
+        Loops.await(mCallback.mDone);
+        assertEquals("feed", mCallback.mData.getBundle(Pipeline.keyOf(2)).getString("name"));
+        assertEquals("page", mCallback.mData.getBundle(Pipeline.keyOf(3)).getString("name"));
+        assertNull(mCallback.mData.getBundle(Pipeline.keyOf(1)));
+    }
+
+    @Test
+    public void failedStageSkipsDependentsAndReportsOnce() throws Exception {
+        Pipeline pipeline = new Pipeline()
+                .addStage(1, mUser, TASK_ECHO)
+                .addStage(2, mFeed, TASK_FAIL, 1)
+                .addStage(3, mPage, TASK_ECHO, 2);
+        Pipeline.Execution execution = pipeline.execute(mCallback, DATA_PAGE, null);
+        Loops.await(mCallback.mDone);
+        assertEquals("failed", mCallback.mResult);
+        assertEquals(2, mCallback.mData.getInt(Pipeline.KEY_FAILED_STAGE));
+        assertTrue(execution.isDone());
+        assertEquals(0, mPage.mRuns.size());
+        assertEquals(1, mCallback.mCalls.size());
+    }
+
+    @Test
+    public void exceptionInStageIsReportedAsError() throws Exception {
+        Pipeline pipeline = new Pipeline().addStage(7, mUser, TASK_THROW);
+        pipeline.execute(mCallback, DATA_PAGE, null);
+        Loops.await(mCallback.mDone);
+        assertEquals("error", mCallback.mResult);
+        assertEquals(7, mCallback.mData.getInt(Pipeline.KEY_FAILED_STAGE));
+        assertTrue(mCallback.mData.getSerializable(Pipeline.KEY_PIPELINE_ERROR) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void destroyedModelRejectsItsStage() throws Exception {
+        mFeed.onDestroy();
+        Pipeline pipeline = new Pipeline()
+                .addStage(1, mUser, TASK_ECHO)
+                .addStage(2, mFeed, TASK_ECHO, 1);
+        pipeline.execute(mCallback, DATA_PAGE, null);
+        Loops.await(mCallback.mDone);
+        assertEquals("error", mCallback.mResult);
+        assertTrue(mCallback.mData.getSerializable(Pipeline.KEY_PIPELINE_ERROR) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void executionsAreIndependent() throws Exception {
+        Pipeline pipeline = new Pipeline()
+                .addStage(1, mUser, TASK_ECHO)
+                .addStage(2, mPage, TASK_ECHO, 1);
+        RecordingCallback second = new RecordingCallback();
+        pipeline.execute(mCallback, 1, null);
+        pipeline.execute(second, 2, null);
+        Loops.await(mCallback.mDone);
+        Loops.await(second.mDone);
+        assertEquals(1, mCallback.mDataType);
+        assertEquals(2, second.mDataType);
+        assertEquals(2, mPage.mRuns.size());
+    }
+
+    @Test
+    public void invalidGraphsAreRejected() {
+        Pipeline pipeline = new Pipeline().addStage(1, mUser, TASK_ECHO);
+        try {
+            pipeline.addStage(1, mFeed, TASK_ECHO);
+            fail("duplicate stage");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            pipeline.addStage(2, mFeed, TASK_ECHO, 3);
+            fail("unknown dependency");
+        } catch (IllegalArgumentException expected) {
+        }
+        pipeline.execute(mCallback, DATA_PAGE, null);
+        try {
+            pipeline.addStage(2, mFeed, TASK_ECHO, 1);
+            fail("stage added after execute");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            new Pipeline().execute(mCallback, DATA_PAGE, null);
+            fail("empty pipeline");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void cancelledExecutionDoesNotStartLaterStages() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        mUser.mBlocker = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Loops.await(release);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Pipeline pipeline = new Pipeline()
+                .addStage(1, mUser, TASK_ECHO)
+                .addStage(2, mPage, TASK_ECHO, 1);
+        Pipeline.Execution execution = pipeline.execute(mCallback, DATA_PAGE, null);
+        Loops.await(started);
+        execution.cancel();
+        release.countDown();
+        mUser.awaitTermination(); // 等待正在运行的阶段结束
+        assertTrue(execution.isDone());
+        assertEquals(0, mPage.mRuns.size());
+        assertEquals(1, mCallback.mDone.getCount());
+    }
+
+    static class StageModel extends BasicModel {
+
+        final List<Bundle> mRuns = new CopyOnWriteArrayList<>();
+        private final String mName;
+        private final CountDownLatch mMeeting;
+        private final CountDownLatch mFinished = new CountDownLatch(1);
+        volatile Runnable mBlocker;
+
+        StageModel(EventLoopScheduler loop, String name, CountDownLatch meeting) {
+            super(CACHED_THREAD, loop);
+            mName = name;
+            mMeeting = meeting;
+        }
+
+        void awaitTermination() throws InterruptedException {
+            Loops.await(mFinished);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+
+        @Override
+        public void handleTask(Callback callback, int taskType, Bundle data) {
+            try {
+                Runnable blocker = mBlocker;
+                if (blocker != null) {
+                    blocker.run();
+                }
+                mRuns.add(data);
+                if (taskType == TASK_MEET) {
+                    mMeeting.countDown();
+                    try {
+                        Loops.await(mMeeting);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                switch (taskType) {
+                    case TASK_MEET:
+                    case TASK_ECHO:
+                        Bundle result = new Bundle();
+                        result.putString("name", mName);
+                        result.putBundle("input", data);
+                        callback.onSuccess(taskType, result);
+                        break;
+                    case TASK_FAIL:
+                        callback.onFailed(taskType, null);
+                        break;
+                    default:
+                        throw new IllegalStateException("stage failed in " + mName);
+                }
+            } finally {
+                mFinished.countDown();
+            }
+        }
+    }
+
+    static class RecordingCallback implements IBasicHandler.Callback {
+
+        final List<String> mCalls = new CopyOnWriteArrayList<>();
+        final CountDownLatch mDone = new CountDownLatch(1);
+        volatile String mResult;
+        volatile int mDataType;
+        volatile Bundle mData;
+
+        private void finish(String result, int dataType, Bundle data) {
+            mCalls.add(result);
+            mResult = result;
+            mDataType = dataType;
+            mData = data;
+            mDone.countDown();
+        }
+
+        @Override
+        public void call(int dataType, Bundle data) {
+            mCalls.add("call");
+        }
+
+        @Override
+        public void onSuccess(int dataType, Bundle data) {
+            finish("success", dataType, data);
+        }
+
+        @Override
+        public void onFailed(int dataType, Bundle data) {
+            finish("failed", dataType, data);
+        }
+
+        @Override
+        public void onError(int dataType, Bundle data) {
+            finish("error", dataType, data);
+        }
+    }
+}
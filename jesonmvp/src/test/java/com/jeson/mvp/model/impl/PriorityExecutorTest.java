@@ -0,0 +1,154 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityExecutorTest {
+
+    private PriorityExecutor mExecutor;
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final List<String> mOrder = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        mRelease.countDown();
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+            mExecutor.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 创建单线程的线程池并占用唯一的线程, 之后提交的任务都在队列中等待
+     */
+    private void occupy(long agingMillis) throws InterruptedException {
+        mExecutor = new PriorityExecutor(1, agingMillis);
+        final CountDownLatch started = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    mRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Loops.await(started);
+    }
+
+    private void finish() throws InterruptedException {
+        mRelease.countDown();
+        mExecutor.shutdown();
+        assertTrue(mExecutor.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mOrder.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void higherPriorityRunsFirst() throws Exception {
+        occupy(PriorityExecutor.DEFAULT_AGING_MILLIS);
+        mExecutor.execute(record("background"), PriorityExecutor.PRIORITY_BACKGROUND);
+        mExecutor.execute(record("default"));
+        mExecutor.execute(record("interactive"), PriorityExecutor.PRIORITY_INTERACTIVE);
+        finish();
+        assertEquals(Arrays.asList("interactive", "default", "background"), mOrder);
+    }
+
+    @Test
+    public void samePriorityKeepsSubmissionOrder() throws Exception {
+        occupy(PriorityExecutor.DEFAULT_AGING_MILLIS);
+        for (int i = 0; i < 20; i++) {
+            mExecutor.execute(record("task" + i), PriorityExecutor.PRIORITY_DEFAULT);
+        }
+        finish();
+        assertEquals(20, mOrder.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("task" + i, mOrder.get(i));
+        }
+    }
+
+    @Test
+    public void waitingTaskAgesPastLaterHigherPriorityWork() throws Exception {
+        occupy(5);
+        mExecutor.execute(record("background"), PriorityExecutor.PRIORITY_BACKGROUND);
+        Thread.sleep(100); // 等待的时间超过了10级优先级的差距
+        mExecutor.execute(record("interactive"), PriorityExecutor.PRIORITY_INTERACTIVE);
+        finish();
+        assertEquals(Arrays.asList("background", "interactive"), mOrder);
+    }
+
+    @Test
+    public void modelPassesPriorityToTheExecutor() throws Exception {
+        Loops.main();
+        PriorityModel model = new PriorityModel();
+        final CountDownLatch started = new CountDownLatch(1);
+        try {
+            model.executeWithPriority(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        mRelease.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, PriorityExecutor.PRIORITY_DEFAULT);
+            Loops.await(started);
+            model.executeWithPriority(record("background"), PriorityExecutor.PRIORITY_BACKGROUND);
+            model.executeWithPriority(record("interactive"), PriorityExecutor.PRIORITY_INTERACTIVE);
+            mExecutor = model.mExecutor;
+            finish();
+            assertEquals(Arrays.asList("interactive", "background"), mOrder);
+        } finally {
+            model.onDestroy();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void agingMustBePositive() {
+        new PriorityExecutor(1, 0);
+    }
+
+    static class PriorityModel extends BasicModel {
+
+        volatile PriorityExecutor mExecutor;
+
+        PriorityModel() {
+            super(SINGLE_THREAD);
+        }
+
+        @Override
+        protected ExecutorService createExecutorService(int nThreads) {
+            mExecutor = new PriorityExecutor(nThreads);
+            return mExecutor;
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResultCacheTest {
+
+    private final ResultCache mCache = new ResultCache(0, ResultCache.UNLIMITED);
+
+    @Test
+    public void stalePutAfterInvalidateIsIgnored() {
+        long version = mCache.getVersion();
+        mCache.invalidate(1);
+        mCache.put(1, null, "stale", version);
+        assertNull(mCache.get(1, null));
+        mCache.put(1, null, "fresh", mCache.getVersion());
+        assertEquals("fresh", mCache.get(1, null));
+    }
+
+    @Test
+    public void invalidatingAnotherTypeDoesNotBlockPut() {
+        long version = mCache.getVersion();
+        mCache.invalidate(2);
+        mCache.put(1, null, "value", version);
+        assertEquals("value", mCache.get(1, null));
+    }
+
+    @Test
+    public void invalidateAllBlocksEveryPendingPut() {
+        long version = mCache.getVersion();
+        mCache.invalidateAll();
+        mCache.put(1, null, "a", version);
+        mCache.put(2, null, "b", version);
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2, ResultCache.UNLIMITED);
+        cache.put(1, null, "a");
+        cache.put(2, null, "b");
+        cache.get(1, null);
+        cache.put(3, null, "c");
+        assertEquals("a", cache.get(1, null));
+        assertNull(cache.get(2, null));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void invalidateDuringLoadIsNotOverwritten() throws Exception {
+        EventLoopScheduler loop = new EventLoopScheduler("test-main");
+        final SlowModel model = new SlowModel(loop, mCache);
+        try {
+            final AtomicReference<Object> loaded = new AtomicReference<>();
+            Thread reader = new Thread() {
+                @Override
+                public void run() {
+                    loaded.set(model.getData(1, new Bundle()));
+                }
+            };
+            reader.start();
+            Loops.await(model.mLoading);
+            mCache.invalidate(1); // 数据在加载期间发生变化
+            model.mRelease.countDown();
+            reader.join();
+            assertEquals("v1", loaded.get());
+            assertEquals("v2", model.getData(1, new Bundle())); // 没有缓存加载期间的旧数据
+            assertEquals(2, model.mLoads.get());
+            assertEquals("v2", model.getData(1, new Bundle()));
+            assertEquals(2, model.mLoads.get());
+        } finally {
+            model.onDestroy();
+            loop.quit();
+        }
+    }
+
+    static class SlowModel extends BasicModel {
+
+        final CountDownLatch mLoading = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        final AtomicInteger mLoads = new AtomicInteger();
+
+        SlowModel(EventLoopScheduler loop, ResultCache cache) {
+            super(SINGLE_THREAD, loop);
+            setResultCache(cache);
+        }
+
+        @Override
+        protected Object loadData(int dataType, Bundle data) {
+            int load = mLoads.incrementAndGet();
+            if (load == 1) {
+                mLoading.countDown();
+                try {
+                    Loops.await(mRelease);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "v" + load;
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+}
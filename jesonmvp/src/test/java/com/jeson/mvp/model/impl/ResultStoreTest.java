@@ -0,0 +1,210 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResultStoreTest {
+
+    private static final int SEGMENT_BYTES = 8 * 1024;
+    private static final long MAX_BYTES = 8 * SEGMENT_BYTES;
+
+    private File mDirectory;
+    private ResultStore mStore;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("result-store", "");
+        mDirectory.delete();
+        mStore = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mStore.close();
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    private ResultStore open() throws IOException {
+        return new ResultStore(mDirectory, MAX_BYTES, SEGMENT_BYTES);
+    }
+
+    private void reopen() throws IOException {
+        mStore.close();
+        mStore = open();
+    }
+
+    private static Bundle args(int id) {
+        Bundle args = new Bundle();
+        args.putInt("id", id);
+        return args;
+    }
+
+    private static Bundle value(String text, int padding) {
+        Bundle value = new Bundle();
+        value.putString("text", text);
+        value.putByteArray("padding", new byte[padding]);
+        return value;
+    }
+
+    private String text(int dataType, int id) {
+        Bundle value = mStore.get(dataType, args(id));
+        return value == null ? null : value.getString("text");
+    }
+
+    @Test
+    public void putGetRemoveAndReopen() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            assertTrue(mStore.put(1, args(i), value("v" + i, 10)));
+        }
+        mStore.remove(1, args(3));
+        assertEquals("v5", text(1, 5));
+        assertNull(text(1, 3));
+        assertNull(text(1, 99));
+
+        reopen();
+
+        assertEquals(19, mStore.size());
+        assertEquals("v19", text(1, 19));
+        assertNull("a removed record must stay removed after reopen", text(1, 3));
+    }
+
+    @Test
+    public void versionChangeHidesOldRecords() throws IOException {
+        mStore.put(1, args(1), value("old", 0));
+        mStore.put(2, args(1), value("other", 0));
+        reopen();
+        mStore.setVersion(1, 2);
+        assertNull(text(1, 1));
+        assertEquals("other", text(2, 1));
+        mStore.put(1, args(1), value("new", 0));
+        assertEquals("new", text(1, 1));
+    }
+
+    @Test
+    public void compactionKeepsFilesBoundedAndLatestValues() throws IOException {
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 20; i++) {
+                mStore.put(1, args(i), value("r" + round + "-" + i, 500));
+            }
+        }
+        assertTrue("files: " + mStore.getFileBytes(), mStore.getFileBytes() <= MAX_BYTES);
+        assertTrue(mStore.getCompactionCount() > 0);
+        assertEquals("r49-7", text(1, 7));
+        reopen();
+        assertEquals(20, mStore.size());
+        assertEquals("r49-7", text(1, 7));
+    }
+
+    @Test
+    public void reopenAfterTruncatedTailKeepsCompleteRecords() throws IOException {
+        mStore.put(1, args(1), value("a", 100));
+        mStore.put(1, args(2), value("b", 100));
+        mStore.close();
+        File segment = onlySegment();
+        byte[] before = readFile(segment);
+        mStore = open();
+        mStore.put(1, args(3), value("c", 100));
+        mStore.close();
+        byte[] after = readFile(segment);
+        int start = firstDifference(before, after);
+        assertTrue("the third record should be appended", start >= 0);
+
+        // 进程在写入第三条记录的中途被杀死, 文件只保留了一半
+        truncate(segment, start + 20);
+        mStore = open();
+
+        assertEquals("a", text(1, 1));
+        assertEquals("b", text(1, 2));
+        assertNull(text(1, 3));
+        assertEquals(2, mStore.size());
+        assertTrue("the store must stay writable", mStore.put(1, args(4), value("d", 100)));
+        reopen();
+        assertEquals("d", text(1, 4));
+        assertEquals("a", text(1, 1));
+    }
+
+    @Test
+    public void tornRecordIsDroppedAndOverwritten() throws IOException {
+        mStore.put(1, args(1), value("a", 100));
+        mStore.close();
+        File segment = onlySegment();
+        byte[] before = readFile(segment);
+        mStore = open();
+        mStore.put(1, args(2), value("b", 100));
+        mStore.close();
+        int start = firstDifference(before, readFile(segment));
+
+        // 记录头已经写入但记录体不完整, CRC不匹配
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.seek(start + 40);
+            file.write(0x5A);
+        } finally {
+            file.close();
+        }
+        mStore = open();
+
+        assertEquals("a", text(1, 1));
+        assertNull(text(1, 2));
+        mStore.put(1, args(3), value("c", 100));
+        reopen();
+        assertEquals("a", text(1, 1));
+        assertEquals("c", text(1, 3));
+        assertEquals(2, mStore.size());
+    }
+
+    private File onlySegment() {
+        File[] files = mDirectory.listFiles();
+        assertNotNull(files);
+        assertEquals(Arrays.toString(files), 1, files.length);
+        return files[0];
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int firstDifference(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(length);
+        } finally {
+            out.close();
+        }
+    }
+}
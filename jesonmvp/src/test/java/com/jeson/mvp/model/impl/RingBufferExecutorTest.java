@@ -0,0 +1,138 @@
+package com.jeson.mvp.model.impl;
+
+import com.jeson.mvp.Loops;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferExecutorTest {
+
+    private RingBufferExecutor mExecutor;
+    private Thread.UncaughtExceptionHandler mDefaultHandler;
+    private final List<Throwable> mUncaught = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        mDefaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                mUncaught.add(e);
+            }
+        });
+        mExecutor = new RingBufferExecutor(1, 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mExecutor.shutdown();
+        mExecutor.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Thread.setDefaultUncaughtExceptionHandler(mDefaultHandler);
+    }
+
+    @Test
+    public void workerSurvivesAnError() throws Exception {
+        final AssertionError error = new AssertionError("boom");
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw error;
+            }
+        });
+        final CountDownLatch next = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                next.countDown();
+            }
+        });
+        Loops.await(next);
+        assertEquals(1, mUncaught.size());
+        assertTrue(mUncaught.get(0) == error);
+    }
+
+    @Test
+    public void overflowKeepsSubmitOrder() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            final int seq = i;
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(seq);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue("20 tasks cannot fit in 8 slots", mExecutor.getAllocationCount() > 0);
+        release.countDown();
+        Loops.await(done);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() throws Exception {
+        for (int round = 0; round < 100; round++) {
+            final CountDownLatch done = new CountDownLatch(4);
+            for (int i = 0; i < 4; i++) {
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+            }
+            Loops.await(done);
+        }
+        assertEquals(0, mExecutor.getAllocationCount());
+    }
+
+    @Test
+    public void idleWorkerParksUntilWorkArrives() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            final List<Thread> workers = new CopyOnWriteArrayList<>();
+            final CountDownLatch done = new CountDownLatch(1);
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    workers.add(Thread.currentThread());
+                    done.countDown();
+                }
+            });
+            Loops.await(done);
+            // 没有超时的休眠, 空闲时不会定时醒来
+            awaitState(workers.get(0), Thread.State.WAITING);
+        }
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Loops.TIMEOUT_SECONDS);
+        while (thread.getState() != state) {
+            assertTrue(thread.getName() + " is " + thread.getState(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
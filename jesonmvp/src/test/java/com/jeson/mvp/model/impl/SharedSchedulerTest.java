@@ -0,0 +1,246 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SharedSchedulerTest {
+
+    private final SharedScheduler mScheduler = SharedScheduler.getInstance();
+
+    @Test
+    public void singleLaneRunsTasksInOrder() throws Exception {
+        SharedScheduler.Lane lane = mScheduler.newLane(1);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final ConcurrencyProbe probe = new ConcurrencyProbe();
+        for (int i = 0; i < 200; i++) {
+            final int index = i;
+            lane.execute(probe.wrap(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                }
+            }));
+        }
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(200, order.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        assertEquals(1, probe.mMax.get());
+    }
+
+    @Test
+    public void laneConcurrencyIsLimited() throws Exception {
+        SharedScheduler.Lane lane = mScheduler.newLane(2);
+        ConcurrencyProbe probe = new ConcurrencyProbe();
+        for (int i = 0; i < 50; i++) {
+            lane.execute(probe.wrap(sleep(1)));
+        }
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(50, probe.mRuns.get());
+        assertTrue("max concurrency " + probe.mMax.get(), probe.mMax.get() <= 2);
+    }
+
+    @Test
+    public void busyLaneDoesNotStarveOthers() throws Exception {
+        int poolSize = mScheduler.getPoolSize();
+        SharedScheduler.Lane busy = mScheduler.newLane(poolSize);
+        SharedScheduler.Lane quiet = mScheduler.newLane(1);
+        final AtomicInteger busyRuns = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        for (int i = 0; i < 500; i++) {
+            busy.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    busyRuns.incrementAndGet();
+                    sleep(1).run();
+                }
+            });
+        }
+        Loops.await(started);
+        final AtomicInteger seenBusyRuns = new AtomicInteger();
+        final CountDownLatch quietRan = new CountDownLatch(1);
+        quiet.execute(new Runnable() {
+            @Override
+            public void run() {
+                seenBusyRuns.set(busyRuns.get());
+                quietRan.countDown();
+            }
+        });
+        Loops.await(quietRan);
+        // 每个任务结束后busy才重新排队, quiet的任务最多等待一轮
+        assertTrue("waited for " + seenBusyRuns.get() + " busy tasks", seenBusyRuns.get() <= 4 * poolSize + 1);
+        busy.shutdownNow();
+        assertTrue(busy.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownNowReturnsPendingTasksAndInterruptsRunningOnes() throws Exception {
+        SharedScheduler.Lane lane = mScheduler.newLane(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        lane.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Loops.await(release);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        Loops.await(started);
+        Runnable pending = sleep(0);
+        lane.execute(pending);
+        List<Runnable> drained = lane.shutdownNow();
+        assertEquals(1, drained.size());
+        assertSame(pending, drained.get(0));
+        try {
+            lane.execute(sleep(0));
+            fail("execute after shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+        Loops.await(interrupted);
+        assertTrue(lane.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(lane.isTerminated());
+    }
+
+    @Test
+    public void shutdownNowDoesNotInterruptOtherLanes() throws Exception {
+        SharedScheduler.Lane stopped = mScheduler.newLane(1);
+        SharedScheduler.Lane other = mScheduler.newLane(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger interrupts = new AtomicInteger();
+        other.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Loops.await(release);
+                } catch (InterruptedException e) {
+                    interrupts.incrementAndGet();
+                }
+            }
+        });
+        Loops.await(started);
+        stopped.execute(sleep(0));
+        stopped.shutdownNow();
+        assertTrue(stopped.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        release.countDown();
+        other.shutdown();
+        assertTrue(other.awaitTermination(Loops.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, interrupts.get());
+    }
+
+    @Test
+    public void sharedModelsDoNotAddThreads() throws Exception {
+        Loops.main();
+        List<SharedModel> models = new ArrayList<>();
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final CountDownLatch done = new CountDownLatch(100);
+        try {
+            for (int i = 0; i < 100; i++) {
+                SharedModel model = new SharedModel(i % 2 == 0 ? BasicModel.SHARED_THREAD : BasicModel.SHARED_SINGLE_THREAD);
+                models.add(model);
+                model.run(new Runnable() {
+                    @Override
+                    public void run() {
+                        threads.add(Thread.currentThread());
+                        done.countDown();
+                    }
+                });
+            }
+            Loops.await(done);
+            assertTrue(threads.size() + " threads", threads.size() <= mScheduler.getPoolSize());
+            for (Thread thread : threads) {
+                assertTrue(thread.getName(), thread.getName().startsWith("jeson-mvp-shared-"));
+            }
+        } finally {
+            for (SharedModel model : models) {
+                model.onDestroy();
+            }
+        }
+    }
+
+    private static Runnable sleep(final long millis) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    /**
+     * 记录同时运行的任务数量的最大值
+     */
+    static class ConcurrencyProbe {
+
+        final AtomicInteger mRunning = new AtomicInteger();
+        final AtomicInteger mMax = new AtomicInteger();
+        final AtomicInteger mRuns = new AtomicInteger();
+
+        Runnable wrap(final Runnable task) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    int running = mRunning.incrementAndGet();
+                    int max;
+                    while ((max = mMax.get()) < running && !mMax.compareAndSet(max, running)) {
+                        // 重试
+                    }
+                    try {
+                        task.run();
+                    } finally {
+                        mRunning.decrementAndGet();
+                        mRuns.incrementAndGet();
+                    }
+                }
+            };
+        }
+    }
+
+    static class SharedModel extends BasicModel {
+
+        SharedModel(int nThreads) {
+            super(nThreads);
+        }
+
+        void run(Runnable task) {
+            getWorkHandler().post(task);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    private static final int TASK = 1;
+
+    @Test
+    public void identicalTasksShareOneResult() {
+        SingleFlight singleFlight = new SingleFlight();
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        IBasicHandler.Callback leader = singleFlight.join(this, first, TASK, args(1));
+        assertNotNull(leader);
+        assertNull(singleFlight.join(this, second, TASK, args(1)));
+        assertNotNull("different arguments are a different task", singleFlight.join(this, new RecordingCallback(), TASK, args(2)));
+        Bundle result = new Bundle();
+        leader.onSuccess(TASK, result);
+        assertEquals("success", first.mResult);
+        assertEquals("success", second.mResult);
+        assertNotNull("a finished task starts over", singleFlight.join(this, new RecordingCallback(), TASK, args(1)));
+    }
+
+    @Test
+    public void silentLeaderExpiresOnNextJoin() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        singleFlight.setTimeout(20);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        IBasicHandler.Callback deadLeader = singleFlight.join(this, first, TASK, args(1));
+        assertNull(singleFlight.join(this, second, TASK, args(1)));
+        Thread.sleep(40);
+        RecordingCallback third = new RecordingCallback();
+        assertNotNull("an expired task must not be joined", singleFlight.join(this, third, TASK, args(1)));
+        assertEquals("error", first.mResult);
+        assertEquals("error", second.mResult);
+        assertTrue(second.mData.getBoolean(SingleFlight.KEY_TIMEOUT));
+        deadLeader.onSuccess(TASK, new Bundle()); // 超时之后的结果被忽略
+        assertEquals("error", second.mResult);
+        assertNull(third.mResult);
+    }
+
+    @Test
+    public void silentLeaderExpiresThroughScheduler() throws Exception {
+        EventLoopScheduler loop = new EventLoopScheduler("test-main");
+        try {
+            SingleFlight singleFlight = new SingleFlight();
+            singleFlight.setTimeout(20);
+            RecordingCallback follower = new RecordingCallback();
+            singleFlight.join(this, new RecordingCallback(), TASK, args(1), loop);
+            singleFlight.join(this, follower, TASK, args(1), loop);
+            Loops.await(follower.mDone);
+            assertTrue(follower.mData.getBoolean(SingleFlight.KEY_TIMEOUT));
+        } finally {
+            loop.quit();
+        }
+    }
+
+    @Test
+    public void abandonFailsFollowersOnly() {
+        SingleFlight singleFlight = new SingleFlight();
+        Object owner = new Object();
+        RecordingCallback leaderCallback = new RecordingCallback();
+        RecordingCallback follower = new RecordingCallback();
+        singleFlight.join(owner, leaderCallback, TASK, args(1));
+        singleFlight.join(new Object(), follower, TASK, args(1));
+        singleFlight.abandon(owner);
+        assertEquals("error", follower.mResult);
+        assertNull(leaderCallback.mResult);
+    }
+
+    private static Bundle args(int id) {
+        Bundle bundle = new Bundle();
+        bundle.putInt("id", id);
+        return bundle;
+    }
+
+    static class RecordingCallback implements IBasicHandler.Callback {
+
+        final CountDownLatch mDone = new CountDownLatch(1);
+        volatile String mResult;
+        volatile Bundle mData;
+
+        private void done(String result, Bundle data) {
+            mResult = result;
+            mData = data;
+            mDone.countDown();
+        }
+
+        @Override
+        public void call(int dataType, Bundle data) {
+        }
+
+        @Override
+        public void onError(int dataType, Bundle data) {
+            done("error", data);
+        }
+
+        @Override
+        public void onSuccess(int dataType, Bundle data) {
+            done("success", data);
+        }
+
+        @Override
+        public void onFailed(int dataType, Bundle data) {
+            done("failed", data);
+        }
+    }
+}
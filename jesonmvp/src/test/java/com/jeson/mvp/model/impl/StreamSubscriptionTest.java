@@ -0,0 +1,240 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.IBasicHandler;
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamSubscriptionTest {
+
+    private static final int TYPE_COUNT = 1;
+    private static final int TYPE_FAILING = 2;
+
+    private EventLoopScheduler mLoop;
+    private StreamModel mModel;
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+        mModel = new StreamModel(mLoop, 100);
+    }
+
+    @After
+    public void tearDown() {
+        mModel.onDestroy();
+        mLoop.quit();
+    }
+
+    @Test
+    public void pullsOnlyWhatWasRequested() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        mModel.handleStream(callback, TYPE_COUNT, null);
+        callback.mSubscription.request(3);
+        callback.awaitChunks(3);
+        sync();
+        assertEquals(3, mModel.mPulled.get());
+
+        callback.mSubscription.request(2);
+        callback.awaitChunks(5);
+        sync();
+        assertEquals(5, mModel.mPulled.get());
+        assertEquals(0, mModel.mClosed.get());
+
+        callback.mSubscription.request(Integer.MAX_VALUE);
+        Loops.await(callback.mDone);
+        assertEquals(100, callback.mChunks.size());
+        assertEquals(Integer.valueOf(100), callback.mChunks.get(99));
+        assertEquals("complete", callback.mTerminal);
+        assertEquals(1, mModel.mClosed.get());
+    }
+
+    @Test
+    public void requestsFromOnNextKeepTheStreamFlowing() throws Exception {
+        final int window = 8;
+        RecordingCallback callback = new RecordingCallback() {
+            @Override
+            public void onNext(int dataType, Integer chunk) {
+                super.onNext(dataType, chunk);
+                if (chunk % window == 0) {
+                    mSubscription.request(window);
+                }
+            }
+        };
+        mModel.handleStream(callback, TYPE_COUNT, null);
+        callback.mSubscription.request(window);
+        Loops.await(callback.mDone);
+        assertEquals(100, callback.mChunks.size());
+        assertEquals("complete", callback.mTerminal);
+    }
+
+    @Test
+    public void sourceErrorEndsTheStream() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        mModel.handleStream(callback, TYPE_FAILING, null);
+        callback.mSubscription.request(10);
+        Loops.await(callback.mDone);
+        assertEquals(3, callback.mChunks.size());
+        assertEquals("error", callback.mTerminal);
+        assertTrue(callback.mError instanceof IOException);
+        assertEquals(1, mModel.mClosed.get());
+    }
+
+    @Test
+    public void invalidRequestIsReportedAsError() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        mModel.handleStream(callback, TYPE_COUNT, null);
+        callback.mSubscription.request(0);
+        Loops.await(callback.mDone);
+        assertTrue(callback.mError instanceof IllegalArgumentException);
+        assertEquals(0, mModel.mPulled.get());
+        assertEquals(1, mModel.mClosed.get());
+    }
+
+    @Test
+    public void cancelClosesTheSourceWithoutCallbacks() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        mModel.handleStream(callback, TYPE_COUNT, null);
+        callback.mSubscription.request(2);
+        callback.awaitChunks(2);
+        callback.mSubscription.cancel();
+        callback.mSubscription.request(10);
+        sync();
+        assertEquals(1, mModel.mClosed.get());
+        assertEquals(2, callback.mChunks.size());
+        assertNull(callback.mTerminal);
+    }
+
+    @Test
+    public void destroyCancelsOpenStreams() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        mModel.handleStream(callback, TYPE_COUNT, null);
+        callback.mSubscription.request(1);
+        callback.awaitChunks(1);
+        sync();
+        mModel.onDestroy();
+        assertEquals(1, mModel.mClosed.get());
+        assertNull(callback.mTerminal);
+
+        RecordingCallback late = new RecordingCallback();
+        mModel.handleStream(late, TYPE_COUNT, null); // 销毁之后开始的流式任务立即结束
+        assertEquals(2, mModel.mClosed.get());
+        assertEquals(1, mModel.mPulled.get());
+    }
+
+    /**
+     * 等待线程池中已经提交的任务执行完成, 单线程模式下任务按提交顺序执行
+     */
+    private void sync() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mModel.submitTask(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        Loops.await(latch);
+    }
+
+    static class StreamModel extends BasicModel {
+
+        final AtomicInteger mPulled = new AtomicInteger();
+        final AtomicInteger mClosed = new AtomicInteger();
+        private final int mTotal;
+
+        StreamModel(EventLoopScheduler loop, int total) {
+            super(SINGLE_THREAD, loop);
+            mTotal = total;
+        }
+
+        void submitTask(Runnable task) {
+            submit(task, LifeStatus.ON_DESTROY);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+
+        @Override
+        protected StreamSource<?> createStreamSource(final int taskType, Bundle data) {
+            return new StreamSource<Integer>() {
+
+                private int mNext = 0;
+
+                @Override
+                public Integer next() throws Exception {
+                    if (taskType == TYPE_FAILING && mNext == 3) {
+                        throw new IOException("broken source");
+                    }
+                    if (mNext == mTotal) {
+                        return null;
+                    }
+                    mPulled.incrementAndGet();
+                    return ++mNext;
+                }
+
+                @Override
+                public void close() {
+                    mClosed.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    static class RecordingCallback implements IBasicHandler.StreamCallback<Integer> {
+
+        final List<Integer> mChunks = new CopyOnWriteArrayList<>();
+        final CountDownLatch mDone = new CountDownLatch(1);
+        volatile IBasicHandler.Subscription mSubscription;
+        volatile String mTerminal;
+        volatile Object mError;
+
+        void awaitChunks(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Loops.TIMEOUT_SECONDS);
+            while (mChunks.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(count, mChunks.size());
+        }
+
+        @Override
+        public void onSubscribe(int dataType, IBasicHandler.Subscription subscription) {
+            mSubscription = subscription;
+        }
+
+        @Override
+        public void onNext(int dataType, Integer chunk) {
+            mChunks.add(chunk);
+        }
+
+        @Override
+        public void onComplete(int dataType) {
+            mTerminal = "complete";
+            mDone.countDown();
+        }
+
+        @Override
+        public void onError(int dataType, Bundle data) {
+            mError = data.getSerializable(BasicModel.KEY_STREAM_ERROR);
+            mTerminal = "error";
+            mDone.countDown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.jeson.mvp.model.impl;
+
+import android.os.Message;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskHandleTest {
+
+    private EventLoopScheduler mLoop;
+    private MessageModel mModel;
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+        mModel = new MessageModel(mLoop);
+    }
+
+    @After
+    public void tearDown() {
+        mModel.onDestroy();
+        mLoop.quit();
+    }
+
+    @Test
+    public void cancelledMessagesReturnTheirCarriers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        mModel.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, LifeStatus.ON_DESTROY);
+        long before = mModel.getDispatchAllocationCount();
+        for (int i = 0; i < 1000; i++) {
+            TaskHandle handle = mModel.submitMessage(Message.obtain(), LifeStatus.ON_DESTROY);
+            handle.cancel();
+            assertTrue(handle.isCancelled());
+        }
+        release.countDown();
+        assertTrue("cancelled carriers should go back to the pool",
+                mModel.getDispatchAllocationCount() - before <= 1);
+        assertEquals(0, mModel.mHandled.get());
+    }
+
+    @Test
+    public void cancelledBeforeRunNeverRuns() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        mModel.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, LifeStatus.ON_DESTROY);
+        final AtomicInteger ran = new AtomicInteger();
+        List<TaskHandle> handles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            handles.add(mModel.submit(new Runnable() {
+                @Override
+                public void run() {
+                    ran.incrementAndGet();
+                }
+            }, LifeStatus.ON_PAUSE));
+        }
+        mModel.onPause();
+        for (TaskHandle handle : handles) {
+            assertTrue(handle.isCancelled());
+        }
+        release.countDown();
+        final CountDownLatch after = new CountDownLatch(1);
+        mModel.submit(new Runnable() {
+            @Override
+            public void run() {
+                after.countDown();
+            }
+        }, LifeStatus.ON_DESTROY);
+        Loops.await(after);
+        assertEquals(0, ran.get());
+    }
+
+    static class MessageModel extends BasicModel {
+
+        final AtomicInteger mHandled = new AtomicInteger();
+
+        MessageModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+            mHandled.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BasicPresenterDeliveryTest {
+
+    private static final String KEY_INDEX = "index";
+    /**
+     * 替代实现中一帧的间隔
+     */
+    private static final long FRAME_INTERVAL_MILLIS = 16;
+
+    private SendingModel mModel;
+    private RecordingPresenter mPresenter;
+
+    @Before
+    public void setUp() throws Exception {
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mModel = new SendingModel();
+                mPresenter = new RecordingPresenter(mModel);
+                mPresenter.onCreate(null);
+                mPresenter.onStart();
+                mPresenter.onResume();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.onDestroy();
+            }
+        });
+    }
+
+    /**
+     * 等待model线程中已经发出的回调, 以及它们在主线程中的派发都结束
+     */
+    private void settle() throws InterruptedException {
+        final CountDownLatch sent = new CountDownLatch(1);
+        mModel.send(new Runnable() {
+            @Override
+            public void run() {
+                sent.countDown();
+            }
+        });
+        Loops.await(sent);
+        Thread.sleep(3 * FRAME_INTERVAL_MILLIS); // 等待下一帧
+        Loops.drain();
+    }
+
+    @Test
+    public void batchDeliveryGroupsCallbacksPerFrame() throws Exception {
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.enableBatchDelivery();
+            }
+        });
+        mModel.sendSuccesses(1, 500);
+        settle();
+        List<Integer> indexes = mPresenter.indexes();
+        assertEquals(500, indexes.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(Integer.valueOf(i), indexes.get(i));
+        }
+        int batches = mPresenter.batches();
+        assertTrue("batches " + batches, batches >= 1 && batches <= 50);
+        assertTrue(mPresenter.isAlwaysOnLoop());
+    }
+
+    @Test
+    public void callbacksAreDeliveredOneByOneByDefault() throws Exception {
+        mModel.sendSuccesses(1, 50);
+        settle();
+        assertEquals(50, mPresenter.indexes().size());
+        assertEquals(0, mPresenter.batches());
+        assertTrue(mPresenter.isAlwaysOnLoop());
+    }
+
+    @Test
+    public void callbackOnTheMainThreadIsDispatchedDirectly() throws Exception {
+        final List<Integer> seen = new ArrayList<>();
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mModel.succeed(1, 7);
+                seen.addAll(mPresenter.indexes()); // 没有经过Handler, 返回时已经派发
+            }
+        });
+        assertEquals(1, seen.size());
+        assertEquals(Integer.valueOf(7), seen.get(0));
+    }
+
+    @Test
+    public void mainThreadCallbackKeepsFrameBatching() throws Exception {
+        final List<Integer> seen = new ArrayList<>();
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.enableBatchDelivery();
+                mModel.succeed(1, 7);
+                seen.addAll(mPresenter.indexes());
+            }
+        });
+        assertTrue(seen.isEmpty());
+        settle();
+        assertEquals(1, mPresenter.indexes().size());
+        assertEquals(1, mPresenter.batches());
+    }
+
+    @Test
+    public void hiddenPresenterKeepsOnlyTheLatestPerDataType() throws Exception {
+        mPresenter.conflateWhenHidden(true);
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.onPause();
+                mPresenter.onStop();
+            }
+        });
+        sendInOrder(new int[][]{{1, 0}, {2, 9}, {1, 1}, {1, 2}});
+        settle();
+        assertTrue(mPresenter.indexes().isEmpty());
+
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.onStart();
+                mPresenter.onResume();
+            }
+        });
+        Loops.drain();
+        assertEquals(Arrays.asList(9, 2), mPresenter.indexes()); // 按最后一次更新的顺序
+        assertEquals(Arrays.asList(2, 1), mPresenter.dataTypes());
+        assertEquals(1, mPresenter.batches());
+        assertEquals(2, mPresenter.conflatedCount());
+    }
+
+    @Test
+    public void visiblePresenterIsNotConflated() throws Exception {
+        mPresenter.conflateWhenHidden(true);
+        sendInOrder(new int[][]{{1, 0}, {1, 1}, {1, 2}});
+        settle();
+        assertEquals(Arrays.asList(0, 1, 2), mPresenter.indexes());
+        assertEquals(0, mPresenter.conflatedCount());
+    }
+
+    @Test
+    public void turningConflationOffFlushesHeldCallbacks() throws Exception {
+        mPresenter.conflateWhenHidden(true);
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.onPause();
+            }
+        });
+        sendInOrder(new int[][]{{1, 0}, {1, 1}});
+        settle();
+        assertTrue(mPresenter.indexes().isEmpty());
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.conflateWhenHidden(false);
+            }
+        });
+        Loops.drain();
+        assertEquals(Arrays.asList(1), mPresenter.indexes());
+    }
+
+    /**
+     * 在model线程中按顺序发出回调
+     *
+     * @param calls 每一项为{dataType, index}
+     */
+    private void sendInOrder(final int[][] calls) {
+        mModel.send(new Runnable() {
+            @Override
+            public void run() {
+                for (int[] call : calls) {
+                    mModel.succeed(call[0], call[1]);
+                }
+            }
+        });
+    }
+
+    static class SendingModel extends BasicModel {
+
+        SendingModel() {
+            super(SINGLE_THREAD);
+        }
+
+        void send(Runnable task) {
+            getWorkHandler().post(task);
+        }
+
+        /**
+         * 在当前线程回调
+         */
+        void succeed(int dataType, int index) {
+            Bundle data = new Bundle();
+            data.putInt(KEY_INDEX, index);
+            getWorkingCallback().onSuccess(dataType, data);
+        }
+
+        void sendSuccesses(final int dataType, final int count) {
+            send(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        succeed(dataType, i);
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    static class RecordingView implements IBasicView {
+
+        @Override
+        public void onDataUpdate(Bundle bundle) {
+        }
+    }
+
+    /**
+     * 记录收到的回调, 在主线程写入, 测试线程在Loops.drain()之后读取
+     */
+    static class RecordingPresenter extends BasicPresenter<RecordingView, SendingModel> {
+
+        private final List<Integer> mIndexes = new ArrayList<>();
+        private final List<Integer> mDataTypes = new ArrayList<>();
+        private int mBatches = 0;
+        private volatile boolean isAlwaysOnLoop = true;
+
+        RecordingPresenter(SendingModel model) {
+            super(new RecordingView(), model);
+        }
+
+        void enableBatchDelivery() {
+            setBatchDelivery(true);
+        }
+
+        void conflateWhenHidden(boolean conflate) {
+            setConflateWhenHidden(conflate);
+        }
+
+        long conflatedCount() {
+            return getConflatedCount();
+        }
+
+        List<Integer> indexes() {
+            return new ArrayList<>(mIndexes);
+        }
+
+        List<Integer> dataTypes() {
+            return new ArrayList<>(mDataTypes);
+        }
+
+        int batches() {
+            return mBatches;
+        }
+
+        boolean isAlwaysOnLoop() {
+            return isAlwaysOnLoop;
+        }
+
+        @Override
+        protected void onBatchCalledOnUIThread(List<CallEvent> events) {
+            mBatches++;
+            super.onBatchCalledOnUIThread(events);
+        }
+
+        @Override
+        protected void onSuccessCalledOnUIThread(int dataType, Bundle data) {
+            if (Looper.myLooper() != Looper.getMainLooper()) {
+                isAlwaysOnLoop = false;
+            }
+            mDataTypes.add(dataType);
+            mIndexes.add(data.getInt(KEY_INDEX));
+        }
+    }
+}
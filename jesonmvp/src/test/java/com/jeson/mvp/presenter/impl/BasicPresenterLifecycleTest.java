@@ -0,0 +1,203 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.model.impl.TaskHandle;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BasicPresenterLifecycleTest {
+
+    private EventLoopScheduler mLoop;
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+    }
+
+    @After
+    public void tearDown() {
+        mLoop.quit();
+    }
+
+    @Test
+    public void modelFollowsEveryPresenterTransition() throws Exception {
+        final RecordingModel model = new RecordingModel(mLoop);
+        final TestPresenter presenter = new TestPresenter(model, mLoop);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onCreate(null);
+                presenter.onStart();
+                presenter.onResume();
+                presenter.onPause();
+                presenter.onStop();
+                presenter.onStart();
+                presenter.onResume();
+                presenter.onPause();
+                presenter.onResume();
+                presenter.onPause();
+                presenter.onStop();
+                presenter.onDestroy();
+            }
+        });
+        assertEquals(Arrays.asList("create", "start", "resume", "pause", "stop", "start", "resume", "pause",
+                "resume", "pause", "stop", "destroy"), model.mCalls);
+    }
+
+    @Test
+    public void resumeWithoutStartStartsFirst() throws Exception {
+        final RecordingModel model = new RecordingModel(mLoop);
+        final TestPresenter presenter = new TestPresenter(model, mLoop);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onResume();
+                presenter.onDestroy();
+            }
+        });
+        assertEquals(Arrays.asList("create", "start", "resume", "pause", "stop", "destroy"), model.mCalls);
+    }
+
+    @Test
+    public void stopCancelsTasksScopedToStop() throws Exception {
+        final RecordingModel model = new RecordingModel(mLoop);
+        final TestPresenter presenter = new TestPresenter(model, mLoop);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean stopScopedRan = new AtomicBoolean(false);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onCreate(null);
+                presenter.onStart();
+                presenter.onResume();
+            }
+        });
+        model.submitTask(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, LifeStatus.ON_DESTROY);
+        final TaskHandle handle = model.submitTask(new Runnable() {
+            @Override
+            public void run() {
+                stopScopedRan.set(true);
+            }
+        }, LifeStatus.ON_STOP);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onPause();
+                presenter.onStop();
+            }
+        });
+        assertTrue("ON_STOP task should be cancelled by onStop()", handle.isCancelled());
+        release.countDown();
+        final CountDownLatch after = new CountDownLatch(1);
+        model.submitTask(new Runnable() {
+            @Override
+            public void run() {
+                after.countDown();
+            }
+        }, LifeStatus.ON_DESTROY);
+        Loops.await(after);
+        assertFalse(stopScopedRan.get());
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onDestroy();
+            }
+        });
+    }
+
+    static class RecordingModel extends BasicModel {
+
+        final List<String> mCalls = Collections.synchronizedList(new ArrayList<String>());
+
+        RecordingModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        TaskHandle submitTask(Runnable task, LifeStatus cancelOn) {
+            return submit(task, cancelOn);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+
+        @Override
+        public void onCreate(Bundle bundle) {
+            super.onCreate(bundle);
+            mCalls.add("create");
+        }
+
+        @Override
+        public void onStart() {
+            super.onStart();
+            mCalls.add("start");
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            mCalls.add("resume");
+        }
+
+        @Override
+        public void onPause() {
+            super.onPause();
+            mCalls.add("pause");
+        }
+
+        @Override
+        public void onStop() {
+            super.onStop();
+            mCalls.add("stop");
+        }
+
+        @Override
+        public void onDestroy() {
+            super.onDestroy();
+            mCalls.add("destroy");
+        }
+    }
+
+    static class TestView implements IBasicView {
+
+        @Override
+        public void onDataUpdate(Bundle bundle) {
+        }
+    }
+
+    static class TestPresenter extends BasicPresenter<TestView, RecordingModel> {
+
+        TestPresenter(RecordingModel model, EventLoopScheduler loop) {
+            super(new TestView(), model, loop);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.utils.StateSnapshot;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BasicPresenterStateTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private EventLoopScheduler mLoop;
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        mLoop = new EventLoopScheduler("test-main");
+        mDirectory = mFolder.newFolder("state");
+        BasicPresenter.setStateDirectory(mDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        BasicPresenter.setStateDirectory(null);
+        mLoop.quit();
+    }
+
+    @Test
+    public void smallStateStaysInlineAndLargeStateSpills() throws Exception {
+        StateModel model = new StateModel(mLoop);
+        StatePresenter presenter = create(model, null);
+        presenter.mSelection = "item-3";
+        model.mPage = 4;
+        model.mBlob = new byte[StateSnapshot.INLINE_LIMIT_BYTES * 4];
+        Bundle outState = save(presenter);
+        int inlineBytes = 0;
+        for (String key : outState.keySet()) {
+            Object value = outState.get(key);
+            if (value instanceof byte[]) {
+                inlineBytes += ((byte[]) value).length;
+            }
+        }
+        assertTrue("inline state should stay small: " + inlineBytes, inlineBytes <= StateSnapshot.INLINE_LIMIT_BYTES);
+        assertEquals(1, mDirectory.listFiles().length);
+
+        outState = save(presenter);
+        assertEquals("a new save replaces the previous file", 1, mDirectory.listFiles().length);
+
+        StateModel restoredModel = new StateModel(mLoop);
+        StatePresenter restored = create(restoredModel, outState);
+        assertEquals("item-3", restored.savedState().getString("selection"));
+        Bundle modelState = restoredModel.savedState();
+        assertEquals(4, modelState.getInt("page"));
+        assertEquals(model.mBlob.length, modelState.getByteArray("blob").length);
+        destroy(presenter);
+        destroy(restored);
+    }
+
+    @Test
+    public void restoredStateSurvivesTheNextSaveUntilRead() throws Exception {
+        StateModel model = new StateModel(mLoop);
+        StatePresenter presenter = create(model, null);
+        model.mBlob = new byte[StateSnapshot.INLINE_LIMIT_BYTES * 2];
+        Bundle outState = save(presenter); // 之后进程被杀, presenter没有结束
+
+        StateModel restoredModel = new StateModel(mLoop);
+        StatePresenter restored = create(restoredModel, outState);
+        save(restored); // 恢复的状态还没有被读取
+        Bundle modelState = restoredModel.savedState();
+        assertNotNull("lazily read state must not be lost by the next save", modelState);
+        assertEquals(model.mBlob.length, modelState.getByteArray("blob").length);
+        assertEquals("the restored file is deleted after it has been read", 0, mDirectory.listFiles().length);
+        restoredModel.mBlob = model.mBlob;
+        save(restored);
+        assertEquals(1, mDirectory.listFiles().length);
+        destroy(restored);
+        assertEquals("finishing deletes all state files", 0, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void corruptFileReadsAsNull() throws Exception {
+        StateModel model = new StateModel(mLoop);
+        StatePresenter presenter = create(model, null);
+        model.mBlob = new byte[StateSnapshot.INLINE_LIMIT_BYTES * 2];
+        Bundle outState = save(presenter);
+        RandomAccessFile file = new RandomAccessFile(mDirectory.listFiles()[0], "rw");
+        file.seek(file.length() / 2);
+        file.write(0x5A);
+        file.close();
+
+        StateModel restoredModel = new StateModel(mLoop);
+        StatePresenter restored = create(restoredModel, outState);
+        assertNull(restoredModel.savedState());
+        destroy(presenter);
+        destroy(restored);
+    }
+
+    private StatePresenter create(StateModel model, final Bundle savedInstanceState) throws InterruptedException {
+        final StatePresenter presenter = new StatePresenter(model, mLoop);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onCreate(savedInstanceState);
+            }
+        });
+        return presenter;
+    }
+
+    private Bundle save(final StatePresenter presenter) throws InterruptedException {
+        final Bundle outState = new Bundle();
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onSaveInstanceState(outState);
+            }
+        });
+        return outState;
+    }
+
+    private void destroy(final StatePresenter presenter) throws InterruptedException {
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.finish();
+            }
+        });
+    }
+
+    static class StateModel extends BasicModel {
+
+        int mPage;
+        byte[] mBlob;
+
+        StateModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        Bundle savedState() {
+            return getSavedState();
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+
+        @Override
+        public void onSaveState(Bundle outState) {
+            outState.putInt("page", mPage);
+            if (mBlob != null) {
+                outState.putByteArray("blob", mBlob);
+            }
+        }
+    }
+
+    static class StatePresenter extends BasicPresenter<BasicPresenterLifecycleTest.TestView, StateModel> {
+
+        String mSelection;
+
+        StatePresenter(StateModel model, EventLoopScheduler loop) {
+            super(new BasicPresenterLifecycleTest.TestView(), model, loop);
+        }
+
+        Bundle savedState() {
+            return getSavedState();
+        }
+
+        @Override
+        protected void onSaveState(Bundle outState) {
+            if (mSelection != null) {
+                outState.putString("selection", mSelection);
+            }
+        }
+    }
+}
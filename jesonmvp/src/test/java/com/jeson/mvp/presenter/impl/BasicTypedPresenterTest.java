@@ -0,0 +1,126 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.view.IBasicView;
+import com.jeson.mvp.view.ITypedView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BasicTypedPresenterTest {
+
+    private EventLoopScheduler mLoop;
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+    }
+
+    @After
+    public void tearDown() {
+        mLoop.quit();
+    }
+
+    @Test
+    public void typedOnlyViewReceivesTypedResults() throws Exception {
+        final TypedOnlyView view = new TypedOnlyView();
+        final TypedModel model = new TypedModel(mLoop);
+        final TypedPresenter<TypedOnlyView> presenter = new TypedPresenter<>(view, model, mLoop);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onCreate(null);
+                assertSame(view, presenter.getTypedView());
+            }
+        });
+        model.sendTyped(7, "hello");
+        Loops.await(view.mUpdated);
+        assertEquals("hello", view.mData.get());
+        assertEquals(7, view.mDataType);
+        assertTrue(view.mThread == mLoop.getThread());
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                presenter.onDestroy();
+            }
+        });
+    }
+
+    @Test
+    public void viewImplementingBothContractsIsNotWrapped() throws Exception {
+        final BothView view = new BothView();
+        final TypedPresenter<BothView> presenter = new TypedPresenter<>(view, new TypedModel(mLoop), mLoop);
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                assertSame(view, presenter.getBasicView());
+                assertSame(view, presenter.getTypedView());
+                presenter.onDestroy();
+            }
+        });
+    }
+
+    static class TypedModel extends BasicModel {
+
+        TypedModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        void sendTyped(final int dataType, final String data) {
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    TypedModel.this.<String>getTypedWorkingCallback().onSuccess(dataType, data);
+                }
+            }, LifeStatus.ON_DESTROY);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    static class TypedOnlyView implements ITypedView<String> {
+
+        final CountDownLatch mUpdated = new CountDownLatch(1);
+        final AtomicReference<String> mData = new AtomicReference<>();
+        volatile int mDataType;
+        volatile Thread mThread;
+
+        @Override
+        public void onDataUpdate(int dataType, String data) {
+            mDataType = dataType;
+            mThread = Thread.currentThread();
+            mData.set(data);
+            mUpdated.countDown();
+        }
+    }
+
+    static class BothView extends TypedOnlyView implements IBasicView {
+
+        @Override
+        public void onDataUpdate(Bundle data) {
+        }
+    }
+
+    static class TypedPresenter<V extends ITypedView<String>> extends BasicTypedPresenter<V, TypedModel, String> {
+
+        TypedPresenter(V view, TypedModel model, EventLoopScheduler loop) {
+            super(view, model, loop);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class CallbackRoutingTest {
+
+    /**
+     * 偶数dataType继续在主线程回调, 奇数dataType只在子线程回调
+     */
+    private static final int TYPE_FORWARDED = 2;
+    private static final int TYPE_HANDLED = 3;
+
+    private RoutingPresenter mPresenter;
+
+    @Before
+    public void setUp() throws Exception {
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter = new RoutingPresenter(new IdleModel());
+                mPresenter.onCreate(null);
+                mPresenter.onStart();
+                mPresenter.onResume();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.onDestroy();
+            }
+        });
+    }
+
+    /**
+     * 在新的子线程中运行并等待结束
+     */
+    private static void onWorker(Runnable task) throws InterruptedException {
+        Thread worker = new Thread(task, "test-worker");
+        worker.start();
+        worker.join();
+    }
+
+    @Test
+    public void onlyCallbacksThatCallSuperContinueOnTheUIThread() throws Exception {
+        onWorker(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.mWorkCallback.call(TYPE_HANDLED, new Bundle());
+                mPresenter.mWorkCallback.onSuccess(TYPE_FORWARDED, new Bundle());
+                mPresenter.mWorkCallback.onFailed(TYPE_HANDLED, new Bundle());
+                mPresenter.mWorkCallback.onError(TYPE_FORWARDED, new Bundle());
+                mPresenter.mWorkCallback.onSuccess(TYPE_HANDLED, new Bundle());
+                mPresenter.mWorkCallback.call(TYPE_FORWARDED, new Bundle());
+            }
+        });
+        Loops.drain();
+        assertEquals(6, mPresenter.mWorkCalls.get());
+        assertEquals(Arrays.asList("success:2", "error:2", "working:2"), mPresenter.uiCalls());
+    }
+
+    @Test
+    public void nestedCallbackDoesNotChangeTheOuterDecision() throws Exception {
+        mPresenter.mNested = TYPE_FORWARDED;
+        onWorker(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.mWorkCallback.onSuccess(TYPE_HANDLED, new Bundle());
+            }
+        });
+        Loops.drain();
+        assertEquals(Arrays.asList("success:2"), mPresenter.uiCalls());
+
+        mPresenter.mNested = TYPE_HANDLED;
+        onWorker(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.mWorkCallback.onSuccess(TYPE_FORWARDED, new Bundle());
+            }
+        });
+        Loops.drain();
+        assertEquals(Arrays.asList("success:2", "success:2"), mPresenter.uiCalls());
+    }
+
+    @Test
+    public void concurrentWorkersRouteIndependently() throws Exception {
+        final int threads = 8;
+        final int perThread = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int dataType = t % 2 == 0 ? TYPE_FORWARDED : TYPE_HANDLED;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Loops.await(start);
+                        for (int i = 0; i < perThread; i++) {
+                            mPresenter.mWorkCallback.onSuccess(dataType, new Bundle());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "test-worker-" + t).start();
+        }
+        start.countDown();
+        Loops.await(done);
+        Loops.drain();
+        assertEquals(threads * perThread, mPresenter.mWorkCalls.get());
+        assertEquals(Collections.nCopies(threads / 2 * perThread, "success:2"), mPresenter.uiCalls());
+    }
+
+    static class IdleModel extends BasicModel {
+
+        IdleModel() {
+            super(MAIN_THREAD);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    /**
+     * 记录子线程和主线程中的回调, 主线程的记录在Loops.drain()之后读取
+     */
+    static class RoutingPresenter extends BasicPresenter<IBasicView, IdleModel> {
+
+        final AtomicInteger mWorkCalls = new AtomicInteger();
+        /**
+         * 大于0时在子线程的onSuccess回调中再回调一次这个dataType
+         */
+        volatile int mNested;
+        private final List<String> mUICalls = new ArrayList<>();
+
+        RoutingPresenter(IdleModel model) {
+            super(new IBasicView() {
+                @Override
+                public void onDataUpdate(Bundle data) {
+                }
+            }, model);
+        }
+
+        List<String> uiCalls() {
+            return new ArrayList<>(mUICalls);
+        }
+
+        private void onWork(int dataType, Runnable superCall) {
+            mWorkCalls.incrementAndGet();
+            if (dataType % 2 == 0) {
+                superCall.run();
+            }
+        }
+
+        @Override
+        protected void onWorkingCalledOnWorkThread(final int dataType, final Bundle data) {
+            onWork(dataType, new Runnable() {
+                @Override
+                public void run() {
+                    RoutingPresenter.super.onWorkingCalledOnWorkThread(dataType, data);
+                }
+            });
+        }
+
+        @Override
+        protected void onSuccessCalledOnWorkThread(final int dataType, final Bundle data) {
+            onWork(dataType, new Runnable() {
+                @Override
+                public void run() {
+                    RoutingPresenter.super.onSuccessCalledOnWorkThread(dataType, data);
+                }
+            });
+            int nested = mNested;
+            if (nested > 0) {
+                mNested = 0;
+                mWorkCallback.onSuccess(nested, new Bundle());
+            }
+        }
+
+        @Override
+        protected void onFailedCalledOnWorkThread(final int dataType, final Bundle data) {
+            onWork(dataType, new Runnable() {
+                @Override
+                public void run() {
+                    RoutingPresenter.super.onFailedCalledOnWorkThread(dataType, data);
+                }
+            });
+        }
+
+        @Override
+        protected void onErrorCalledOnWorkThread(final int dataType, final Bundle data) {
+            onWork(dataType, new Runnable() {
+                @Override
+                public void run() {
+                    RoutingPresenter.super.onErrorCalledOnWorkThread(dataType, data);
+                }
+            });
+        }
+
+        @Override
+        protected void onWorkingCalledOnUIThread(int dataType, Bundle data) {
+            mUICalls.add("working:" + dataType);
+        }
+
+        @Override
+        protected void onSuccessCalledOnUIThread(int dataType, Bundle data) {
+            mUICalls.add("success:" + dataType);
+        }
+
+        @Override
+        protected void onFailedCalledOnUIThread(int dataType, Bundle data) {
+            mUICalls.add("failed:" + dataType);
+        }
+
+        @Override
+        protected void onErrorCalledOnUIThread(int dataType, Bundle data) {
+            mUICalls.add("error:" + dataType);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.jeson.mvp.presenter.impl;
+
+import com.jeson.mvp.utils.Payload;
+import com.jeson.mvp.utils.PayloadPool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConflationBufferTest {
+
+    private final CountingPool mPool = new CountingPool();
+    private final ConflationBuffer mBuffer = new ConflationBuffer();
+
+    @Test
+    public void keepsLatestPerDataTypeInUpdateOrder() {
+        mBuffer.put(event(1, "a1"));
+        mBuffer.put(event(2, "b1"));
+        mBuffer.put(event(1, "a2"));
+        List<BasicPresenter.CallEvent> events = new ArrayList<>();
+        mBuffer.drainTo(events);
+        assertEquals(2, events.size());
+        assertEquals("b1", events.get(0).data);
+        assertEquals("a2", events.get(1).data);
+        assertEquals(1, mBuffer.getConflatedCount());
+        assertTrue(mBuffer.isEmpty());
+    }
+
+    @Test
+    public void replacedPayloadIsRecycled() {
+        TestPayload first = mPool.obtain();
+        TestPayload second = mPool.obtain();
+        mBuffer.put(event(1, first));
+        mBuffer.put(event(1, second));
+        assertTrue(first.isRecycled);
+        assertFalse(second.isRecycled);
+        assertSame(first, mPool.obtain()); // 回到对象池, 不再创建新对象
+    }
+
+    @Test
+    public void samePayloadPutTwiceIsNotRecycled() {
+        TestPayload payload = mPool.obtain();
+        mBuffer.put(event(1, payload));
+        mBuffer.put(event(1, payload));
+        assertFalse(payload.isRecycled);
+    }
+
+    @Test
+    public void clearRecyclesPayloads() {
+        TestPayload first = mPool.obtain();
+        TestPayload second = mPool.obtain();
+        mBuffer.put(event(1, first));
+        mBuffer.put(event(2, second));
+        mBuffer.put(event(3, "not a payload"));
+        mBuffer.clear();
+        assertTrue(first.isRecycled);
+        assertTrue(second.isRecycled);
+        assertTrue(mBuffer.isEmpty());
+    }
+
+    @Test
+    public void drainedPayloadsAreLeftToTheReceiver() {
+        TestPayload payload = mPool.obtain();
+        mBuffer.put(event(1, payload));
+        mBuffer.drainTo(new ArrayList<BasicPresenter.CallEvent>());
+        mBuffer.clear();
+        assertFalse(payload.isRecycled);
+    }
+
+    private static BasicPresenter.CallEvent event(int dataType, Object data) {
+        return new BasicPresenter.CallEvent(BasicPresenter.CallEvent.TYPE_SUCCESS, dataType, data, 0);
+    }
+
+    static class TestPayload extends Payload {
+
+        boolean isRecycled = false;
+
+        @Override
+        protected void onRecycle() {
+            isRecycled = true;
+        }
+    }
+
+    static class CountingPool extends PayloadPool<TestPayload> {
+
+        CountingPool() {
+            super(4);
+        }
+
+        @Override
+        protected TestPayload create() {
+            return new TestPayload();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LifecycleDispatcherTest {
+
+    private final LifecycleDispatcher mDispatcher = LifecycleDispatcher.getInstance(new Application());
+    private final Activity mFirst = new Activity();
+    private final Activity mSecond = new Activity();
+    private final List<String> mEvents = Collections.synchronizedList(new ArrayList<String>());
+    private EventLoopScheduler mLoop;
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                mDispatcher.onActivityDestroyed(mFirst);
+                mDispatcher.onActivityDestroyed(mSecond);
+            }
+        });
+        mLoop.quit();
+    }
+
+    private NamedPresenter presenter(String name) {
+        return new NamedPresenter(name, new IdleModel(mLoop), mLoop, mEvents);
+    }
+
+    @Test
+    public void eventsReachOnlyTheHostActivitysPresentersInOrder() throws Exception {
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                mDispatcher.register(mFirst, presenter("a"));
+                mDispatcher.register(mSecond, presenter("x"));
+                mDispatcher.register(mFirst, presenter("b"));
+                mDispatcher.onActivityCreated(mFirst, null);
+                mDispatcher.onActivityStarted(mFirst);
+                mDispatcher.onActivityResumed(mFirst);
+            }
+        });
+        assertEquals(Arrays.asList("a:create", "b:create", "a:start", "b:start", "a:resume", "b:resume"), mEvents);
+    }
+
+    @Test
+    public void ordinalCountsPresentersOfTheSameClass() throws Exception {
+        final List<Integer> ordinals = new ArrayList<>();
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                ordinals.add(mDispatcher.register(mFirst, presenter("a")));
+                ordinals.add(mDispatcher.register(mFirst, presenter("b")));
+                ordinals.add(mDispatcher.register(mFirst, new OtherPresenter(new IdleModel(mLoop), mLoop)));
+                ordinals.add(mDispatcher.register(mSecond, presenter("x")));
+            }
+        });
+        assertEquals(Arrays.asList(0, 1, 0, 0), ordinals);
+    }
+
+    @Test
+    public void presenterCanUnregisterWhileEventsAreDispatched() throws Exception {
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                final NamedPresenter a = presenter("a");
+                NamedPresenter b = presenter("b");
+                a.mOnStop = new Runnable() {
+                    @Override
+                    public void run() {
+                        mDispatcher.unregister(mFirst, a);
+                    }
+                };
+                mDispatcher.register(mFirst, a);
+                mDispatcher.register(mFirst, b);
+                mDispatcher.onActivityCreated(mFirst, null);
+                mDispatcher.onActivityStarted(mFirst);
+                mDispatcher.onActivityStopped(mFirst); // 分发过程中注销, 后面的presenter仍然收到本次事件
+                mDispatcher.onActivityDestroyed(mFirst);
+                mDispatcher.onActivityResumed(mFirst); // 销毁后不再持有Activity
+            }
+        });
+        assertEquals(Arrays.asList("a:create", "b:create", "a:start", "b:start", "a:stop", "b:stop"), mEvents.subList(0, 6));
+        assertFalse(mEvents.contains("a:destroy"));
+        assertEquals("b:destroy", mEvents.get(mEvents.size() - 1));
+        assertFalse(mEvents.contains("b:resume"));
+    }
+
+    @Test
+    public void saveInstanceStateIsDispatched() throws Exception {
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                mDispatcher.register(mFirst, presenter("a"));
+                mDispatcher.onActivityCreated(mFirst, null);
+                mDispatcher.onActivitySaveInstanceState(mFirst, new Bundle());
+            }
+        });
+        assertTrue(mEvents.contains("a:save"));
+    }
+
+    static class IdleModel extends BasicModel {
+
+        IdleModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    static class TestView implements IBasicView {
+
+        @Override
+        public void onDataUpdate(Bundle bundle) {
+        }
+    }
+
+    static class NamedPresenter extends BasicPresenter<TestView, IdleModel> {
+
+        private final String mName;
+        private final List<String> mEvents;
+        Runnable mOnStop;
+
+        NamedPresenter(String name, IdleModel model, EventLoopScheduler loop, List<String> events) {
+            super(new TestView(), model, loop);
+            mName = name;
+            mEvents = events;
+        }
+
+        @Override
+        public void onCreate(Bundle bundle) {
+            super.onCreate(bundle);
+            mEvents.add(mName + ":create");
+        }
+
+        @Override
+        public void onStart() {
+            super.onStart();
+            mEvents.add(mName + ":start");
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            mEvents.add(mName + ":resume");
+        }
+
+        @Override
+        public void onStop() {
+            super.onStop();
+            mEvents.add(mName + ":stop");
+            if (mOnStop != null) {
+                mOnStop.run();
+            }
+        }
+
+        @Override
+        public void onDestroy() {
+            super.onDestroy();
+            mEvents.add(mName + ":destroy");
+        }
+
+        @Override
+        protected void onSaveState(Bundle state) {
+            mEvents.add(mName + ":save");
+        }
+    }
+
+    static class OtherPresenter extends BasicPresenter<TestView, IdleModel> {
+
+        OtherPresenter(IdleModel model, EventLoopScheduler loop) {
+            super(new TestView(), model, loop);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.app.Activity;
+import android.os.Bundle;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.presenter.impl.BasicPresenterDeliveryTest.RecordingPresenter;
+import com.jeson.mvp.presenter.impl.BasicPresenterDeliveryTest.RecordingView;
+import com.jeson.mvp.presenter.impl.BasicPresenterDeliveryTest.SendingModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RetainedPresentersTest {
+
+    private final List<ViewRecordingPresenter> mPresenters = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Loops.main();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                for (ViewRecordingPresenter presenter : mPresenters) {
+                    RetainedPresenters.remove(presenter);
+                    presenter.onDestroy();
+                }
+            }
+        });
+    }
+
+    private ViewRecordingPresenter presenter() {
+        ViewRecordingPresenter presenter = new ViewRecordingPresenter(new SendingModel());
+        mPresenters.add(presenter);
+        return presenter;
+    }
+
+    @Test
+    public void putReplacesThePresenterRetainedUnderTheSameKey() {
+        ViewRecordingPresenter first = presenter();
+        ViewRecordingPresenter second = presenter();
+        assertNull(RetainedPresenters.put(new Activity(), first, 0));
+        assertNull(RetainedPresenters.put(new Activity(), first, 0));
+        assertSame(first, RetainedPresenters.put(new Activity(), second, 0));
+
+        // 新的Activity实例通过相同的键取回, 取回后不再保留
+        assertSame(second, BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 0));
+        assertNull(BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 0));
+    }
+
+    @Test
+    public void presentersOfTheSameClassAreRetainedByOrdinal() {
+        ViewRecordingPresenter first = presenter();
+        ViewRecordingPresenter second = presenter();
+        assertNull(RetainedPresenters.put(new Activity(), first, 0));
+        assertNull(RetainedPresenters.put(new Activity(), second, 1));
+        assertSame(second, BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 1));
+        assertSame(first, BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 0));
+    }
+
+    @Test
+    public void keyIncludesActivityClassTaskPresenterClassAndOrdinal() {
+        ViewRecordingPresenter presenter = presenter();
+        RetainedPresenters.put(new Activity(), presenter, 0);
+        assertNull(BasicPresenter.getRetained(new OtherActivity(), ViewRecordingPresenter.class, 0));
+        assertNull(BasicPresenter.getRetained(new TaskActivity(), ViewRecordingPresenter.class, 0));
+        assertNull(BasicPresenter.getRetained(new Activity(), RecordingPresenter.class, 0));
+        assertNull(BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 1));
+        assertSame(presenter, BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 0));
+    }
+
+    @Test
+    public void removeByPresenterDropsOnlyThatEntry() {
+        ViewRecordingPresenter first = presenter();
+        ViewRecordingPresenter second = presenter();
+        RetainedPresenters.put(new Activity(), first, 0);
+        RetainedPresenters.put(new OtherActivity(), second, 0);
+        RetainedPresenters.remove(first);
+        RetainedPresenters.remove(first);
+        assertNull(BasicPresenter.getRetained(new Activity(), ViewRecordingPresenter.class, 0));
+        assertSame(second, BasicPresenter.getRetained(new OtherActivity(), ViewRecordingPresenter.class, 0));
+    }
+
+    @Test
+    public void callbacksWhileDetachedAreReplayedInOrderToTheNewView() throws Exception {
+        final ViewRecordingPresenter presenter = presenter();
+        final SendingModel model = presenter.model();
+        final RecordingView view = new RecordingView();
+        final AtomicReference<RecordingView> detachedView = new AtomicReference<>();
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                presenter.onCreate(null);
+                presenter.onStart();
+                presenter.onResume();
+                presenter.detachView();
+                detachedView.set(presenter.view());
+            }
+        });
+        assertNull(detachedView.get());
+
+        model.sendSuccesses(1, 5);
+        settle(model);
+        assertEquals(Collections.<Integer>emptyList(), presenter.indexes());
+
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                presenter.attachView(view);
+            }
+        });
+        Loops.drain();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), presenter.indexes());
+        assertEquals(Collections.nCopies(5, view), presenter.views());
+
+        // 连接之后的回调直接派发
+        model.sendSuccesses(2, 1);
+        settle(model);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 0), presenter.indexes());
+    }
+
+    @Test
+    public void attachViewRejectsNullAndDestroyedPresenter() throws Exception {
+        final ViewRecordingPresenter presenter = presenter();
+        final List<Class<?>> errors = new ArrayList<>();
+        Loops.run(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    presenter.attachView(null);
+                    fail("null view");
+                } catch (IllegalArgumentException expected) {
+                    errors.add(expected.getClass());
+                }
+                presenter.onDestroy();
+                try {
+                    presenter.attachView(new RecordingView());
+                    fail("destroyed presenter");
+                } catch (IllegalStateException expected) {
+                    errors.add(expected.getClass());
+                }
+            }
+        });
+        assertEquals(Arrays.<Class<?>>asList(IllegalArgumentException.class, IllegalStateException.class), errors);
+    }
+
+    /**
+     * 等待model线程中已经发出的回调, 以及它们在主线程中的派发都结束
+     */
+    private void settle(SendingModel model) throws InterruptedException {
+        final CountDownLatch sent = new CountDownLatch(1);
+        model.send(new Runnable() {
+            @Override
+            public void run() {
+                sent.countDown();
+            }
+        });
+        Loops.await(sent);
+        Loops.drain();
+    }
+
+    static class OtherActivity extends Activity {
+    }
+
+    static class TaskActivity extends Activity {
+
+        @Override
+        public int getTaskId() {
+            return 7;
+        }
+    }
+
+    /**
+     * 额外记录每次回调时连接的view
+     */
+    static class ViewRecordingPresenter extends RecordingPresenter {
+
+        private final List<RecordingView> mViews = new ArrayList<>();
+
+        ViewRecordingPresenter(SendingModel model) {
+            super(model);
+        }
+
+        SendingModel model() {
+            return getBasicModel();
+        }
+
+        RecordingView view() {
+            return getBasicView();
+        }
+
+        List<RecordingView> views() {
+            return new ArrayList<>(mViews);
+        }
+
+        @Override
+        protected void onSuccessCalledOnUIThread(int dataType, Bundle data) {
+            mViews.add(getBasicView());
+            super.onSuccessCalledOnUIThread(dataType, data);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.jeson.mvp.presenter.impl;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UIWatchdogTest {
+
+    private final UIWatchdog mWatchdog = new UIWatchdog(5);
+    private final List<UIWatchdog.Overrun> mReported = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        mWatchdog.release();
+        BasicPresenter.setUIWatchdog(null);
+    }
+
+    private void dispatch(int what, int dataType, long millis) throws InterruptedException {
+        mWatchdog.begin(this, UIWatchdog.SOURCE_CALLBACK, what, dataType);
+        try {
+            Thread.sleep(millis);
+        } finally {
+            mWatchdog.end();
+        }
+    }
+
+    @Test
+    public void onlyDispatchesOverBudgetAreRecorded() throws Exception {
+        mWatchdog.setListener(new UIWatchdog.Listener() {
+            @Override
+            public void onOverrun(UIWatchdog.Overrun overrun) {
+                mReported.add(overrun);
+            }
+        });
+        dispatch(1, 10, 0);
+        assertEquals(0, mWatchdog.getOverrunCount());
+        dispatch(2, 20, 20);
+        assertEquals(1, mWatchdog.getOverrunCount());
+        UIWatchdog.Overrun overrun = mWatchdog.getOverruns().get(0);
+        assertSame(getClass(), overrun.presenterClass);
+        assertEquals(UIWatchdog.SOURCE_CALLBACK, overrun.source);
+        assertEquals(2, overrun.what);
+        assertEquals(20, overrun.dataType);
+        assertTrue(overrun.durationNanos >= 20000000L);
+        assertNull(overrun.stack);
+        assertEquals(1, mReported.size());
+        assertSame(overrun, mReported.get(0));
+    }
+
+    @Test
+    public void nestedDispatchesCountOnce() throws Exception {
+        mWatchdog.begin(this, UIWatchdog.SOURCE_BATCH, 3, UIWatchdog.NO_DATA_TYPE);
+        try {
+            dispatch(1, 10, 10);
+        } finally {
+            mWatchdog.end();
+        }
+        assertEquals(1, mWatchdog.getOverrunCount());
+        assertEquals(UIWatchdog.SOURCE_BATCH, mWatchdog.getOverruns().get(0).source);
+    }
+
+    @Test
+    public void onlyRecentOverrunsAreKept() throws Exception {
+        UIWatchdog watchdog = new UIWatchdog(1);
+        for (int i = 0; i < 70; i++) {
+            watchdog.begin(this, UIWatchdog.SOURCE_MESSAGE, i, UIWatchdog.NO_DATA_TYPE);
+            Thread.sleep(2);
+            watchdog.end();
+        }
+        assertEquals(70, watchdog.getOverrunCount());
+        List<UIWatchdog.Overrun> overruns = watchdog.getOverruns();
+        assertEquals(64, overruns.size());
+        assertEquals(6, overruns.get(0).what);
+        assertEquals(69, overruns.get(63).what);
+        watchdog.clear();
+        assertTrue(watchdog.getOverruns().isEmpty());
+    }
+
+    @Test
+    public void stallCapturesTheDispatchingStack() throws Exception {
+        mWatchdog.setStallThreshold(20);
+        dispatch(1, 10, 200);
+        StackTraceElement[] stack = mWatchdog.getOverruns().get(0).stack;
+        assertNotNull(stack);
+        boolean found = false;
+        for (StackTraceElement element : stack) {
+            found |= element.getMethodName().equals("dispatch");
+        }
+        assertTrue("stack does not contain the slow method", found);
+    }
+
+    @Test
+    public void presenterCallbacksAreWatched() throws Exception {
+        BasicPresenter.setUIWatchdog(mWatchdog);
+        EventLoopScheduler loop = new EventLoopScheduler("test-main");
+        final IdleModel model = new IdleModel(loop);
+        final SlowPresenter presenter = new SlowPresenter(model, loop);
+        try {
+            Loops.run(loop, new Runnable() {
+                @Override
+                public void run() {
+                    presenter.onCreate(null);
+                    presenter.mWorkCallback.onSuccess(4, new Bundle()); // 主线程中直接派发
+                    presenter.onDestroy();
+                }
+            });
+        } finally {
+            loop.quit();
+        }
+        assertEquals(1, mWatchdog.getOverrunCount());
+        UIWatchdog.Overrun overrun = mWatchdog.getOverruns().get(0);
+        assertSame(SlowPresenter.class, overrun.presenterClass);
+        assertEquals(4, overrun.dataType);
+        assertEquals(BasicPresenter.CallEvent.TYPE_SUCCESS, overrun.what);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void budgetMustBePositive() {
+        new UIWatchdog(0);
+    }
+
+    static class IdleModel extends BasicModel {
+
+        IdleModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    static class SlowPresenter extends BasicPresenter<IBasicView, IdleModel> {
+
+        SlowPresenter(IdleModel model, EventLoopScheduler loop) {
+            super(new IBasicView() {
+                @Override
+                public void onDataUpdate(Bundle bundle) {
+                }
+            }, model, loop);
+        }
+
+        @Override
+        protected void onSuccessCalledOnUIThread(int dataType, Bundle data) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
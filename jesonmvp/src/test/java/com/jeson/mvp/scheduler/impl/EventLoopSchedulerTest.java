@@ -0,0 +1,234 @@
+package com.jeson.mvp.scheduler.impl;
+
+import com.jeson.mvp.Loops;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopSchedulerTest {
+
+    private EventLoopScheduler mLoop;
+    /**
+     * 只在事件循环线程中读写
+     */
+    private final List<String> mOrder = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mLoop = new EventLoopScheduler("test-main");
+    }
+
+    @After
+    public void tearDown() {
+        mLoop.quit();
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mOrder.add(name);
+            }
+        };
+    }
+
+    /**
+     * 在事件循环线程中读取记录的顺序
+     */
+    private List<String> order() throws InterruptedException {
+        final AtomicReference<List<String>> copy = new AtomicReference<>();
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                copy.set(new ArrayList<>(mOrder));
+            }
+        });
+        return copy.get();
+    }
+
+    @Test
+    public void postedTasksRunInOrderOnTheLoopThread() throws Exception {
+        final AtomicBoolean onLoop = new AtomicBoolean(false);
+        for (int i = 0; i < 1000; i++) {
+            mLoop.post(record(String.valueOf(i)));
+        }
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                onLoop.set(mLoop.isCurrentThread() && Thread.currentThread() == mLoop.getThread());
+            }
+        });
+        assertTrue(onLoop.get());
+        assertFalse(mLoop.isCurrentThread());
+        List<String> order = order();
+        assertEquals(1000, order.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void delayedTasksRunByDeadlineThenSubmissionOrder() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicLong elapsed = new AtomicLong();
+        final long start = System.nanoTime();
+        mLoop.postDelayed(record("60"), 60);
+        mLoop.postDelayed(record("20a"), 20);
+        mLoop.postDelayed(record("20b"), 20);
+        mLoop.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                elapsed.set(System.nanoTime() - start);
+                done.countDown();
+            }
+        }, 80);
+        mLoop.post(record("now"));
+        Loops.await(done);
+        assertTrue(elapsed.get() >= TimeUnit.MILLISECONDS.toNanos(80));
+        assertEquals(Arrays.asList("now", "20a", "20b", "60"), order());
+    }
+
+    @Test
+    public void removeDropsPendingAndDelayedTasks() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        mLoop.post(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Loops.await(started);
+        Runnable removed = record("removed");
+        mLoop.post(removed);
+        mLoop.post(removed);
+        mLoop.postDelayed(removed, 10);
+        mLoop.post(record("kept"));
+        mLoop.remove(removed);
+        release.countDown();
+        Thread.sleep(30);
+        assertEquals(Arrays.asList("kept"), order());
+    }
+
+    @Test
+    public void idleTasksWaitForTheQueueToEmpty() throws Exception {
+        Loops.run(mLoop, new Runnable() {
+            @Override
+            public void run() {
+                mLoop.postIdle(record("idle1"));
+                mLoop.postIdle(record("idle2"));
+                mLoop.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mOrder.add("task");
+                        mLoop.post(record("chained"));
+                    }
+                });
+            }
+        });
+        final CountDownLatch done = new CountDownLatch(1);
+        mLoop.postIdle(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        Loops.await(done);
+        assertEquals(Arrays.asList("task", "chained", "idle1", "idle2"), order());
+    }
+
+    @Test
+    public void frameCallbacksRunOnFrameBoundaries() throws Exception {
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicLong first = new AtomicLong();
+        final AtomicLong second = new AtomicLong();
+        mLoop.postFrameCallback(new Runnable() {
+            @Override
+            public void run() {
+                first.set(System.nanoTime());
+                done.countDown();
+                mLoop.postFrameCallback(new Runnable() {
+                    @Override
+                    public void run() {
+                        second.set(System.nanoTime());
+                        done.countDown();
+                    }
+                });
+            }
+        });
+        Loops.await(done);
+        long gap = second.get() - first.get();
+        // 帧回调中提交的帧回调在下一帧运行, 而不是立即运行
+        assertTrue("gap " + gap + "ns", gap > 0);
+        assertTrue("gap " + gap + "ns", gap <= TimeUnit.MILLISECONDS.toNanos(EventLoopScheduler.FRAME_INTERVAL_MILLIS * 4));
+    }
+
+    @Test
+    public void exceptionDoesNotStopTheLoop() throws Exception {
+        final AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        mLoop.getThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                uncaught.set(e);
+            }
+        });
+        final IllegalStateException error = new IllegalStateException("task failed");
+        mLoop.post(new Runnable() {
+            @Override
+            public void run() {
+                throw error;
+            }
+        });
+        mLoop.post(record("after"));
+        assertEquals(Arrays.asList("after"), order());
+        assertSame(error, uncaught.get());
+    }
+
+    @Test
+    public void quitStopsTheLoop() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean ran = new AtomicBoolean(false);
+        mLoop.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        mLoop.post(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(true);
+            }
+        });
+        mLoop.quit();
+        release.countDown();
+        mLoop.getThread().join(TimeUnit.SECONDS.toMillis(Loops.TIMEOUT_SECONDS));
+        assertFalse(mLoop.getThread().isAlive());
+        assertTrue(mLoop.isQuit());
+        assertFalse(ran.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.jeson.mvp.utils;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BundleCodecTest {
+
+    @Test
+    public void roundTripsEverySupportedType() {
+        Bundle nested = new Bundle();
+        nested.putBoolean("flag", true);
+        Bundle bundle = new Bundle();
+        bundle.putBoolean("no", false);
+        bundle.putInt("int", Integer.MIN_VALUE);
+        bundle.putInt("small", -3);
+        bundle.putLong("long", Long.MAX_VALUE);
+        bundle.putDouble("double", -0.5);
+        bundle.putString("string", "中文 and ascii");
+        bundle.putString("empty", "");
+        bundle.putString("null", null);
+        bundle.putByteArray("bytes", new byte[]{0, 1, -1, 127});
+        bundle.putBundle("nested", nested);
+        bundle.putSerializable("list", new ArrayList<>(Arrays.asList("a", "b")));
+
+        Bundle back = BundleCodec.decode(BundleCodec.encode(bundle));
+
+        assertEquals(bundle.size(), back.size());
+        assertFalse(back.getBoolean("no"));
+        assertEquals(Integer.MIN_VALUE, back.getInt("int"));
+        assertEquals(-3, back.getInt("small"));
+        assertEquals(Long.MAX_VALUE, back.getLong("long"));
+        assertEquals(-0.5, back.getDouble("double"), 0);
+        assertEquals("中文 and ascii", back.getString("string"));
+        assertEquals("", back.getString("empty"));
+        assertTrue(back.containsKey("null"));
+        assertNull(back.get("null"));
+        assertArrayEquals(new byte[]{0, 1, -1, 127}, back.getByteArray("bytes"));
+        assertTrue(back.getBundle("nested").getBoolean("flag"));
+        assertEquals(Arrays.asList("a", "b"), back.getSerializable("list"));
+    }
+
+    @Test
+    public void encodingIsCanonical() {
+        Bundle first = new Bundle();
+        first.putInt("b", 2);
+        first.putInt("a", 1);
+        Bundle second = new Bundle();
+        second.putInt("a", 1);
+        second.putInt("b", 2);
+        assertArrayEquals(BundleCodec.encode(first), BundleCodec.encode(second));
+        assertArrayEquals(BundleCodec.encode(first), BundleCodec.encode(BundleCodec.decode(BundleCodec.encode(first))));
+    }
+
+    @Test
+    public void nullAndEmptyEncodeTheSame() {
+        assertArrayEquals(BundleCodec.encode(new Bundle()), BundleCodec.encode(null));
+        assertTrue(BundleCodec.decode(BundleCodec.encode(null)).isEmpty());
+    }
+
+    @Test
+    public void decodesASliceOfALargerArray() {
+        Bundle bundle = new Bundle();
+        bundle.putString("k", "v");
+        byte[] encoded = BundleCodec.encode(bundle);
+        byte[] padded = new byte[encoded.length + 6];
+        System.arraycopy(encoded, 0, padded, 3, encoded.length);
+        assertEquals("v", BundleCodec.decode(padded, 3, encoded.length).getString("k"));
+    }
+
+    @Test
+    public void truncatedInputIsRejected() {
+        Bundle bundle = new Bundle();
+        bundle.putString("key", "a longer value");
+        bundle.putLong("long", 123456789L);
+        byte[] encoded = BundleCodec.encode(bundle);
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                BundleCodec.decode(Arrays.copyOf(encoded, length));
+                fail("decoded a bundle truncated to " + length + " of " + encoded.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void trailingBytesAreRejected() {
+        byte[] encoded = BundleCodec.encode(new Bundle());
+        try {
+            BundleCodec.decode(Arrays.copyOf(encoded, encoded.length + 1));
+            fail("decoded a bundle followed by garbage");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.jeson.mvp.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram mHistogram = new LatencyHistogram();
+
+    @Test
+    public void smallValuesAreExact() {
+        for (int i = 0; i < 16; i++) {
+            mHistogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(16, snapshot.getCount());
+        assertEquals(15, snapshot.getMax());
+        assertEquals(120, snapshot.getTotal());
+        assertEquals(7, snapshot.getMean());
+        assertEquals(7, snapshot.getP50());
+        assertEquals(0, snapshot.getPercentile(0));
+        assertEquals(15, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketError() {
+        Random random = new Random(42);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + (long) (random.nextDouble() * 50000000);
+            mHistogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            long expected = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long actual = snapshot.getPercentile(percentile);
+            // 按桶的上界计算, 不会低于真实值, 相对误差不超过12.5%
+            assertTrue("p" + percentile + " " + actual + " < " + expected, actual >= expected);
+            assertTrue("p" + percentile + " " + actual + " vs " + expected, actual <= expected + expected / 8);
+        }
+        assertEquals(values[values.length - 1], snapshot.getMax());
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        mHistogram.record(-5);
+        mHistogram.record(Long.MAX_VALUE / 2);
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(0, snapshot.getPercentile(50));
+        assertEquals(Long.MAX_VALUE / 2, snapshot.getMax());
+        assertEquals(Long.MAX_VALUE / 2, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void emptyAndResetSnapshotsAreZero() {
+        assertEquals(0, mHistogram.snapshot().getP99());
+        assertEquals(0, mHistogram.snapshot().getMean());
+        mHistogram.record(100);
+        mHistogram.reset();
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getP50());
+        assertEquals(0, mHistogram.getCount());
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws Exception {
+        final int threads = 4;
+        final int perThread = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        mHistogram.record(i + offset);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(threads * perThread, snapshot.getCount());
+        assertEquals(perThread - 1 + threads - 1, snapshot.getMax());
+    }
+}
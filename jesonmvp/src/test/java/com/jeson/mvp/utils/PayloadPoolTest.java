@@ -0,0 +1,164 @@
+package com.jeson.mvp.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PayloadPoolTest {
+
+    private final TextPool mPool = new TextPool(4);
+
+    @Test
+    public void frozenPayloadRejectsChanges() {
+        TextPayload payload = mPool.obtain();
+        payload.setText("a");
+        payload.freeze();
+        assertTrue(payload.isFrozen());
+        try {
+            payload.setText("b");
+            fail("modified a frozen payload");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals("a", payload.getText());
+    }
+
+    @Test
+    public void recycledPayloadIsClearedAndReused() {
+        TextPayload payload = mPool.obtain();
+        payload.setText("a");
+        payload.freeze();
+        payload.recycle();
+        assertNull(payload.getText());
+        TextPayload reused = mPool.obtain();
+        assertSame(payload, reused);
+        assertFalse(reused.isFrozen());
+        reused.setText("b");
+        reused.recycle(); // 再次从对象池取出后可以再次回收
+        assertEquals(1, mPool.getCreatedCount());
+    }
+
+    @Test
+    public void recyclingTwiceFails() {
+        TextPayload payload = mPool.obtain();
+        payload.recycle();
+        try {
+            payload.recycle();
+            fail("recycled twice");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void prefilledPoolDoesNotCreateOnObtain() {
+        mPool.prefill();
+        for (int i = 0; i < 4; i++) {
+            mPool.obtain();
+        }
+        assertEquals(0, mPool.getCreatedCount());
+        mPool.obtain();
+        assertEquals(1, mPool.getCreatedCount());
+    }
+
+    @Test
+    public void fullPoolDropsRecycledPayloads() {
+        TextPayload[] payloads = new TextPayload[6];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = mPool.obtain();
+        }
+        for (TextPayload payload : payloads) {
+            payload.recycle();
+        }
+        for (int i = 0; i < 6; i++) {
+            mPool.obtain();
+        }
+        assertEquals(8, mPool.getCreatedCount()); // 只有4个被放回对象池
+    }
+
+    @Test
+    public void payloadWithoutPoolCanBeRecycled() {
+        TextPayload payload = new TextPayload();
+        payload.setText("a");
+        payload.recycle();
+        assertNull(payload.getText());
+    }
+
+    @Test
+    public void concurrentUseNeverSharesAPayload() throws Exception {
+        final int threads = 4;
+        final AtomicBoolean shared = new AtomicBoolean(false);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 50000; i++) {
+                        TextPayload payload = mPool.obtain();
+                        if (payload.mUsers.incrementAndGet() != 1) {
+                            shared.set(true);
+                        }
+                        payload.mUsers.decrementAndGet();
+                        payload.recycle();
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertFalse("a payload was handed to two threads at once", shared.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new TextPool(0);
+    }
+
+    static class TextPayload extends Payload {
+
+        final AtomicInteger mUsers = new AtomicInteger();
+        private String mText;
+
+        String getText() {
+            return mText;
+        }
+
+        void setText(String text) {
+            checkMutable();
+            mText = text;
+        }
+
+        @Override
+        protected void onRecycle() {
+            mText = null;
+        }
+    }
+
+    static class TextPool extends PayloadPool<TextPayload> {
+
+        TextPool(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        protected TextPayload create() {
+            return new TextPayload();
+        }
+    }
+}
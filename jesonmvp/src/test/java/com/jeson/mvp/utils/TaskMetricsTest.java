@@ -0,0 +1,170 @@
+package com.jeson.mvp.utils;
+
+import android.os.Bundle;
+import android.os.Message;
+
+import com.jeson.mvp.ILifeRecycle.LifeStatus;
+import com.jeson.mvp.Loops;
+import com.jeson.mvp.model.impl.BasicModel;
+import com.jeson.mvp.presenter.impl.BasicPresenter;
+import com.jeson.mvp.scheduler.impl.EventLoopScheduler;
+import com.jeson.mvp.view.IBasicView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskMetricsTest {
+
+    private final TaskMetrics mMetrics = new TaskMetrics();
+
+    @Test
+    public void recordsAreGroupedAndSorted() {
+        mMetrics.recordTask(5, 100, 2000);
+        mMetrics.recordTask(1, 10, 20);
+        mMetrics.recordTask(5, 300, 4000);
+        mMetrics.recordHop(9, 50);
+        mMetrics.recordResult(9, TaskMetrics.RESULT_SUCCESS);
+        mMetrics.recordResult(9, TaskMetrics.RESULT_SUCCESS);
+        mMetrics.recordResult(9, TaskMetrics.RESULT_ERROR);
+        mMetrics.recordResult(3, TaskMetrics.RESULT_WORKING);
+
+        TaskMetrics.Snapshot snapshot = mMetrics.snapshot();
+        assertEquals(Arrays.asList(1, 5), new ArrayList<>(snapshot.getTasks().keySet()));
+        TaskMetrics.TaskStats task = snapshot.getTasks().get(5);
+        assertEquals(5, task.what);
+        assertEquals(2, task.queueWait.getCount());
+        assertEquals(300, task.queueWait.getMax());
+        assertEquals(3000, task.execution.getMean());
+
+        assertEquals(Arrays.asList(3, 9), new ArrayList<>(snapshot.getData().keySet()));
+        TaskMetrics.DataStats data = snapshot.getData().get(9);
+        assertEquals(2, data.getCount(TaskMetrics.RESULT_SUCCESS));
+        assertEquals(1, data.getCount(TaskMetrics.RESULT_ERROR));
+        assertEquals(0, data.getCount(TaskMetrics.RESULT_FAILED));
+        assertEquals(1, data.hop.getCount());
+        assertEquals(0, snapshot.getData().get(3).hop.getCount());
+    }
+
+    @Test
+    public void resetKeepsKeysButClearsValues() {
+        mMetrics.recordTask(1, 10, 20);
+        mMetrics.recordResult(2, TaskMetrics.RESULT_FAILED);
+        mMetrics.reset();
+        TaskMetrics.Snapshot snapshot = mMetrics.snapshot();
+        assertEquals(0, snapshot.getTasks().get(1).execution.getCount());
+        assertEquals(0, snapshot.getData().get(2).getCount(TaskMetrics.RESULT_FAILED));
+    }
+
+    @Test
+    public void concurrentNewKeysAreNotLost() throws Exception {
+        final int threads = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        mMetrics.recordTask((i * threads + offset) % 500, 1, 1);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        TaskMetrics.Snapshot snapshot = mMetrics.snapshot();
+        long total = 0;
+        for (TaskMetrics.TaskStats stats : snapshot.getTasks().values()) {
+            total += stats.execution.getCount();
+        }
+        assertEquals(threads * 200, total);
+        assertEquals(500, snapshot.getTasks().size());
+    }
+
+    @Test
+    public void presenterRecordsHopAndResults() throws Exception {
+        EventLoopScheduler loop = new EventLoopScheduler("test-main");
+        final MetricsModel model = new MetricsModel(loop);
+        final MetricsPresenter presenter = new MetricsPresenter(model, loop);
+        presenter.setTaskMetrics(mMetrics);
+        try {
+            Loops.run(loop, new Runnable() {
+                @Override
+                public void run() {
+                    presenter.onCreate(null);
+                }
+            });
+            model.succeed(4);
+            model.succeed(4);
+            Loops.await(presenter.mDelivered);
+            TaskMetrics.DataStats data = mMetrics.snapshot().getData().get(4);
+            assertEquals(2, data.getCount(TaskMetrics.RESULT_SUCCESS));
+            assertEquals(2, data.hop.getCount());
+            assertTrue(data.hop.getMax() > 0);
+        } finally {
+            Loops.run(loop, new Runnable() {
+                @Override
+                public void run() {
+                    presenter.onDestroy();
+                }
+            });
+            loop.quit();
+        }
+    }
+
+    static class MetricsModel extends BasicModel {
+
+        MetricsModel(EventLoopScheduler loop) {
+            super(SINGLE_THREAD, loop);
+        }
+
+        void succeed(final int dataType) {
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    getWorkingCallback().onSuccess(dataType, new Bundle());
+                }
+            }, LifeStatus.ON_DESTROY);
+        }
+
+        @Override
+        protected void handleMessage(Message msg) {
+        }
+    }
+
+    static class MetricsView implements IBasicView {
+
+        @Override
+        public void onDataUpdate(Bundle bundle) {
+        }
+    }
+
+    static class MetricsPresenter extends BasicPresenter<MetricsView, MetricsModel> {
+
+        final CountDownLatch mDelivered = new CountDownLatch(2);
+
+        MetricsPresenter(MetricsModel model, EventLoopScheduler loop) {
+            super(new MetricsView(), model, loop);
+        }
+
+        @Override
+        protected void onSuccessCalledOnUIThread(int dataType, Bundle data) {
+            mDelivered.countDown();
+        }
+    }
+}